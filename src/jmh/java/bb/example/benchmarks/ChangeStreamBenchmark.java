@@ -0,0 +1,72 @@
+package bb.example.benchmarks;
+
+import bb.example.PersonDatabase;
+import bb.example.events.ChangeStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Edits of persons without a change stream and with a stream read by one subscriber, so the cost the stream adds to
+ * the write path is seen directly.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ChangeStreamBenchmark {
+    private static final int SIZE = 100_000;
+
+    @Param({"NONE", "DROP_OLDEST", "BLOCK"})
+    public String stream;
+
+    @Param({"65536"})
+    public int capacity;
+
+    private PersonDatabase database;
+    private ChangeStream changeStream;
+    private final LongAdder consumed = new LongAdder();
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        database = Datasets.database(SIZE);
+        random = new SplittableRandom(Datasets.SEED);
+        if (!stream.equals("NONE")) {
+            changeStream = ChangeStream.attach(database, capacity,
+                    ChangeStream.Backpressure.valueOf(stream));
+            changeStream.subscribe(event -> consumed.increment());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        if (changeStream != null) {
+            changeStream.close();
+        }
+    }
+
+    @Benchmark
+    public boolean editPerson() {
+        int id = 1 + random.nextInt(SIZE);
+        return database.editPerson(id, Datasets.name(random), Datasets.name(random), "987654321");
+    }
+}
@@ -0,0 +1,101 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.services.transfer.ExportProgress;
+import bb.example.services.transfer.ExportResult;
+import bb.example.services.transfer.GzipExporter;
+import bb.example.services.transfer.GzipMembersInputStream;
+import bb.example.services.transfer.PersonExporter;
+import bb.example.services.transfer.TextExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time of the plain text export compared with the gzip export compressed by one thread and by all cores, with the
+ * default fastest level and with the default level of gzip, and of reading the files back. The sizes of the files are printed when a trial ends.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CompressedExportBenchmark {
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"text", "gzip-single", "gzip", "gzip-level6"})
+    public String format;
+
+    private List<Person> persons;
+    private PersonExporter exporter;
+    private Path directory;
+    private Path target;
+    private long bytes;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        persons = Datasets.persons(size);
+        exporter = switch (format) {
+            case "text" -> new TextExporter();
+            case "gzip-single" -> new GzipExporter(1, 32_768);
+            case "gzip-level6" -> new GzipExporter(Runtime.getRuntime().availableProcessors(), 32_768, 6);
+            default -> new GzipExporter();
+        };
+        directory = Files.createTempDirectory("insured-benchmark");
+        target = directory.resolve(format.equals("text") ? "benchmark.txt" : "benchmark.txt.gz");
+        // the file read by the read benchmark
+        export();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        System.out.println();
+        System.out.println(format + " export of " + size + " persons: " + bytes + " bytes");
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ExportResult export() throws IOException {
+        ExportResult result = exporter.export(persons, target, new ExportProgress());
+        bytes = result.bytes();
+        return result;
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        try (InputStream in = open()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private InputStream open() throws IOException {
+        InputStream in = Files.newInputStream(target);
+        return format.equals("text") ? in : new GzipMembersInputStream(in);
+    }
+}
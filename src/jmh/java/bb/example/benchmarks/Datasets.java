@@ -0,0 +1,96 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.PersonDetails;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.storage.SkipListPersonStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic data shared by the benchmarks, so results of different commits are measured on the same
+ * persons.
+ *
+ * @author pollib
+ */
+final class Datasets {
+    static final long SEED = 20240501L;
+
+    private static final String[] SYLLABLES = {
+            "an", "bo", "ce", "da", "el", "fi", "go", "ha", "ja", "ka", "le", "mi", "no", "pa", "ro", "si", "to", "va",
+            "ze", "lu", "ma", "re", "sa", "ti", "vo"
+    };
+    private static final int LOAD_BATCH = 10_000;
+
+    private Datasets() {
+    }
+
+    /**
+     * @return a capitalized name of two or three syllables, about 16 thousand distinct values
+     */
+    static String name(SplittableRandom random) {
+        StringBuilder name = new StringBuilder(6);
+        int syllables = 2 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    static String phone(SplittableRandom random) {
+        return String.valueOf(100_000_000 + random.nextInt(900_000_000));
+    }
+
+    static PersonDetails details(SplittableRandom random) {
+        return new PersonDetails(name(random), name(random), phone(random), random.nextInt(151));
+    }
+
+    /**
+     * Fills the database with the given number of persons, their IDs are 1 to size.
+     */
+    static PersonDatabase database(int size) {
+        return database(size, new DatabaseMetrics());
+    }
+
+    static PersonDatabase database(int size, DatabaseMetrics metrics) {
+        PersonDatabase database = new PersonDatabase(new SkipListPersonStore(), metrics);
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<PersonDetails> batch = new ArrayList<>(LOAD_BATCH);
+        for (int i = 0; i < size; i++) {
+            batch.add(details(random));
+            if (batch.size() == LOAD_BATCH) {
+                database.addPersons(batch);
+                batch.clear();
+            }
+        }
+        database.addPersons(batch);
+        return database;
+    }
+
+    static List<Person> persons(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Person> persons = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            PersonDetails details = details(random);
+            persons.add(new Person(id, details.name(), details.surname(), details.phone(), details.age()));
+        }
+        return persons;
+    }
+
+    /**
+     * @return search queries taken from names of the dataset, a whole name or a part of it
+     */
+    static String[] queries(int count) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String name = name(random);
+            queries[i] = i % 2 == 0 ? name : name.substring(1, 4);
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,69 @@
+package bb.example.benchmarks;
+
+import bb.example.DuplicatePolicy;
+import bb.example.DuplicateReport;
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.index.DuplicateIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the duplicate check of one person in a large database, which does not depend on its size, and of the
+ * duplicate report over the whole database.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DuplicateBenchmark {
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private PersonDatabase database;
+    private Person[] persons;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        database = Datasets.database(size);
+        database.enableDuplicateDetection(DuplicatePolicy.WARN);
+        persons = Datasets.persons(1024).toArray(new Person[0]);
+    }
+
+    @Benchmark
+    public long keyOf() {
+        Person person = persons[next++ & (persons.length - 1)];
+        return DuplicateIndex.keyOf(person.name(), person.surname(), person.phone());
+    }
+
+    @Benchmark
+    public Person findDuplicate() {
+        Person person = persons[next++ & (persons.length - 1)];
+        return database.findDuplicate(person.name(), person.surname(), person.phone());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public DuplicateReport duplicateReport() {
+        return database.duplicateReport();
+    }
+}
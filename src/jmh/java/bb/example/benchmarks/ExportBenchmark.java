@@ -0,0 +1,72 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.services.Utilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time of exporting the whole database into a text file and of building the printed list of persons.
+ * The list is limited to 1M persons, the 10M list would be a single string of more than half a gigabyte.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ExportBenchmark {
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private List<Person> persons;
+    private Path directory;
+    private String userDirectory;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        persons = Datasets.persons(size);
+        // saveFileTxt resolves the directory against the home directory
+        Path home = Path.of(System.getProperty("user.home"));
+        directory = Files.createTempDirectory(home, "insured-benchmark");
+        userDirectory = home.relativize(directory).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String saveFileTxt() {
+        return Utilities.saveFileTxt("benchmark.txt", userDirectory, persons);
+    }
+
+    @Benchmark
+    public String buildPersonsList() {
+        return Utilities.buildPersonsList(persons);
+    }
+}
@@ -0,0 +1,79 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.index.FuzzyIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search of mistyped names through the fuzzy index compared with computing the distance to every stored name.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FuzzySearchBenchmark {
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"1", "2"})
+    public int distance;
+
+    private PersonDatabase database;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        database = Datasets.database(size);
+        database.enableFuzzySearch();
+        queries = mistypedNames(1024);
+    }
+
+    @Benchmark
+    public Collection<Person> indexed() {
+        return database.findSimilarPersons(queries[next++ & (queries.length - 1)], distance);
+    }
+
+    @Benchmark
+    public Collection<Person> scan() {
+        String key = FuzzyIndex.keyOf(queries[next++ & (queries.length - 1)]);
+        return database.findPersons(person -> FuzzyIndex.distance(key, FuzzyIndex.keyOf(person.name()), distance) <= distance
+                || FuzzyIndex.distance(key, FuzzyIndex.keyOf(person.surname()), distance) <= distance);
+    }
+
+    /**
+     * @return names of the dataset with one letter replaced
+     */
+    private static String[] mistypedNames(int count) {
+        SplittableRandom random = new SplittableRandom(Datasets.SEED + 2);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder(Datasets.name(random));
+            name.setCharAt(random.nextInt(name.length()), LETTERS.charAt(random.nextInt(LETTERS.length())));
+            names[i] = name.toString();
+        }
+        return names;
+    }
+}
@@ -0,0 +1,52 @@
+package bb.example.benchmarks;
+
+import bb.example.metrics.LatencyHistogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures recording into one histogram shared by all threads, the contended variant shows whether the striped
+ * counters keep the threads from slowing each other down. Run it with {@code -t} to choose the number of threads.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class LatencyHistogramBenchmark {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @State(Scope.Thread)
+    public static class ThreadValue {
+        long value = 1_000;
+
+        long next() {
+            value = value * 31 % 1_000_003;
+            return value;
+        }
+    }
+
+    @Benchmark
+    public void record(ThreadValue thread) {
+        histogram.record(thread.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void recordContended(ThreadValue thread) {
+        histogram.record(thread.next());
+    }
+}
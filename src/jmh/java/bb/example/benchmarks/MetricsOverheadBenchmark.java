@@ -0,0 +1,98 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.metrics.DatabaseMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the operations with enabled and disabled metrics, the difference is the cost of the instrumentation.
+ * The contended variant shows whether threads recording the same operation slow each other down.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx6g")
+public class MetricsOverheadBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"enabled", "disabled"})
+    public String metrics;
+
+    private PersonDatabase database;
+    private String[] queries;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        database = Datasets.database(size, "enabled".equals(metrics) ? new DatabaseMetrics() : DatabaseMetrics.disabled());
+        queries = Datasets.queries(QUERIES);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeAdded() {
+        for (int id = database.nextId() - 1; id > size; id--) {
+            database.deletePerson(id);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void seed() {
+            random = new SplittableRandom(Datasets.SEED + Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    public Person findById(ThreadRandom thread) {
+        return database.findById(1 + thread.random.nextInt(size));
+    }
+
+    @Benchmark
+    public Collection<Person> findSpecificPerson(ThreadRandom thread) {
+        return database.findSpecificPerson(queries[thread.random.nextInt(QUERIES)]);
+    }
+
+    @Benchmark
+    public int addPerson() {
+        return database.addPerson("Benchmark", "Person", "123456789", 42);
+    }
+
+    @Benchmark
+    public boolean editPerson(ThreadRandom thread) {
+        int id = 1 + thread.random.nextInt(size);
+        return database.editPerson(id, "Benchmark", "Person", "987654321");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Person findByIdContended(ThreadRandom thread) {
+        return database.findById(1 + thread.random.nextInt(size));
+    }
+}
@@ -0,0 +1,82 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded latency of the database operations at several database sizes. The 10M dataset needs a few GB of
+ * heap, smaller sizes can be selected with {@code -p size=10000}.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PersonDatabaseBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    private PersonDatabase database;
+    private String[] queries;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        database = Datasets.database(size);
+        queries = Datasets.queries(QUERIES);
+        random = new SplittableRandom(Datasets.SEED);
+    }
+
+    /**
+     * Removes the persons added by {@link #addPerson()}, so every iteration starts from the same size.
+     */
+    @TearDown(Level.Iteration)
+    public void removeAdded() {
+        for (int id = database.nextId() - 1; id > size; id--) {
+            database.deletePerson(id);
+        }
+    }
+
+    @Benchmark
+    public int addPerson() {
+        return database.addPerson("Benchmark", "Person", "123456789", 42);
+    }
+
+    @Benchmark
+    public Person findById() {
+        return database.findById(1 + random.nextInt(size));
+    }
+
+    @Benchmark
+    public Collection<Person> findSpecificPerson() {
+        return database.findSpecificPerson(queries[random.nextInt(QUERIES)]);
+    }
+
+    @Benchmark
+    public boolean editPerson() {
+        int id = 1 + random.nextInt(size);
+        return database.editPerson(id, Datasets.name(random), Datasets.name(random), "987654321");
+    }
+}
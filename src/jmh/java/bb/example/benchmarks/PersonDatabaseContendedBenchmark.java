@@ -0,0 +1,114 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the database shared by several threads. The groups mix readers and writers working on the same
+ * database, the other benchmarks run one operation from as many threads as there are cores.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PersonDatabaseContendedBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    private PersonDatabase database;
+    private String[] queries;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        database = Datasets.database(size);
+        queries = Datasets.queries(QUERIES);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeAdded() {
+        for (int id = database.nextId() - 1; id > size; id--) {
+            database.deletePerson(id);
+        }
+    }
+
+    /**
+     * Every thread draws its own random numbers, a shared generator would be a point of contention itself.
+     */
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void seed() {
+            random = new SplittableRandom(Datasets.SEED + Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public Person readMostlyFindById(ThreadRandom thread) {
+        return database.findById(1 + thread.random.nextInt(size));
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public boolean readMostlyEdit(ThreadRandom thread) {
+        int id = 1 + thread.random.nextInt(size);
+        return database.editPerson(id, Datasets.name(thread.random), Datasets.name(thread.random), "987654321");
+    }
+
+    @Benchmark
+    @Group("searchWhileWriting")
+    @GroupThreads(2)
+    public Collection<Person> searchWhileWritingSearch(ThreadRandom thread) {
+        return database.findSpecificPerson(queries[thread.random.nextInt(QUERIES)]);
+    }
+
+    @Benchmark
+    @Group("searchWhileWriting")
+    @GroupThreads(2)
+    public int searchWhileWritingAdd(ThreadRandom thread) {
+        return database.addPerson(Datasets.name(thread.random), Datasets.name(thread.random), "123456789", 42);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int addPersonContended() {
+        return database.addPerson("Benchmark", "Person", "123456789", 42);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean editPersonContended(ThreadRandom thread) {
+        int id = 1 + thread.random.nextInt(size);
+        return database.editPerson(id, Datasets.name(thread.random), Datasets.name(thread.random), "987654321");
+    }
+}
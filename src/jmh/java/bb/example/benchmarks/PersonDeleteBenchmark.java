@@ -0,0 +1,65 @@
+package bb.example.benchmarks;
+
+import bb.example.PersonDatabase;
+import bb.example.PersonDetails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleting is destructive, so each iteration adds a fresh batch of persons and measures deleting exactly that batch.
+ * The reported time is for the whole batch of {@value #BATCH} deletions.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = PersonDeleteBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = PersonDeleteBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PersonDeleteBenchmark {
+    static final int BATCH = 10_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    private PersonDatabase database;
+    private int[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        database = Datasets.database(size);
+    }
+
+    @Setup(Level.Iteration)
+    public void addBatch() {
+        SplittableRandom random = new SplittableRandom(Datasets.SEED + 2);
+        List<PersonDetails> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(Datasets.details(random));
+        }
+        ids = database.addPersons(batch);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean deletePerson() {
+        return database.deletePerson(ids[next++]);
+    }
+}
@@ -0,0 +1,68 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.storage.ParallelScanner;
+import bb.example.storage.PersonStore;
+import bb.example.storage.SkipListPersonStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compares a scan of the whole store by the calling thread with the scan split into chunks of the common fork-join
+ * pool. The speedup depends on the number of cores, run it with {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism}
+ * to measure fewer of them.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx12g")
+public class ScanBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private PersonStore store;
+    private ParallelScanner sequential;
+    private ParallelScanner parallel;
+    private Predicate<Person> condition;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        store = new SkipListPersonStore();
+        for (Person person : Datasets.persons(size)) {
+            store.put(person);
+        }
+        sequential = new ParallelScanner(store, ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        parallel = new ParallelScanner(store, ForkJoinPool.commonPool(), ParallelScanner.DEFAULT_PARALLEL_THRESHOLD);
+        String query = Datasets.queries(1)[0];
+        condition = person -> person.name().contains(query) || person.surname().contains(query);
+    }
+
+    @Benchmark
+    public List<Person> sequentialScan() {
+        return sequential.filter(size + 1, condition);
+    }
+
+    @Benchmark
+    public List<Person> parallelScan() {
+        return parallel.filter(size + 1, condition);
+    }
+}
@@ -0,0 +1,80 @@
+package bb.example.benchmarks;
+
+import bb.example.PersonDatabase;
+import bb.example.persistence.SnapshotFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures writing a snapshot and restoring the database from it. The restore includes building the store and the
+ * indexes, reading alone shows the time spent in the file itself.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class SnapshotBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private PersonDatabase database;
+    private Path directory;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void populate() throws IOException {
+        database = Datasets.database(size);
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        snapshot = directory.resolve("snapshot");
+        SnapshotFile.write(snapshot, database, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        SnapshotFile.write(snapshot, database, 0);
+        return snapshot;
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long[] count = new long[1];
+        SnapshotFile.read(snapshot, batch -> count[0] += batch.size());
+        return count[0];
+    }
+
+    @Benchmark
+    public PersonDatabase load() throws IOException {
+        PersonDatabase restored = new PersonDatabase();
+        SnapshotFile.load(snapshot, restored);
+        return restored;
+    }
+}
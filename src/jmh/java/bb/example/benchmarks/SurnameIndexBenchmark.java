@@ -0,0 +1,75 @@
+package bb.example.benchmarks;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.PersonPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alphabetical listing and prefix search through the surname index compared with scanning the whole database when
+ * the index is not enabled.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SurnameIndexBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private PersonDatabase database;
+    private Person[] positions;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        database = Datasets.database(size);
+        if (indexed) {
+            database.enableSurnameIndex();
+        }
+        List<Person> persons = List.copyOf(database.findPersons(person -> true));
+        SplittableRandom random = new SplittableRandom(Datasets.SEED + 3);
+        positions = new Person[1024];
+        prefixes = new String[1024];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = persons.get(random.nextInt(persons.size()));
+            prefixes[i] = positions[i].surname().substring(0, Math.min(4, positions[i].surname().length()));
+        }
+    }
+
+    @Benchmark
+    public PersonPage page() {
+        return database.listPersonsBySurname(positions[next++ & (positions.length - 1)], PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Collection<Person> prefix() {
+        return database.findBySurnamePrefix(prefixes[next++ & (prefixes.length - 1)]);
+    }
+}
@@ -0,0 +1,72 @@
+package bb.example.benchmarks;
+
+import bb.example.services.FieldValidator;
+import bb.example.services.ValidationError;
+import bb.example.services.Validators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating one field, for a valid input and for an input rejected by its last character, and of validating
+ * all fields of a person.
+ *
+ * @author pollib
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorsBenchmark {
+    // Fields are not final, so the JIT cannot fold the results into constants
+    public String phone = "123456789";
+    public String invalidPhone = "12345678x";
+    public String name = "Jean-Pierre";
+    public String invalidName = "Jean-Pierre1";
+    public int age = 42;
+    public String ageText = "42";
+    public String surname = "Van Dyke";
+
+    @Benchmark
+    public boolean isValidNumber() {
+        return Validators.isValidNumber(phone);
+    }
+
+    @Benchmark
+    public boolean isValidNumberRejected() {
+        return Validators.isValidNumber(invalidPhone);
+    }
+
+    @Benchmark
+    public boolean doesContainChar() {
+        return Validators.doesContainChar(name);
+    }
+
+    @Benchmark
+    public boolean doesContainCharRejected() {
+        return Validators.doesContainChar(invalidName);
+    }
+
+    @Benchmark
+    public boolean isAgeValid() {
+        return Validators.isAgeValid(age);
+    }
+
+    /**
+     * All fields of a person at once, the path of the import and the batch commands.
+     */
+    @Benchmark
+    public ValidationError checkPerson() {
+        return FieldValidator.checkPerson(name, surname, phone, ageText);
+    }
+}
@@ -0,0 +1,25 @@
+package bb.example;
+
+/**
+ * Thrown when a change would store a second person with the same name, surname and phone number and the duplicates
+ * are rejected.
+ *
+ * @author pollib
+ */
+public class DuplicatePersonException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final int existingId;
+
+    public DuplicatePersonException(int existingId) {
+        super("The same person is already recorded under ID " + existingId);
+        this.existingId = existingId;
+    }
+
+    /**
+     * @return the ID of the person already stored
+     */
+    public int existingId() {
+        return existingId;
+    }
+}
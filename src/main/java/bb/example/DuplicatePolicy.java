@@ -0,0 +1,24 @@
+package bb.example;
+
+/**
+ * What the database does when a person is added or edited to the same name, surname and phone number as a person
+ * already stored, see {@link PersonDatabase#enableDuplicateDetection(DuplicatePolicy)}.
+ *
+ * @author pollib
+ */
+public enum DuplicatePolicy {
+    /**
+     * The person is not stored, a {@link DuplicatePersonException} is thrown.
+     */
+    REJECT,
+    /**
+     * The person is stored anyway, the duplicate can be found by {@link PersonDatabase#findDuplicate} and in the
+     * duplicate report.
+     */
+    WARN,
+    /**
+     * An added person is merged into the stored one, which is kept unchanged and whose ID is returned. Two stored
+     * persons are never merged implicitly, so an edit is rejected like with {@link #REJECT}.
+     */
+    MERGE
+}
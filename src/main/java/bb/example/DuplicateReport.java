@@ -0,0 +1,63 @@
+package bb.example;
+
+import bb.example.index.DuplicateIndex;
+import bb.example.index.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Groups of persons with the same name, surname and phone number, compared like in {@link DuplicateIndex}.
+ *
+ * @param scanned number of persons checked
+ * @param groups  groups of at least two persons ordered by ID, ordered by the ID of their first person
+ */
+public record DuplicateReport(long scanned, List<List<Person>> groups) {
+
+    /**
+     * Finds the duplicates in one pass, the first person of every key is remembered only by its ID and looked up
+     * again when a second person with the key is found.
+     *
+     * @param persons persons ordered by ID
+     * @param lookup  finds a person of the iterated persons by ID
+     */
+    public static DuplicateReport of(Iterable<Person> persons, IntFunction<Person> lookup) {
+        LongIntHashMap firstIds = new LongIntHashMap();
+        LongIntHashMap groupNumbers = new LongIntHashMap();
+        List<List<Person>> groups = new ArrayList<>();
+        long scanned = 0;
+        for (Person person : persons) {
+            scanned++;
+            long key = DuplicateIndex.keyOf(person.name(), person.surname(), person.phone());
+            int firstId = firstIds.get(key);
+            if (firstId == LongIntHashMap.MISSING) {
+                firstIds.put(key, person.id());
+                continue;
+            }
+            int groupNumber = groupNumbers.get(key);
+            if (groupNumber == LongIntHashMap.MISSING) {
+                List<Person> group = new ArrayList<>();
+                group.add(lookup.apply(firstId));
+                groups.add(group);
+                groupNumber = groups.size();
+                groupNumbers.put(key, groupNumber);
+            }
+            groups.get(groupNumber - 1).add(person);
+        }
+        groups.sort(Comparator.comparingInt(group -> group.get(0).id()));
+        return new DuplicateReport(scanned, groups);
+    }
+
+    /**
+     * @return number of persons which duplicate the first person of their group
+     */
+    public long duplicates() {
+        long duplicates = 0;
+        for (List<Person> group : groups) {
+            duplicates += group.size() - 1;
+        }
+        return duplicates;
+    }
+}
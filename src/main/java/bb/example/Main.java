@@ -1,18 +1,85 @@
 package bb.example;
 
+import bb.example.persistence.WriteAheadLog;
+import bb.example.services.batch.BatchProcessor;
+import bb.example.services.batch.BatchSummary;
+import bb.example.services.transfer.ExportService;
+import bb.example.storage.ColumnarPersonStore;
+import bb.example.storage.SkipListPersonStore;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 /**
  * @author pollib
  */
 public class Main {
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-        UserInterface userInterface = new UserInterface(new PersonDatabase(), scanner::nextLine, System.out::println);
+    public static void main(String[] args) throws IOException {
+        // The compact columnar store can be chosen for large databases with -Dinsured.store=columnar
+        boolean columnar = "columnar".equals(System.getProperty("insured.store"));
+        PersonDatabase database = new PersonDatabase(columnar ? new ColumnarPersonStore() : new SkipListPersonStore());
+        // Searches ignoring letter case and diacritics are enabled with -Dinsured.search=normalized, searches tolerating
+        // typos with -Dinsured.search=fuzzy, the sorted surname index with -Dinsured.search=surname, several of them
+        // separated by commas, e.g. -Dinsured.search=normalized,fuzzy
+        List<String> searchModes = List.of(System.getProperty("insured.search", "").split(","));
+        if (searchModes.contains("normalized")) {
+            database.enableNormalizedSearch();
+        }
+        if (searchModes.contains("fuzzy")) {
+            database.enableFuzzySearch();
+        }
+        if (searchModes.contains("surname")) {
+            database.enableSurnameIndex();
+        }
+        // Persons with the same name, surname and phone are detected with -Dinsured.duplicates=reject, warn or merge
+        String duplicates = System.getProperty("insured.duplicates");
+        if (duplicates != null) {
+            database.enableDuplicateDetection(DuplicatePolicy.valueOf(duplicates.toUpperCase(Locale.ROOT)));
+        }
+        Path dataDirectory = Path.of(System.getProperty("insured.data.dir", System.getProperty("user.home") + "/.insured-evidence"));
+
+        // The database is rebuilt from the last snapshot and the log, every change is logged until the program ends
+        try (WriteAheadLog log = WriteAheadLog.open(dataDirectory, database)) {
+            if (args.length > 0 && args[0].equals("--batch")) {
+                runBatch(database, log, args.length > 1 ? Path.of(args[1]) : null);
+                return;
+            }
+
+            Scanner scanner = new Scanner(System.in);
+            try (ExportService exportService = new ExportService(database)) {
+                UserInterface userInterface = new UserInterface(database, scanner::nextLine, System.out::println, exportService);
+
+                /* Start of the user session loop
+                   The user selects a command by entering a number
+                 */
+                userInterface.menuSelectionLoop(scanner::nextLine, System.out::println);
+            }
+        }
+    }
 
-            /* Start of the user session loop
-               The user selects a command by entering a number
-             */
-        userInterface.menuSelectionLoop(scanner::nextLine, System.out::println);
+    /**
+     * Executes commands from the file, or from the standard input when no file is given, without any prompts.
+     * The results are written to the standard output, the summary to the standard error.
+     */
+    private static void runBatch(PersonDatabase database, WriteAheadLog log, Path script) throws IOException {
+        try (BufferedReader reader = script == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            log.setDeferredSync(true);
+            BatchSummary summary = new BatchProcessor(database, log).run(reader, output);
+            log.setDeferredSync(false);
+            System.err.println("Commands executed: " + summary.commands() + ", failed: " + summary.failed());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package bb.example;
+
+/**
+ * A single modification of the database. Added persons have no before image, deleted persons have no after image.
+ *
+ * @author pollib
+ */
+public record PersonChange(Type type, Person before, Person after) {
+
+    public enum Type {
+        ADD, EDIT, DELETE
+    }
+
+    public static PersonChange added(Person person) {
+        return new PersonChange(Type.ADD, null, person);
+    }
+
+    public static PersonChange edited(Person before, Person after) {
+        return new PersonChange(Type.EDIT, before, after);
+    }
+
+    public static PersonChange deleted(Person person) {
+        return new PersonChange(Type.DELETE, person, null);
+    }
+
+    /**
+     * @return the ID of the changed person
+     */
+    public int id() {
+        return after != null ? after.id() : before.id();
+    }
+}
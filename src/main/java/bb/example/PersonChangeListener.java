@@ -0,0 +1,26 @@
+package bb.example;
+
+import java.util.List;
+
+/**
+ * Receives every change made through the public write methods of {@link PersonDatabase}. The listener is called
+ * after the change was applied, while the writer still holds the lock of the changed ID, so changes of one person
+ * are always delivered in the order they happened.
+ *
+ * @author pollib
+ */
+@FunctionalInterface
+public interface PersonChangeListener {
+    void onChange(PersonChange change);
+
+    /**
+     * Receives changes made by one batch operation, by default they are handled one by one.
+     *
+     * @param changes changes in the order they were applied
+     */
+    default void onChanges(List<PersonChange> changes) {
+        for (PersonChange change : changes) {
+            onChange(change);
+        }
+    }
+}
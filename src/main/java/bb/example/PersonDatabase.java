@@ -1,51 +1,642 @@
 package bb.example;
 
+import bb.example.cache.CacheStats;
+import bb.example.cache.SearchCache;
+import bb.example.index.AgeIndex;
+import bb.example.index.DuplicateIndex;
+import bb.example.index.FuzzyIndex;
+import bb.example.index.NGramIndex;
+import bb.example.index.PhoneIndex;
+import bb.example.index.SurnameIndex;
+import bb.example.index.TextNormalizer;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.metrics.Operation;
+import bb.example.storage.ParallelScanner;
+import bb.example.storage.PersonHistory;
+import bb.example.storage.PersonSnapshot;
+import bb.example.storage.PersonStore;
+import bb.example.storage.SkipListPersonStore;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * A database for searching and storing insured individuals.
+ * <p>
+ * The database is safe for concurrent use. IDs are allocated without locking and writers only synchronize with other
+ * writers of the same ID. Persons are kept in a {@link PersonStore}, by default in a concurrent skip list where reads
+ * never block, or in a compact columnar store when memory matters more.
+ * <p>
+ * Searches by name are case and accent sensitive unless the normalized search is enabled by
+ * {@link #enableNormalizedSearch()}. Names with typos are found by {@link #findSimilarPersons} once the fuzzy search
+ * is enabled by {@link #enableFuzzySearch()}. Listings by surname are read from a sorted index once it is enabled by
+ * {@link #enableSurnameIndex()}, otherwise the database is scanned.
+ * <p>
+ * Persons with the same name, surname and phone number are stored as separate records unless the duplicate detection
+ * is enabled by {@link #enableDuplicateDetection(DuplicatePolicy)}.
+ * <p>
+ * Search results are cached. Every change outdates the cached results of the queries which could find the changed
+ * persons after it was applied, so a search never misses a completed change while unrelated changes keep the result.
+ * <p>
+ * Calls, processed records and latencies of the operations are counted in {@link DatabaseMetrics}.
  *
  * @author pollib
  */
 public class PersonDatabase {
-    private final SortedMap<Integer, Person> personsMap;
+    /**
+     * The ID returned by {@link #addPersons} for a person which was rejected as a duplicate.
+     */
+    public static final int REJECTED = 0;
+
+    private static final int WRITE_LOCK_STRIPES = 64;
+    private static final long SEARCH_CACHE_WEIGHT = 100_000;
+    private static final Comparator<Person> SURNAME_ORDER = (person, other) -> SurnameIndex.compare(
+            person.surname(), person.name(), person.id(), other.surname(), other.name(), other.id());
 
-    private int nextId = 1;
+    private final PersonStore store;
+    private final NGramIndex nameIndex = new NGramIndex();
+    private final PhoneIndex phoneIndex = new PhoneIndex();
+    private final AgeIndex ageIndex = new AgeIndex();
+    private final SurnameIndex surnameIndex = new SurnameIndex();
+    private final NGramIndex normalizedNameIndex = new NGramIndex();
+    private final Map<Integer, String[]> normalizedNames = new ConcurrentHashMap<>();
+    private volatile boolean normalizedSearch;
+    private final FuzzyIndex fuzzyIndex = new FuzzyIndex();
+    private volatile boolean fuzzySearch;
+    private volatile boolean surnameIndexed;
+    private final DuplicateIndex duplicateIndex = new DuplicateIndex();
+    private volatile DuplicatePolicy duplicatePolicy;
+    private final ReentrantLock[] writeLocks = new ReentrantLock[WRITE_LOCK_STRIPES];
+    private final List<PersonChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final DatabaseMetrics metrics;
+
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final SearchCache searchCache = new SearchCache(SEARCH_CACHE_WEIGHT);
+    private final ParallelScanner scanner;
+    private final PersonHistory history;
 
     public PersonDatabase() {
-        personsMap = Collections.synchronizedSortedMap(new TreeMap<>());
+        this(new SkipListPersonStore());
+    }
+
+    /**
+     * @param store an empty store where the persons will be kept
+     */
+    public PersonDatabase(PersonStore store) {
+        this(store, new DatabaseMetrics());
+    }
+
+    /**
+     * @param store   an empty store where the persons will be kept
+     * @param metrics where the operations are measured, {@link DatabaseMetrics#disabled()} to measure nothing
+     */
+    public PersonDatabase(PersonStore store, DatabaseMetrics metrics) {
+        this.store = store;
+        this.metrics = metrics;
+        this.scanner = new ParallelScanner(store);
+        this.history = new PersonHistory(store, WRITE_LOCK_STRIPES);
+        for (int i = 0; i < WRITE_LOCK_STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
     }
 
     /**
      * Adding a new insured individual into the database. Each new initialization increases the ID.
+     *
+     * @return the ID assigned to the new person, or the ID of the stored person it was merged into
+     * @throws DuplicatePersonException when the person is a duplicate and the duplicates are rejected
      */
-    public void addPerson(String name, String surname, String phone, int age) {
-        Person newPerson = new Person(nextId++, name, surname, phone, age);
-        personsMap.put(newPerson.id(), newPerson);
+    public int addPerson(String name, String surname, String phone, int age) {
+        long start = metrics.start();
+        Person newPerson = new Person(nextId.getAndIncrement(), name, surname, phone, age);
+        DuplicatePolicy policy;
+        int duplicateId = DuplicateIndex.MISSING;
+        ReentrantLock lock = lockFor(newPerson.id());
+        lock.lock();
+        try {
+            policy = duplicatePolicy;
+            if (policy != null) {
+                duplicateId = claimDuplicateKey(duplicateKeyOf(newPerson), newPerson.id(), policy);
+            }
+            if (duplicateId == DuplicateIndex.MISSING) {
+                nameIndex.add(newPerson.id(), name, surname);
+                indexDetails(newPerson);
+                storePerson(null, newPerson);
+                searchCache.invalidate(newPerson);
+                publish(PersonChange.added(newPerson));
+            }
+        } finally {
+            lock.unlock();
+        }
+        metrics.record(Operation.ADD, start, duplicateId == DuplicateIndex.MISSING ? 1 : 0);
+        if (duplicateId == DuplicateIndex.MISSING) {
+            return newPerson.id();
+        }
+        if (policy == DuplicatePolicy.MERGE) {
+            return duplicateId;
+        }
+        throw new DuplicatePersonException(duplicateId);
     }
 
     /**
-     * Collects every person in the database.
+     * Adds many insured individuals at once. A contiguous block of IDs is reserved in one step and the whole batch
+     * is applied in a single critical section, the listeners receive the changes as one batch. Duplicates are
+     * checked against the stored persons and the earlier persons of the batch.
      *
-     * @return Unmodifiable collection of persons
+     * @param persons details of the persons to be added
+     * @return IDs assigned to the persons, in the order of the given collection; the ID of the person a duplicate
+     * was merged into, or {@link #REJECTED} for a rejected duplicate
+     */
+    public int[] addPersons(Collection<PersonDetails> persons) {
+        int count = persons.size();
+        if (count == 0) {
+            return new int[0];
+        }
+        long start = metrics.start();
+        int firstId = nextId.getAndAdd(count);
+        int[] ids = new int[count];
+        String[][] names = new String[count][];
+        List<PersonChange> changes = new ArrayList<>(count);
+        int i = 0;
+        for (PersonDetails details : persons) {
+            Person person = new Person(firstId + i, details.name(), details.surname(), details.phone(), details.age());
+            ids[i] = person.id();
+            names[i] = new String[]{person.name(), person.surname()};
+            changes.add(PersonChange.added(person));
+            i++;
+        }
+
+        long stripes = stripeMaskOf(ids);
+        List<ReentrantLock> locks = lockAll(ids);
+        int storedCount;
+        try {
+            DuplicatePolicy policy = duplicatePolicy;
+            List<PersonChange> stored = policy == null ? changes : claimDuplicateKeys(changes, ids, policy);
+            int[] storedIds = ids;
+            if (stored != changes) {
+                storedIds = new int[stored.size()];
+                names = new String[stored.size()][];
+                for (int j = 0; j < storedIds.length; j++) {
+                    Person person = stored.get(j).after();
+                    storedIds[j] = person.id();
+                    names[j] = new String[]{person.name(), person.surname()};
+                }
+            }
+            long commitVersion = history.beginWrite(stripes);
+            try {
+                nameIndex.addAll(storedIds, names);
+                for (PersonChange change : stored) {
+                    indexDetails(change.after());
+                    history.recordBefore(change.id(), null, commitVersion);
+                    store.put(change.after());
+                }
+            } finally {
+                history.endWrite(stripes);
+            }
+            for (PersonChange change : stored) {
+                searchCache.invalidate(change.after());
+            }
+            publish(stored);
+            storedCount = stored.size();
+        } finally {
+            unlockAll(locks);
+        }
+        metrics.record(Operation.ADD_BATCH, start, storedCount);
+        return ids;
+    }
+
+    /**
+     * Collects every person in the database. The collection is a live view, iterating it never throws
+     * ConcurrentModificationException but it may reflect changes made during the iteration, {@link #snapshot()}
+     * gives the state at a single point in time.
+     *
+     * @return Unmodifiable collection of persons ordered by ID
      */
     public Collection<Person> listOfAllPersons() {
-        return Collections.unmodifiableCollection(personsMap.values());
+        return store.values();
+    }
+
+    /**
+     * Takes a point-in-time view of the database in constant time, writers are not blocked while it is read.
+     * It must not be called from a {@link PersonChangeListener}, the snapshot waits for the change being published.
+     *
+     * @return the snapshot, it has to be closed when it is no longer read
+     */
+    public PersonSnapshot snapshot() {
+        return history.snapshot();
     }
 
     /**
-     * Looks up the insured individual by the name or part of it.
+     * Reads one page of persons ordered by ID, a listing goes through the database page by page without copying
+     * all persons at once.
+     *
+     * @param afterId  the last ID of the previous page, 0 for the first page
+     * @param pageSize maximal number of persons on the page
+     * @return persons with an ID greater than afterId
+     */
+    public PersonPage listPersons(int afterId, int pageSize) {
+        long start = metrics.start();
+        List<Person> persons = store.page(afterId, pageSize + 1);
+        boolean hasMore = persons.size() > pageSize;
+        PersonPage page = new PersonPage(hasMore ? persons.subList(0, pageSize) : persons, hasMore);
+        metrics.record(Operation.LIST_PAGE, start, page.persons().size());
+        return page;
+    }
+
+    /**
+     * Reads one page of persons in alphabetical order by surname, name and ID, letter case and diacritics are ignored.
+     * The next page is requested with the last person of this page, the page starts right after its position. With
+     * the surname index enabled the page is read from the index, otherwise the whole database is scanned for the
+     * persons following the position.
+     *
+     * @param after    the last person of the previous page, null for the first page
+     * @param pageSize maximal number of persons on the page
+     * @return persons following the given one in alphabetical order
+     */
+    public PersonPage listPersonsBySurname(Person after, int pageSize) {
+        long start = metrics.start();
+        Predicate<Person> following = person -> after == null || SURNAME_ORDER.compare(person, after) > 0;
+        List<Person> persons;
+        boolean hasMore;
+        if (surnameIndexed) {
+            int[] ids = after == null ? surnameIndex.page(null, null, 0, pageSize + 1)
+                    : surnameIndex.page(after.surname(), after.name(), after.id(), pageSize + 1);
+            persons = resolve(ids, following);
+            hasMore = ids.length > pageSize;
+        } else {
+            persons = firstInSurnameOrder(following, pageSize + 1);
+            hasMore = persons.size() > pageSize;
+        }
+        PersonPage page = new PersonPage(persons.size() > pageSize ? persons.subList(0, pageSize) : persons, hasMore);
+        metrics.record(Operation.LIST_PAGE, start, page.persons().size());
+        return page;
+    }
+
+    /**
+     * Keeps the first persons in alphabetical order in a bounded heap while the store is scanned, so the whole
+     * database is neither copied nor sorted.
+     */
+    private List<Person> firstInSurnameOrder(Predicate<Person> condition, int limit) {
+        PriorityQueue<Person> first = new PriorityQueue<>(limit, SURNAME_ORDER.reversed());
+        for (Person person : store.values()) {
+            if (condition.test(person)) {
+                if (first.size() < limit) {
+                    first.add(person);
+                } else if (SURNAME_ORDER.compare(person, first.peek()) < 0) {
+                    first.poll();
+                    first.add(person);
+                }
+            }
+        }
+        List<Person> persons = new ArrayList<>(first);
+        persons.sort(SURNAME_ORDER);
+        return persons;
+    }
+
+    /**
+     * Looks up the insured individuals whose surname starts with the given letters, letter case and diacritics are
+     * ignored. With the surname index enabled the persons are read from it, so the time depends only on the number
+     * of found persons, otherwise the database is scanned and the found persons are sorted.
+     *
+     * @param prefix the first letters of the surname
+     * @return List of found persons ordered by surname, name and ID
+     */
+    public Collection<Person> findBySurnamePrefix(String prefix) {
+        long start = metrics.start();
+        String key = SurnameIndex.keyOf(prefix);
+        Predicate<Person> condition = person -> SurnameIndex.keyOf(person.surname()).startsWith(key);
+        Collection<Person> persons = surnameIndexed ? resolve(surnameIndex.findByPrefix(prefix), condition)
+                : scanInSurnameOrder(condition);
+        metrics.record(Operation.SURNAME_SEARCH, start, persons.size());
+        return persons;
+    }
+
+    /**
+     * Looks up the insured individuals with a surname within the alphabetical range, letter case and diacritics are
+     * ignored. The surname index is used when it is enabled like in {@link #findBySurnamePrefix}.
+     *
+     * @param from the lowest surname, inclusive
+     * @param to   the highest surname, exclusive
+     * @return List of found persons ordered by surname, name and ID
+     */
+    public Collection<Person> findBySurnameRange(String from, String to) {
+        long start = metrics.start();
+        String fromKey = SurnameIndex.keyOf(from);
+        String toKey = SurnameIndex.keyOf(to);
+        Predicate<Person> condition = person -> {
+            String key = SurnameIndex.keyOf(person.surname());
+            return key.compareTo(fromKey) >= 0 && key.compareTo(toKey) < 0;
+        };
+        Collection<Person> persons = surnameIndexed ? resolve(surnameIndex.findRange(from, to), condition)
+                : scanInSurnameOrder(condition);
+        metrics.record(Operation.SURNAME_SEARCH, start, persons.size());
+        return persons;
+    }
+
+    private List<Person> scanInSurnameOrder(Predicate<Person> condition) {
+        List<Person> persons = new ArrayList<>(scanner.filter(nextId.get(), condition));
+        persons.sort(SURNAME_ORDER);
+        return persons;
+    }
+
+    /**
+     * Looks up the insured individual by the name or part of it. The trigram index narrows the search to candidate IDs,
+     * only those are compared with the name and surname. With the normalized search enabled the letter case and
+     * diacritics are ignored, "novak" finds "Novák".
      *
      * @param inputName a name or part of name to be asked for
-     * @return LinkedHashMap of searched persons
+     * @return List of searched persons ordered by ID
      */
     public Collection<Person> findSpecificPerson(String inputName) {
-        return personsMap.values().stream()
-                .filter(person -> person.name().contains(inputName) || person.surname().contains(inputName))
-                .toList();
+        long start = metrics.start();
+        // The stamp is read before the search, a change completed meanwhile makes the cached result outdated
+        long stamp = searchCache.stampOf(inputName);
+        Collection<Person> persons = searchCache.get(inputName, stamp);
+        if (persons == null) {
+            persons = normalizedSearch ? searchByNormalizedName(inputName) : searchByName(inputName);
+            searchCache.put(inputName, stamp, persons);
+        }
+        metrics.record(Operation.SEARCH, start, persons.size());
+        return persons;
+    }
+
+    private Collection<Person> searchByName(String inputName) {
+        int[] candidateIds = nameIndex.candidates(inputName);
+        if (candidateIds == null) {
+            return scanner.filter(nextId.get(), person -> matchesName(person, inputName));
+        }
+        return resolve(candidateIds, person -> matchesName(person, inputName));
+    }
+
+    /**
+     * Looks up the insured individuals with exactly the given phone number.
+     *
+     * @param phone a phone number of 9 digits
+     * @return List of persons with the phone number ordered by ID
+     */
+    public Collection<Person> findByPhone(String phone) {
+        long start = metrics.start();
+        Collection<Person> persons = resolve(phoneIndex.find(phone), person -> person.phone().equals(phone));
+        metrics.record(Operation.PHONE_SEARCH, start, persons.size());
+        return persons;
+    }
+
+    /**
+     * Looks up the insured individuals whose phone number starts with the given digits.
+     *
+     * @param prefix the first digits of a phone number
+     * @return List of persons with a matching phone number ordered by ID
+     */
+    public Collection<Person> findByPhonePrefix(String prefix) {
+        long start = metrics.start();
+        Collection<Person> persons = resolve(phoneIndex.findByPrefix(prefix), person -> person.phone().startsWith(prefix));
+        metrics.record(Operation.PHONE_SEARCH, start, persons.size());
+        return persons;
+    }
+
+    /**
+     * Looks up the insured individuals of age within the range, the time depends only on the number of found persons.
+     *
+     * @param minAge the lowest age, inclusive
+     * @param maxAge the highest age, inclusive
+     * @return List of persons of age within the range ordered by ID
+     */
+    public Collection<Person> findByAgeRange(int minAge, int maxAge) {
+        long start = metrics.start();
+        Collection<Person> persons = resolve(ageIndex.find(minAge, maxAge), person -> person.age() >= minAge && person.age() <= maxAge);
+        metrics.record(Operation.AGE_QUERY, start, persons.size());
+        return persons;
+    }
+
+    /**
+     * Counts the insured individuals of age within the range without reading the persons.
+     *
+     * @param minAge the lowest age, inclusive
+     * @param maxAge the highest age, inclusive
+     * @return number of persons of age within the range
+     */
+    public long countByAgeRange(int minAge, int maxAge) {
+        long start = metrics.start();
+        long count = ageIndex.count(minAge, maxAge);
+        metrics.record(Operation.AGE_QUERY, start, count);
+        return count;
+    }
+
+    /**
+     * @return number of insured individuals of every age from 0 to 150, the index of the array is the age
+     */
+    public int[] countByAge() {
+        long start = metrics.start();
+        int[] counts = ageIndex.countByAge();
+        metrics.record(Operation.AGE_QUERY, start, counts.length);
+        return counts;
+    }
+
+    /**
+     * Reads the persons of the IDs found in an index in their order. A person modified since the index was read is
+     * checked again.
+     */
+    private List<Person> resolve(int[] ids, Predicate<Person> condition) {
+        return scanner.filter(ids, condition);
+    }
+
+    /**
+     * Looks up the insured individuals matching a condition which no index can answer. Large databases are scanned
+     * in parallel chunks.
+     *
+     * @param condition the condition of the persons to be returned
+     * @return List of matching persons ordered by ID
+     */
+    public Collection<Person> findPersons(Predicate<Person> condition) {
+        long start = metrics.start();
+        Collection<Person> persons = scanner.filter(nextId.get(), condition);
+        metrics.record(Operation.SCAN, start, persons.size());
+        return persons;
+    }
+
+    private static boolean matchesName(Person person, String inputName) {
+        return person.name().contains(inputName) || person.surname().contains(inputName);
+    }
+
+    /**
+     * The query is normalized once and compared with the keys computed when the persons were stored.
+     */
+    private Collection<Person> searchByNormalizedName(String inputName) {
+        String key = TextNormalizer.normalize(inputName);
+        int[] candidateIds = normalizedNameIndex.candidates(key);
+        if (candidateIds == null) {
+            return scanner.filter(nextId.get(), person -> matchesNormalizedName(person.id(), key));
+        }
+        return resolve(candidateIds, person -> matchesNormalizedName(person.id(), key));
+    }
+
+    private boolean matchesNormalizedName(int id, String key) {
+        String[] keys = normalizedNames.get(id);
+        return keys != null && (keys[0].contains(key) || keys[1].contains(key));
+    }
+
+    /**
+     * Turns on the search ignoring letter case and diacritics. From now on the normalized keys of the name and surname
+     * are computed whenever a person is stored, the keys of the persons already stored are computed here while all
+     * writers wait.
+     */
+    public void enableNormalizedSearch() {
+        List<ReentrantLock> locks = lockAll(IntStream.range(0, WRITE_LOCK_STRIPES).toArray());
+        try {
+            if (!normalizedSearch) {
+                for (Person person : store.values()) {
+                    indexNormalizedName(person);
+                }
+                normalizedSearch = true;
+                searchCache.invalidateAll();
+            }
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    public boolean isNormalizedSearchEnabled() {
+        return normalizedSearch;
+    }
+
+    /**
+     * Turns on the search tolerating typos in names. From now on the names and surnames are entered into the fuzzy
+     * index whenever a person is stored, the persons already stored are indexed here while all writers wait.
+     */
+    public void enableFuzzySearch() {
+        List<ReentrantLock> locks = lockAll(IntStream.range(0, WRITE_LOCK_STRIPES).toArray());
+        try {
+            if (!fuzzySearch) {
+                for (Person person : store.values()) {
+                    fuzzyIndex.add(person.id(), person.name(), person.surname());
+                }
+                fuzzySearch = true;
+            }
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    public boolean isFuzzySearchEnabled() {
+        return fuzzySearch;
+    }
+
+    /**
+     * Turns on the sorted index of surnames for the listing by surname and the surname prefix and range searches.
+     * From now on the persons are entered into the index whenever they are stored, the persons already stored are
+     * indexed here while all writers wait. The index roughly doubles the cost of adding and editing a person.
+     */
+    public void enableSurnameIndex() {
+        List<ReentrantLock> locks = lockAll(IntStream.range(0, WRITE_LOCK_STRIPES).toArray());
+        try {
+            if (!surnameIndexed) {
+                for (Person person : store.values()) {
+                    surnameIndex.add(person.id(), person.surname(), person.name());
+                }
+                surnameIndexed = true;
+            }
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    public boolean isSurnameIndexEnabled() {
+        return surnameIndexed;
+    }
+
+    /**
+     * Looks up the insured individuals whose name or surname is within the edit distance from the given name, letter
+     * case and diacritics are ignored. Only the names sharing a deletion string with the query are compared, so the
+     * time depends on the number of similar names and found persons, not on the size of the database.
+     *
+     * @param inputName   a whole name or surname, possibly mistyped
+     * @param maxDistance the highest number of typos from 0 to {@link FuzzyIndex#MAX_DISTANCE}, a typo is an inserted,
+     *                    deleted or replaced letter or a swap of two neighbouring letters
+     * @return List of found persons ordered by the distance of their closer name, then by ID
+     * @throws IllegalStateException when the fuzzy search is not enabled
+     */
+    public List<Person> findSimilarPersons(String inputName, int maxDistance) {
+        FuzzyIndex.checkDistance(maxDistance);
+        if (!fuzzySearch) {
+            throw new IllegalStateException("The fuzzy search is not enabled");
+        }
+        long start = metrics.start();
+        FuzzyIndex.Matches matches = fuzzyIndex.find(inputName, maxDistance);
+        List<Person> persons = new ArrayList<>();
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            int expected = distance;
+            // a person renamed since the index was read is kept only if its current name was found at this distance
+            persons.addAll(resolve(matches.ids(distance), person -> matches.distanceOf(person.name(), person.surname()) == expected));
+        }
+        metrics.record(Operation.FUZZY_SEARCH, start, persons.size());
+        return Collections.unmodifiableList(persons);
+    }
+
+    /**
+     * Turns on the detection of persons with the same name, surname and phone number, the names are compared ignoring
+     * letter case and diacritics. Every add and edit is then checked in constant time. The keys of the persons
+     * already stored are computed here while all writers wait, duplicates stored before are kept.
+     *
+     * @param policy what happens to a duplicate, it may be changed by calling this method again
+     */
+    public void enableDuplicateDetection(DuplicatePolicy policy) {
+        Objects.requireNonNull(policy);
+        List<ReentrantLock> locks = lockAll(IntStream.range(0, WRITE_LOCK_STRIPES).toArray());
+        try {
+            if (duplicatePolicy == null) {
+                for (Person person : store.values()) {
+                    duplicateIndex.add(duplicateKeyOf(person), person.id());
+                }
+            }
+            duplicatePolicy = policy;
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * @return the policy for duplicates, or null when the duplicate detection is not enabled
+     */
+    public DuplicatePolicy duplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    /**
+     * Looks up a stored person with the same name, surname and phone number in constant time.
+     *
+     * @return one of the persons with the same details, or null if there is none or the detection is not enabled
+     */
+    public Person findDuplicate(String name, String surname, String phone) {
+        if (duplicatePolicy == null) {
+            return null;
+        }
+        int id = duplicateIndex.find(DuplicateIndex.keyOf(name, surname, phone));
+        return id == DuplicateIndex.MISSING ? null : store.get(id);
+    }
+
+    /**
+     * Groups the persons with the same name, surname and phone number in one pass over a snapshot of the database,
+     * it does not need the duplicate detection to be enabled.
+     */
+    public DuplicateReport duplicateReport() {
+        long start = metrics.start();
+        try (PersonSnapshot snapshot = snapshot()) {
+            DuplicateReport report = DuplicateReport.of(snapshot.persons(), snapshot::findById);
+            metrics.record(Operation.DUPLICATE_REPORT, start, report.scanned());
+            return report;
+        }
     }
 
     /**
@@ -55,11 +646,39 @@ public class PersonDatabase {
      * @param newName the new name of the modifying person
      * @param newSurname the new surname of the modifying person
      * @param newPhone the new phone number of the modifying person
+     * @return true if the person was found and modified
+     * @throws DuplicatePersonException when the person would become a duplicate and the duplicates are rejected or
+     *                                  merged
      */
-    public void editPerson(int id, String newName, String newSurname, String newPhone) {
-        Person person = findById(id);
-        Person editedPerson = new Person(person.id(), newName, newSurname, newPhone, person.age());
-        personsMap.replace(person.id(), editedPerson);
+    public boolean editPerson(int id, String newName, String newSurname, String newPhone) {
+        long start = metrics.start();
+        boolean edited = false;
+        int duplicateId = DuplicateIndex.MISSING;
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Person person = store.get(id);
+            if (person != null) {
+                Person editedPerson = new Person(person.id(), newName, newSurname, newPhone, person.age());
+                duplicateId = rekeyDuplicate(person, editedPerson, duplicatePolicy);
+                if (duplicateId == DuplicateIndex.MISSING) {
+                    nameIndex.update(id, new String[]{person.name(), person.surname()}, new String[]{newName, newSurname});
+                    reindexDetails(person, editedPerson);
+                    storePerson(person, editedPerson);
+                    searchCache.invalidate(person);
+                    searchCache.invalidate(editedPerson);
+                    publish(PersonChange.edited(person, editedPerson));
+                    edited = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        metrics.record(Operation.EDIT, start, edited ? 1 : 0);
+        if (duplicateId != DuplicateIndex.MISSING) {
+            throw new DuplicatePersonException(duplicateId);
+        }
+        return edited;
     }
 
     /**
@@ -69,7 +688,206 @@ public class PersonDatabase {
      * @return true if the person was deleted
      */
     public boolean deletePerson(int inputId) {
-        return personsMap.remove(inputId) != null;
+        long start = metrics.start();
+        boolean deleted = false;
+        ReentrantLock lock = lockFor(inputId);
+        lock.lock();
+        try {
+            Person removedPerson = removeFromStore(inputId);
+            if (removedPerson != null) {
+                nameIndex.remove(inputId, removedPerson.name(), removedPerson.surname());
+                unindexDetails(removedPerson);
+                searchCache.invalidate(removedPerson);
+                publish(PersonChange.deleted(removedPerson));
+                deleted = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        metrics.record(Operation.DELETE, start, deleted ? 1 : 0);
+        return deleted;
+    }
+
+    /**
+     * Deletes many insured individuals at once in a single critical section.
+     *
+     * @param ids the IDs of the persons to be deleted
+     * @return for each given ID true if the person was deleted, false if it was not found
+     */
+    public boolean[] deletePersons(int[] ids) {
+        long start = metrics.start();
+        int deletedCount;
+        boolean[] deleted = new boolean[ids.length];
+        long stripes = stripeMaskOf(ids);
+        List<ReentrantLock> locks = lockAll(ids);
+        try {
+            List<PersonChange> changes = new ArrayList<>();
+            long commitVersion = history.beginWrite(stripes);
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    Person removedPerson = store.get(ids[i]);
+                    if (removedPerson != null) {
+                        history.recordBefore(ids[i], removedPerson, commitVersion);
+                        store.remove(ids[i]);
+                        deleted[i] = true;
+                        changes.add(PersonChange.deleted(removedPerson));
+                    }
+                }
+            } finally {
+                history.endWrite(stripes);
+            }
+            int[] removedIds = new int[changes.size()];
+            String[][] names = new String[changes.size()][];
+            for (int i = 0; i < changes.size(); i++) {
+                Person removedPerson = changes.get(i).before();
+                removedIds[i] = removedPerson.id();
+                names[i] = new String[]{removedPerson.name(), removedPerson.surname()};
+                unindexDetails(removedPerson);
+            }
+            nameIndex.removeAll(removedIds, names);
+            for (PersonChange change : changes) {
+                searchCache.invalidate(change.before());
+            }
+            publish(changes);
+            deletedCount = changes.size();
+        } finally {
+            unlockAll(locks);
+        }
+        metrics.record(Operation.DELETE_BATCH, start, deletedCount);
+        return deleted;
+    }
+
+    /**
+     * Applies a previously recorded change without notifying the listeners, used when the database is rebuilt from
+     * a snapshot or a log. Added and edited persons keep their IDs and are stored even if the ID already exists.
+     *
+     * @param change the change to be applied again
+     */
+    public void replay(PersonChange change) {
+        int id = change.id();
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Person current = store.get(id);
+            if (change.type() == PersonChange.Type.DELETE) {
+                if (current != null) {
+                    removeFromStore(id);
+                    nameIndex.remove(id, current.name(), current.surname());
+                    unindexDetails(current);
+                    searchCache.invalidate(current);
+                }
+                return;
+            }
+
+            // a recorded change is applied even if it makes a duplicate
+            Person person = change.after();
+            if (current == null) {
+                nameIndex.add(id, person.name(), person.surname());
+                indexDetails(person);
+                indexDuplicateKey(person);
+            } else {
+                nameIndex.update(id, new String[]{current.name(), current.surname()}, new String[]{person.name(), person.surname()});
+                reindexDetails(current, person);
+                rekeyDuplicate(current, person, duplicatePolicy == null ? null : DuplicatePolicy.WARN);
+            }
+            storePerson(current, person);
+            if (current != null) {
+                searchCache.invalidate(current);
+            }
+            searchCache.invalidate(person);
+            nextId.accumulateAndGet(id + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores many persons of a snapshot at once without notifying the listeners. Unlike {@link #replay} the indexes
+     * are filled in one batch, so it is only meant for persons whose IDs are not in the database yet.
+     *
+     * @param persons persons keeping their IDs
+     * @throws IllegalStateException when one of the IDs is already in the database, nothing is stored then
+     */
+    public void restore(List<Person> persons) {
+        if (persons.isEmpty()) {
+            return;
+        }
+        int[] ids = new int[persons.size()];
+        String[][] names = new String[ids.length][];
+        int maxId = 0;
+        for (int i = 0; i < ids.length; i++) {
+            Person person = persons.get(i);
+            ids[i] = person.id();
+            names[i] = new String[]{person.name(), person.surname()};
+            maxId = Math.max(maxId, person.id());
+        }
+
+        long stripes = stripeMaskOf(ids);
+        List<ReentrantLock> locks = lockAll(ids);
+        try {
+            for (int id : ids) {
+                if (store.get(id) != null) {
+                    throw new IllegalStateException("Person " + id + " is already in the database");
+                }
+            }
+            nameIndex.addAll(ids, names);
+            long commitVersion = history.beginWrite(stripes);
+            try {
+                for (Person person : persons) {
+                    indexDetails(person);
+                    indexDuplicateKey(person);
+                    history.recordBefore(person.id(), null, commitVersion);
+                    store.put(person);
+                }
+            } finally {
+                history.endWrite(stripes);
+            }
+            for (Person person : persons) {
+                searchCache.invalidate(person);
+            }
+            nextId.accumulateAndGet(maxId + 1, Math::max);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * @return the ID which will be assigned to the next added person
+     */
+    public int nextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Makes sure no ID lower than the given one will be assigned again, even if the persons holding them were deleted.
+     *
+     * @param minimum the lowest ID which may be assigned next
+     */
+    public void advanceNextId(int minimum) {
+        nextId.accumulateAndGet(minimum, Math::max);
+    }
+
+    public void addChangeListener(PersonChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(PersonChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void publish(PersonChange change) {
+        for (PersonChangeListener listener : changeListeners) {
+            listener.onChange(change);
+        }
+    }
+
+    private void publish(List<PersonChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        for (PersonChangeListener listener : changeListeners) {
+            listener.onChanges(changes);
+        }
     }
 
     /**
@@ -79,6 +897,228 @@ public class PersonDatabase {
      * @return the person with given ID or (returns null if not found)
      */
     public Person findById(int id) {
-        return personsMap.get(id);
+        long start = metrics.start();
+        Person person = store.get(id);
+        metrics.record(Operation.FIND_BY_ID, start, person == null ? 0 : 1);
+        return person;
+    }
+
+    /**
+     * @return hits, misses and size of the cache of search results
+     */
+    public CacheStats searchCacheStats() {
+        return searchCache.stats();
+    }
+
+    /**
+     * @return counters and latencies of the operations of this database
+     */
+    public DatabaseMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds a person into the secondary indexes, called with the lock of the ID held.
+     */
+    private void indexDetails(Person person) {
+        phoneIndex.add(person.id(), person.phone());
+        ageIndex.add(person.id(), person.age());
+        if (surnameIndexed) {
+            surnameIndex.add(person.id(), person.surname(), person.name());
+        }
+        if (normalizedSearch) {
+            indexNormalizedName(person);
+        }
+        if (fuzzySearch) {
+            fuzzyIndex.add(person.id(), person.name(), person.surname());
+        }
+    }
+
+    private void unindexDetails(Person person) {
+        phoneIndex.remove(person.id(), person.phone());
+        ageIndex.remove(person.id(), person.age());
+        if (surnameIndexed) {
+            surnameIndex.remove(person.id(), person.surname(), person.name());
+        }
+        if (duplicatePolicy != null) {
+            duplicateIndex.remove(duplicateKeyOf(person), person.id());
+        }
+        if (fuzzySearch) {
+            fuzzyIndex.remove(person.id(), person.name(), person.surname());
+        }
+        String[] keys = normalizedNames.remove(person.id());
+        if (keys != null) {
+            normalizedNameIndex.remove(person.id(), keys);
+        }
+    }
+
+    private void reindexDetails(Person before, Person after) {
+        phoneIndex.update(after.id(), before.phone(), after.phone());
+        ageIndex.update(after.id(), before.age(), after.age());
+        boolean renamed = !(before.name().equals(after.name()) && before.surname().equals(after.surname()));
+        if (surnameIndexed && renamed) {
+            surnameIndex.update(after.id(), before.surname(), before.name(), after.surname(), after.name());
+        }
+        if (fuzzySearch && renamed) {
+            fuzzyIndex.update(after.id(), new String[]{before.name(), before.surname()}, new String[]{after.name(), after.surname()});
+        }
+        String[] oldKeys = normalizedNames.get(after.id());
+        if (oldKeys != null && renamed) {
+            String[] newKeys = {TextNormalizer.normalize(after.name()), TextNormalizer.normalize(after.surname())};
+            normalizedNameIndex.update(after.id(), oldKeys, newKeys);
+            normalizedNames.put(after.id(), newKeys);
+        }
+    }
+
+    private void indexNormalizedName(Person person) {
+        String[] keys = {TextNormalizer.normalize(person.name()), TextNormalizer.normalize(person.surname())};
+        normalizedNames.put(person.id(), keys);
+        normalizedNameIndex.add(person.id(), keys);
+    }
+
+    private static long duplicateKeyOf(Person person) {
+        return DuplicateIndex.keyOf(person.name(), person.surname(), person.phone());
+    }
+
+    /**
+     * Enters the ID under the duplicate key, called with the lock of the ID held.
+     *
+     * @return the ID of a stored person with the key when the person must not be stored, otherwise
+     * {@link DuplicateIndex#MISSING}
+     */
+    private int claimDuplicateKey(long key, int id, DuplicatePolicy policy) {
+        if (policy == DuplicatePolicy.WARN) {
+            duplicateIndex.add(key, id);
+            return DuplicateIndex.MISSING;
+        }
+        return duplicateIndex.claim(key, id);
+    }
+
+    /**
+     * Claims the duplicate keys of a batch of added persons, called with the locks of their IDs held.
+     *
+     * @return the changes of the persons to be stored, the IDs of the other persons are replaced by the IDs they were
+     * merged into or by {@link #REJECTED}
+     */
+    private List<PersonChange> claimDuplicateKeys(List<PersonChange> changes, int[] ids, DuplicatePolicy policy) {
+        List<PersonChange> stored = changes;
+        for (int i = 0; i < changes.size(); i++) {
+            Person person = changes.get(i).after();
+            int duplicateId = claimDuplicateKey(duplicateKeyOf(person), person.id(), policy);
+            if (duplicateId != DuplicateIndex.MISSING) {
+                if (stored == changes) {
+                    stored = new ArrayList<>(changes.subList(0, i));
+                }
+                ids[i] = policy == DuplicatePolicy.MERGE ? duplicateId : REJECTED;
+            } else if (stored != changes) {
+                stored.add(changes.get(i));
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Moves the ID to the duplicate key of the edited details, called with the lock of the ID held.
+     *
+     * @return the ID of a stored person with the new key when the edit must not be applied, otherwise
+     * {@link DuplicateIndex#MISSING}
+     */
+    private int rekeyDuplicate(Person before, Person after, DuplicatePolicy policy) {
+        if (policy == null) {
+            return DuplicateIndex.MISSING;
+        }
+        long oldKey = duplicateKeyOf(before);
+        long newKey = duplicateKeyOf(after);
+        if (oldKey == newKey) {
+            return DuplicateIndex.MISSING;
+        }
+        int duplicateId = claimDuplicateKey(newKey, after.id(), policy);
+        if (duplicateId == DuplicateIndex.MISSING) {
+            duplicateIndex.remove(oldKey, before.id());
+        }
+        return duplicateId;
+    }
+
+    private void indexDuplicateKey(Person person) {
+        if (duplicatePolicy != null) {
+            duplicateIndex.add(duplicateKeyOf(person), person.id());
+        }
+    }
+
+    /**
+     * Stores the person under the lock of its stripe, a snapshot taken earlier keeps seeing the previous version.
+     *
+     * @param before the stored version of the person, null when it is added
+     */
+    private void storePerson(Person before, Person after) {
+        long stripe = stripeMaskOf(after.id());
+        long commitVersion = history.beginWrite(stripe);
+        try {
+            history.recordBefore(after.id(), before, commitVersion);
+            store.put(after);
+        } finally {
+            history.endWrite(stripe);
+        }
+    }
+
+    /**
+     * Removes the person under the lock of its stripe, a snapshot taken earlier keeps seeing it.
+     *
+     * @return the removed person, or null if there was no such person
+     */
+    private Person removeFromStore(int id) {
+        Person person = store.get(id);
+        if (person == null) {
+            return null;
+        }
+        long stripe = stripeMaskOf(id);
+        long commitVersion = history.beginWrite(stripe);
+        try {
+            history.recordBefore(id, person, commitVersion);
+            store.remove(id);
+        } finally {
+            history.endWrite(stripe);
+        }
+        return person;
+    }
+
+    private static long stripeMaskOf(int id) {
+        return PersonHistory.stripeMask(id & (WRITE_LOCK_STRIPES - 1));
+    }
+
+    private static long stripeMaskOf(int[] ids) {
+        long mask = 0;
+        for (int id : ids) {
+            mask |= stripeMaskOf(id);
+        }
+        return mask;
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return writeLocks[id & (WRITE_LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Locks the stripes of all given IDs in ascending order, so two batches can never wait for each other.
+     */
+    private List<ReentrantLock> lockAll(int[] ids) {
+        boolean[] needed = new boolean[WRITE_LOCK_STRIPES];
+        for (int id : ids) {
+            needed[id & (WRITE_LOCK_STRIPES - 1)] = true;
+        }
+        List<ReentrantLock> locks = new ArrayList<>();
+        for (int i = 0; i < WRITE_LOCK_STRIPES; i++) {
+            if (needed[i]) {
+                writeLocks[i].lock();
+                locks.add(writeLocks[i]);
+            }
+        }
+        return locks;
+    }
+
+    private static void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
     }
 }
@@ -0,0 +1,7 @@
+package bb.example;
+
+/**
+ * Details of an insured person which is not recorded yet and has no ID assigned.
+ */
+public record PersonDetails(String name, String surname, String phone, int age) {
+}
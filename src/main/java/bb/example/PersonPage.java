@@ -0,0 +1,27 @@
+package bb.example;
+
+import java.util.List;
+
+/**
+ * One page of persons ordered by ID or alphabetically. The next page is requested with the ID or the last person of
+ * this page, so paging stays correct while persons are added or deleted.
+ *
+ * @param persons persons on the page
+ * @param hasMore true if there are persons after this page
+ */
+public record PersonPage(List<Person> persons, boolean hasMore) {
+
+    /**
+     * @return the ID to request the next page with, or 0 if the page is empty
+     */
+    public int lastId() {
+        return persons.isEmpty() ? 0 : persons.get(persons.size() - 1).id();
+    }
+
+    /**
+     * @return the person to request the next alphabetical page with, or null if the page is empty
+     */
+    public Person lastPerson() {
+        return persons.isEmpty() ? null : persons.get(persons.size() - 1);
+    }
+}
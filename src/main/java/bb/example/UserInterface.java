@@ -1,11 +1,19 @@
 package bb.example;
 
+import bb.example.index.FuzzyIndex;
+import bb.example.services.FieldValidator;
 import bb.example.services.Utilities;
+import bb.example.services.ValidationError;
 import bb.example.services.Validators;
 import bb.example.services.iohandler.InputHandler;
 import bb.example.services.iohandler.OutputHandler;
+import bb.example.services.transfer.ExportJob;
+import bb.example.services.transfer.ExportService;
+import bb.example.services.transfer.GzipExporter;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * The class interacts with the user.
@@ -16,11 +24,20 @@ public class UserInterface {
     private final PersonDatabase database;
     private final InputHandler inputHandler;
     private final OutputHandler outputHandler;
+    private final ExportService exportService;
 
     public UserInterface(PersonDatabase database, InputHandler inputHandler, OutputHandler outputHandler) {
+        this(database, inputHandler, outputHandler, new ExportService(database));
+    }
+
+    /**
+     * @param exportService Service running the exports in the background
+     */
+    public UserInterface(PersonDatabase database, InputHandler inputHandler, OutputHandler outputHandler, ExportService exportService) {
         this.database = database;
         this.inputHandler = inputHandler;
         this.outputHandler = outputHandler;
+        this.exportService = exportService;
     }
 
     /**
@@ -31,6 +48,7 @@ public class UserInterface {
      */
     public void menuSelectionLoop(InputHandler inputHandler, OutputHandler outputHandler) {
         while (true) {
+            reportFinishedExports();
             outputHandler.print("""
 
                     --------Insured Records----------
@@ -43,6 +61,12 @@ public class UserInterface {
                     5 - Delete an insured person
                     6 - Create a file
                     7 - End
+                    8 - Load a file
+                    9 - Statistics
+                    10 - Search by phone number
+                    11 - Export jobs
+                    12 - Duplicate report
+                    13 - List insured individuals by surname
                     --------------------------------------
                     Enter the action number:""");
 
@@ -57,19 +81,27 @@ public class UserInterface {
                 case 5 -> deleteInsured();
                 case 6 -> createFile();
                 case 7 -> {
+                    finishExports();
                     outputHandler.print("Goodbye");
                     return;
                 }
-                default -> outputHandler.print("Enter number from 1 to 7");
+                case 8 -> loadFile();
+                case 9 -> displayStatistics();
+                case 10 -> displayInsuredByPhone();
+                case 11 -> manageExports();
+                case 12 -> displayDuplicates();
+                case 13 -> displayInsuredBySurname();
+                default -> outputHandler.print("Enter number from 1 to 13");
             }
         }
     }
     private int enterNumber(String input) {
-        while (!Validators.isValidNumber(input)) {
+        int number;
+        while ((number = FieldValidator.parseNumber(input, 0, input.length())) == FieldValidator.INVALID) {
             outputHandler.print("Invalid number. Please enter number.");
             input = inputHandler.getInput();
         }
-        return Integer.parseInt(input);
+        return number;
     }
 
     private void addInsured() {
@@ -78,9 +110,20 @@ public class UserInterface {
         String tel = enterPhoneNumber();
         int age = enterAge();
 
-        database.addPerson(name, surname, tel, age); // Add the insured person to the database
-
-        outputHandler.print("A new insured person has been successfully added.");
+        Person duplicate = database.findDuplicate(name, surname, tel);
+        try {
+            int id = database.addPerson(name, surname, tel, age); // Add the insured person to the database
+            if (duplicate != null && duplicate.id() == id) {
+                outputHandler.print("The same person is already recorded under ID " + id + ", the records were merged");
+                return;
+            }
+            outputHandler.print("A new insured person has been successfully added.");
+            if (duplicate != null) {
+                outputHandler.print("Warning: the same person is also recorded under ID " + duplicate.id());
+            }
+        } catch (DuplicatePersonException e) {
+            outputHandler.print(e.getMessage() + ", the person was not added");
+        }
     }
 
     private String enterUserName(String name) {
@@ -109,14 +152,13 @@ public class UserInterface {
     }
 
     private boolean doesContainNineDigitString(String string) {
-        if (!Validators.isValidNumber(string)) {
+        ValidationError error = FieldValidator.checkPhone(string, 0, string.length());
+        if (error == ValidationError.PHONE_NOT_DIGITS) {
             outputHandler.print("The phone number cannot contain letters or special characters and must be 9-digit number");
-        } else if (string.length() != 9) {
+        } else if (error == ValidationError.PHONE_WRONG_LENGTH) {
             outputHandler.print("Enter a 9-digit number");
-        } else {
-            return true;
         }
-        return false;
+        return error == null;
     }
 
 
@@ -135,21 +177,42 @@ public class UserInterface {
 
 
     private void displayAllInsured() {
-        Collection<Person> persons = database.listOfAllPersons();
-        if (persons.isEmpty()) {
+        if (Utilities.printAllPersons(database, outputHandler) == 0) {
             outputHandler.print("No insured individuals are recorded in the database");
         }
+    }
 
-        outputHandler.print(Utilities.buildPersonsList(persons));
+    private void displayInsuredBySurname() {
+        if (Utilities.printPersonsBySurname(database, outputHandler) == 0) {
+            outputHandler.print("No insured individuals are recorded in the database");
+        }
     }
 
     private void displaySpecificInsured() {
 
-        outputHandler.print("Enter the name or surname:");
+        outputHandler.print("Enter the name or surname (Nov* finds surnames starting with Nov):");
         String inputNameSurname = inputHandler.getInput();
 
+        if (inputNameSurname.endsWith("*")) {
+            String prefix = inputNameSurname.substring(0, inputNameSurname.length() - 1);
+            // every surname starts with nothing, the whole database is listed page by page
+            if (prefix.isBlank()) {
+                displayInsuredBySurname();
+            } else {
+                displayInsuredBySurnamePrefix(prefix);
+            }
+            return;
+        }
+
         Collection<Person> persons = database.findSpecificPerson(inputNameSurname);
 
+        if (persons.isEmpty() && database.isFuzzySearchEnabled()) {
+            persons = database.findSimilarPersons(inputNameSurname, FuzzyIndex.MAX_DISTANCE);
+            if (!persons.isEmpty()) {
+                outputHandler.print("This name is not recorded in the database, similar names:");
+            }
+        }
+
         if (persons.isEmpty()) {
             outputHandler.print("This name is not recorded in the database");
         } else {
@@ -157,6 +220,32 @@ public class UserInterface {
         }
     }
 
+    private void displayInsuredBySurnamePrefix(String prefix) {
+        Collection<Person> persons = database.findBySurnamePrefix(prefix);
+        if (persons.isEmpty()) {
+            outputHandler.print("No surname starting with " + prefix + " is recorded in the database");
+        } else {
+            outputHandler.print(Utilities.buildPersonsList(persons));
+        }
+    }
+
+    private void displayInsuredByPhone() {
+        outputHandler.print("Enter the phone number or its first digits:");
+        String input = inputHandler.getInput();
+        while (!Validators.isValidNumber(input) || input.length() > 9) {
+            outputHandler.print("Enter at most 9 digits");
+            input = inputHandler.getInput();
+        }
+
+        Collection<Person> persons = input.length() == 9 ? database.findByPhone(input) : database.findByPhonePrefix(input);
+
+        if (persons.isEmpty()) {
+            outputHandler.print("This phone number is not recorded in the database");
+        } else {
+            outputHandler.print(Utilities.buildPersonsList(persons));
+        }
+    }
+
     private void modifyInsured() {
         outputHandler.print("Enter the ID of the person you are looking for:");
         String input = inputHandler.getInput();
@@ -172,8 +261,12 @@ public class UserInterface {
             String newTel = enterPhoneNumber();
 
             if (Validators.isValidNumber(newTel) && doesContainNineDigitString(newTel)) {
-                database.editPerson(inputId, newName, newSurname, newTel);
-                outputHandler.print("The person has been modified to:\n" + database.findById(inputId));
+                try {
+                    database.editPerson(inputId, newName, newSurname, newTel);
+                    outputHandler.print("The person has been modified to:\n" + database.findById(inputId));
+                } catch (DuplicatePersonException e) {
+                    outputHandler.print(e.getMessage() + ", the person was not modified");
+                }
             } else {
                 outputHandler.print("Invalid phone number format.");
             }
@@ -181,7 +274,7 @@ public class UserInterface {
     }
 
     private void deleteInsured() {
-        outputHandler.print(String.valueOf(database.listOfAllPersons()));
+        Utilities.printAllPersons(database, outputHandler);
         outputHandler.print("Enter the ID of the person you would like to delete");
         String input = inputHandler.getInput();
         int inputId = enterNumber(input);
@@ -194,13 +287,102 @@ public class UserInterface {
     }
 
     private void createFile() {
-        outputHandler.print("Enter a name of the file");
-        String fileName = inputHandler.getInput() + ".txt";
+        outputHandler.print("Enter a name of the file, a name ending with .gz is compressed");
+        String fileName = inputHandler.getInput();
+        if (!fileName.endsWith(GzipExporter.EXTENSION)) {
+            fileName += ".txt";
+        }
         outputHandler.print("Enter a name of the folder where you would like to save the file [USER.HOME]/...");
         String userDirectory = inputHandler.getInput();
 
-        Collection<Person> persons = database.listOfAllPersons();
+        // the file holds the database as it was when the export started, even if it is changed meanwhile
+        try {
+            ExportJob job = exportService.start(Utilities.userFilePath(fileName, userDirectory));
+            outputHandler.print("Export #" + job.id() + " into " + job.target() + " started, its progress is shown in the export jobs");
+        } catch (IllegalStateException e) {
+            outputHandler.print(e.getMessage());
+        }
+    }
+
+    private void manageExports() {
+        List<ExportJob> jobs = exportService.jobs();
+        if (jobs.isEmpty()) {
+            outputHandler.print("No export has been started");
+            return;
+        }
+        outputHandler.print(jobs.stream().map(ExportJob::describe).collect(Collectors.joining("\n")));
+        if (exportService.running() == 0) {
+            return;
+        }
+        outputHandler.print("Enter the number of an export to cancel it, or press Enter to continue");
+        String input = inputHandler.getInput();
+        if (input.isBlank()) {
+            return;
+        }
+        ExportJob job = findExport(jobs, FieldValidator.parseNumber(input, 0, input.length()));
+        if (job == null) {
+            outputHandler.print("Export with the given number not found");
+        } else if (job.state() != ExportJob.State.RUNNING) {
+            outputHandler.print("Export #" + job.id() + " is already finished");
+        } else {
+            job.cancel();
+            outputHandler.print("Export #" + job.id() + " is being cancelled");
+        }
+    }
+
+    private static ExportJob findExport(List<ExportJob> jobs, int id) {
+        return jobs.stream().filter(job -> job.id() == id).findFirst().orElse(null);
+    }
+
+    private void reportFinishedExports() {
+        for (ExportJob job : exportService.takeFinished()) {
+            switch (job.state()) {
+                case COMPLETED -> outputHandler.print("Export #" + job.id() + " finished: " + Utilities.describeExport(job.result()));
+                case CANCELLED -> outputHandler.print("Export #" + job.id() + " was cancelled, the file was not changed");
+                default -> outputHandler.print("Export #" + job.id() + " failed: An error occurred while creating the file: " + job.error());
+            }
+        }
+    }
+
+    /**
+     * The session ends only after the running exports are written.
+     */
+    private void finishExports() {
+        int running = exportService.running();
+        if (running > 0) {
+            outputHandler.print("Waiting for " + running + " running export(s) to finish");
+        }
+        try {
+            exportService.awaitAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reportFinishedExports();
+    }
+
+    private void loadFile() {
+        outputHandler.print("Enter a name of the file including the extension (.txt or .csv)");
+        String fileName = inputHandler.getInput();
+        outputHandler.print("Enter a name of the folder where the file is stored [USER.HOME]/...");
+        String userDirectory = inputHandler.getInput();
+
+        outputHandler.print(Utilities.loadFile(fileName, userDirectory, database));
+    }
+
+    private void displayDuplicates() {
+        DuplicateReport report = database.duplicateReport();
+        if (report.groups().isEmpty()) {
+            outputHandler.print("No duplicates found among " + report.scanned() + " insured individuals");
+            return;
+        }
+        outputHandler.print("Found " + report.duplicates() + " duplicate(s) in " + report.groups().size()
+                + " group(s) among " + report.scanned() + " insured individuals:");
+        for (List<Person> group : report.groups()) {
+            outputHandler.print(Utilities.buildPersonsList(group));
+        }
+    }
 
-        outputHandler.print(Utilities.saveFileTxt(fileName, userDirectory, persons));
+    private void displayStatistics() {
+        outputHandler.print(Utilities.buildMetricsReport(database.metrics().snapshot(), database.searchCacheStats()));
     }
-}
\ No newline at end of file
+}
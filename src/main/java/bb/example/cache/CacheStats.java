@@ -0,0 +1,22 @@
+package bb.example.cache;
+
+/**
+ * Statistics of a {@link SearchCache}.
+ *
+ * @param hits      number of lookups answered from the cache
+ * @param misses    number of lookups which had to search
+ * @param evictions number of entries evicted to keep the weight limit
+ * @param size      number of cached results
+ * @param weight    total weight of the cached results
+ * @author pollib
+ */
+public record CacheStats(long hits, long misses, long evictions, int size, long weight) {
+
+    /**
+     * @return share of the lookups answered from the cache, 0 when there was no lookup
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,190 @@
+package bb.example.cache;
+
+import bb.example.Person;
+import bb.example.index.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of search results. The weight of an entry is the number of found persons plus one, when the total
+ * weight exceeds the limit the least recently used entries are evicted. Results heavier than a quarter of the limit
+ * are not cached at all, a single broad query would otherwise push out all the frequent ones.
+ * <p>
+ * Lookups never lock. The recency is approximate: an entry remembers the epoch of its last use, the epoch advances
+ * with every stored result, and the eviction removes the entries of the oldest epochs in one pass until an eighth of
+ * the limit is free again.
+ * <p>
+ * Every entry remembers the stamp of its query computed before the search. A query can only find persons whose name
+ * or surname contains it, and then their normalized values (see {@link TextNormalizer}) contain its normalized
+ * trigrams. The database calls {@link #invalidate} after every change with the changed persons, which advances the
+ * counters of their trigrams, and the stamp of a query is the sum of the counters of its trigrams. A result computed
+ * before a change is thus never returned after the change has completed, while changes of unrelated names keep it.
+ * Queries shorter than three letters share one counter advanced by every change.
+ *
+ * @author pollib
+ */
+public class SearchCache {
+    private static final int COUNTERS = 1 << 12;
+    private static final int GRAM = 3;
+
+    private final long maxWeight;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLongArray gramCounters = new AtomicLongArray(COUNTERS);
+    private final LongAdder shortQueryCounter = new LongAdder();
+    private final AtomicLong globalCounter = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxWeight the highest total number of persons in the cached results
+     */
+    public SearchCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Computes the stamp a result of the query is valid for, it has to be read before the search starts.
+     *
+     * @param query the searched text
+     * @return the stamp, it changes after every change of a person the query could find
+     */
+    public long stampOf(String query) {
+        long stamp = globalCounter.get();
+        String key = TextNormalizer.normalize(query);
+        if (key.length() < GRAM) {
+            return stamp + shortQueryCounter.sum();
+        }
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            stamp += gramCounters.get(counterOf(key, i));
+        }
+        return stamp;
+    }
+
+    /**
+     * Outdates the cached results which could find the person, it has to be called after the change was applied.
+     *
+     * @param person the person before or after the change
+     */
+    public void invalidate(Person person) {
+        shortQueryCounter.increment();
+        invalidateGrams(TextNormalizer.normalize(person.name()));
+        invalidateGrams(TextNormalizer.normalize(person.surname()));
+    }
+
+    private void invalidateGrams(String key) {
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            gramCounters.incrementAndGet(counterOf(key, i));
+        }
+    }
+
+    /**
+     * Outdates every cached result, for changes which affect all queries.
+     */
+    public void invalidateAll() {
+        globalCounter.incrementAndGet();
+    }
+
+    private static int counterOf(String key, int start) {
+        int hash = (key.charAt(start) * 31 + key.charAt(start + 1)) * 31 + key.charAt(start + 2);
+        return (hash ^ hash >>> 12) & (COUNTERS - 1);
+    }
+
+    /**
+     * @param query the searched text
+     * @param stamp the current stamp of the query
+     * @return the cached result computed for the stamp, or null
+     */
+    public Collection<Person> get(String query, long stamp) {
+        Entry entry = entries.get(query);
+        if (entry != null) {
+            if (entry.stamp == stamp) {
+                long currentEpoch = epoch.get();
+                // written only when it changes, a frequent query does not make every reader write its cache line
+                if (entry.lastUsed != currentEpoch) {
+                    entry.lastUsed = currentEpoch;
+                }
+                hits.increment();
+                return entry.persons;
+            }
+            if (entries.remove(query, entry)) {
+                weight.addAndGet(-entry.weight());
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @param query   the searched text
+     * @param stamp   the stamp of the query read before the search started
+     * @param persons the unmodifiable result of the search
+     */
+    public void put(String query, long stamp, Collection<Person> persons) {
+        Entry entry = new Entry(stamp, persons, epoch.incrementAndGet());
+        if (entry.weight() > maxWeight / 4) {
+            return;
+        }
+        Entry previous = entries.put(query, entry);
+        long total = weight.addAndGet(previous == null ? entry.weight() : entry.weight() - previous.weight());
+        if (total > maxWeight && evictionLock.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until an eighth of the limit is free.
+     */
+    private void evict() {
+        List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed));
+        long target = maxWeight - maxWeight / 8;
+        for (Map.Entry<String, Entry> candidate : candidates) {
+            if (weight.get() <= target) {
+                return;
+            }
+            if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                weight.addAndGet(-candidate.getValue().weight());
+                evictions.increment();
+            }
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), weight.get());
+    }
+
+    private static final class Entry {
+        final long stamp;
+        final Collection<Person> persons;
+        volatile long lastUsed;
+
+        Entry(long stamp, Collection<Person> persons, long lastUsed) {
+            this.stamp = stamp;
+            this.persons = persons;
+            this.lastUsed = lastUsed;
+        }
+
+        long weight() {
+            return persons.size() + 1L;
+        }
+    }
+}
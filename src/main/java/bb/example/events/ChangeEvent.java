@@ -0,0 +1,12 @@
+package bb.example.events;
+
+import bb.example.PersonChange;
+
+/**
+ * A change of the database numbered in the order it was published. Changes of one person always have increasing
+ * sequence numbers, sequence numbers start at 1 and have no gaps.
+ *
+ * @author pollib
+ */
+public record ChangeEvent(long sequence, PersonChange change) {
+}
@@ -0,0 +1,279 @@
+package bb.example.events;
+
+import bb.example.PersonChange;
+import bb.example.PersonChangeListener;
+import bb.example.PersonDatabase;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ordered stream of the changes made in the {@link PersonDatabase}, read asynchronously by any number of subscribers.
+ * <p>
+ * Every change gets the next sequence number and is put into a bounded ring of events. Writers only claim the number
+ * and store the event into its slot, they neither call nor wake a subscriber. Each subscription polls the ring on its
+ * own thread, backing off from {@value #MIN_IDLE_PARK_MICROS} µs to {@value #MAX_IDLE_PARK_MICROS} µs while there
+ * is nothing to read, and keeps its position, the sequence number of the next event, so a subscriber which stored the
+ * position can resume from it later as long as the event is still in the ring.
+ * <p>
+ * Events carry their sequence number, a reader tells a published event from an older or a newer one in the same slot
+ * by the number alone. When the ring is full the {@link Backpressure} decides whether the writer waits for the slowest
+ * subscriber or overwrites the oldest event, which the lagging subscriber is then told about.
+ *
+ * @author pollib
+ */
+public class ChangeStream implements PersonChangeListener, Closeable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    // a subscriber of a busy stream wakes at most this often and reads all events published meanwhile, polling every
+    // 10 µs woke it several times per edit and each wake-up took CPU time from the writers
+    private static final long MIN_IDLE_PARK_MICROS = 250;
+    private static final long MAX_IDLE_PARK_MICROS = 1000;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * What a writer does when the ring is full of events not yet read by all subscribers.
+     */
+    public enum Backpressure {
+        /**
+         * The writer waits until the slowest subscriber reads the oldest event, no event is lost but a stalled
+         * subscriber stops the writes. Subscribers must not write to the database nor take its snapshot then.
+         */
+        BLOCK,
+        /**
+         * The writer overwrites the oldest event and never waits, a subscriber falling behind by more than the
+         * capacity loses events.
+         */
+        DROP_OLDEST
+    }
+
+    private final PersonDatabase database;
+    private final Backpressure backpressure;
+    private final AtomicReferenceArray<ChangeEvent> events;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    private ChangeStream(PersonDatabase database, int capacity, Backpressure backpressure) {
+        this.database = database;
+        this.backpressure = backpressure;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.events = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Opens a stream with the default capacity overwriting the oldest events.
+     *
+     * @see #attach(PersonDatabase, int, Backpressure)
+     */
+    public static ChangeStream attach(PersonDatabase database) {
+        return attach(database, DEFAULT_CAPACITY, Backpressure.DROP_OLDEST);
+    }
+
+    /**
+     * Starts publishing the changes of the database, changes made before are not in the stream.
+     *
+     * @param database     the database whose changes are published
+     * @param capacity     number of events kept in the ring, rounded up to a power of two
+     * @param backpressure what a writer does when the ring is full
+     * @return the stream, it has to be closed at the end
+     */
+    public static ChangeStream attach(PersonDatabase database, int capacity, Backpressure backpressure) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be from 1 to " + (1 << 30));
+        }
+        ChangeStream stream = new ChangeStream(database, capacity, backpressure);
+        database.addChangeListener(stream);
+        return stream;
+    }
+
+    @Override
+    public void onChange(PersonChange change) {
+        publish(nextSequence.getAndIncrement(), change);
+    }
+
+    @Override
+    public void onChanges(List<PersonChange> changes) {
+        long sequence = nextSequence.getAndAdd(changes.size());
+        for (PersonChange change : changes) {
+            publish(sequence++, change);
+        }
+    }
+
+    private void publish(long sequence, PersonChange change) {
+        if (backpressure == Backpressure.BLOCK) {
+            awaitSpace(sequence);
+        }
+        ChangeEvent event = new ChangeEvent(sequence, change);
+        int slot = (int) sequence & mask;
+        // a writer delayed by a whole round of the ring must not replace a newer event
+        ChangeEvent current = events.get(slot);
+        while ((current == null || current.sequence() < sequence) && !events.compareAndSet(slot, current, event)) {
+            current = events.get(slot);
+        }
+    }
+
+    private void awaitSpace(long sequence) {
+        long wrappedSequence = sequence - events.length();
+        while (wrappedSequence >= slowestPosition()) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private long slowestPosition() {
+        long slowest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.position);
+        }
+        return slowest;
+    }
+
+    /**
+     * @return the sequence number the next change will get
+     */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * @return the lowest sequence number a subscriber can resume from
+     */
+    public long oldestSequence() {
+        return Math.max(1, nextSequence.get() - events.length());
+    }
+
+    /**
+     * Subscribes to the changes made from now on.
+     */
+    public Subscription subscribe(ChangeSubscriber subscriber) {
+        return subscribe(nextSequence.get(), subscriber);
+    }
+
+    /**
+     * Subscribes to the changes starting with the given sequence number, so a subscriber resumes where it stopped.
+     * An event overwritten before the new subscription reads it is reported as lost.
+     *
+     * @param fromSequence the sequence number of the first delivered event
+     * @param subscriber   the consumer of the events
+     * @return the running subscription, it has to be closed at the end
+     * @throws IllegalArgumentException when the event is no longer in the ring or the sequence number was not
+     *                                  assigned yet
+     */
+    public Subscription subscribe(long fromSequence, ChangeSubscriber subscriber) {
+        Subscription subscription = new Subscription(fromSequence, subscriber);
+        // registered first, a blocked writer then waits for it before the check below
+        subscriptions.add(subscription);
+        long next = nextSequence.get();
+        if (fromSequence < Math.max(1, next - events.length()) || fromSequence > next) {
+            subscriptions.remove(subscription);
+            throw new IllegalArgumentException("Sequence " + fromSequence + " is not available, the stream holds "
+                    + oldestSequence() + " to " + (next - 1));
+        }
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * Stops publishing the changes and closes all subscriptions.
+     */
+    @Override
+    public void close() {
+        database.removeChangeListener(this);
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * A subscriber reading the stream on its own thread.
+     */
+    public final class Subscription implements Closeable {
+        private final ChangeSubscriber subscriber;
+        private final Thread thread;
+        private volatile long position;
+        private long idleParkMicros = MIN_IDLE_PARK_MICROS;
+        private volatile boolean running = true;
+        private volatile RuntimeException failure;
+
+        private Subscription(long position, ChangeSubscriber subscriber) {
+            this.position = position;
+            this.subscriber = subscriber;
+            this.thread = new Thread(this::run, "change-stream-" + subscriptionCount.incrementAndGet());
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            try {
+                while (running) {
+                    ChangeEvent event = events.get((int) position & mask);
+                    if (event != null && event.sequence() == position) {
+                        subscriber.onEvent(event);
+                        position = position + 1;
+                        idleParkMicros = MIN_IDLE_PARK_MICROS;
+                    } else if (event != null && event.sequence() > position) {
+                        long oldest = Math.max(position + 1, oldestSequence());
+                        subscriber.onLost(position, oldest - 1);
+                        position = oldest;
+                    } else {
+                        LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(idleParkMicros));
+                        idleParkMicros = Math.min(idleParkMicros * 2, MAX_IDLE_PARK_MICROS);
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                running = false;
+                subscriptions.remove(this);
+            }
+        }
+
+        /**
+         * @return the sequence number of the next event to be delivered, the point to resume from
+         */
+        public long position() {
+            return position;
+        }
+
+        /**
+         * @return true until the subscription is closed or the subscriber fails
+         */
+        public boolean isRunning() {
+            return running;
+        }
+
+        /**
+         * @return the exception which stopped the subscription, or null
+         */
+        public RuntimeException failure() {
+            return failure;
+        }
+
+        /**
+         * Stops the delivery after the event being handled and waits for the thread to finish, unless called by the
+         * subscriber itself.
+         */
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
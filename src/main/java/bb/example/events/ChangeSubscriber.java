@@ -0,0 +1,26 @@
+package bb.example.events;
+
+/**
+ * Consumes the events of a {@link ChangeStream} on the thread of its subscription, one by one in the order of their
+ * sequence numbers.
+ *
+ * @author pollib
+ */
+@FunctionalInterface
+public interface ChangeSubscriber {
+    /**
+     * Handles the event. An exception stops the subscription, the event is delivered again when the subscriber
+     * resumes from {@link ChangeStream.Subscription#position()}.
+     */
+    void onEvent(ChangeEvent event);
+
+    /**
+     * Called when events were overwritten in the ring before the subscriber read them, the delivery continues with
+     * the oldest retained event. By default the loss is ignored.
+     *
+     * @param firstSequence the first lost sequence number
+     * @param lastSequence  the last lost sequence number
+     */
+    default void onLost(long firstSequence, long lastSequence) {
+    }
+}
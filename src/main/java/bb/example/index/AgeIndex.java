@@ -0,0 +1,146 @@
+package bb.example.index;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Secondary index of the ages of the persons, one set of IDs for every valid age from 0 to 150. A range query visits
+ * only the buckets of the range and a count reads only their sizes, neither looks at the other persons. Ages outside
+ * the valid range are not indexed, queries never ask for them.
+ * <p>
+ * Every bucket has its own read-write lock, updates of one ID are expected to be serialized by the caller.
+ *
+ * @author pollib
+ */
+public class AgeIndex {
+    public static final int MIN_AGE = 0;
+    public static final int MAX_AGE = 150;
+
+    private final Bucket[] buckets = new Bucket[MAX_AGE - MIN_AGE + 1];
+
+    public AgeIndex() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    public void add(int id, int age) {
+        if (isIndexed(age)) {
+            buckets[age - MIN_AGE].add(id);
+        }
+    }
+
+    public void remove(int id, int age) {
+        if (isIndexed(age)) {
+            buckets[age - MIN_AGE].remove(id);
+        }
+    }
+
+    public void update(int id, int oldAge, int newAge) {
+        if (oldAge != newAge) {
+            remove(id, oldAge);
+            add(id, newAge);
+        }
+    }
+
+    /**
+     * @param minAge the lowest age, inclusive
+     * @param maxAge the highest age, inclusive
+     * @return ascending IDs of the persons of age within the range
+     */
+    public int[] find(int minAge, int maxAge) {
+        int from = Math.max(minAge, MIN_AGE);
+        int to = Math.min(maxAge, MAX_AGE);
+        if (from > to) {
+            return new int[0];
+        }
+        int[][] parts = new int[to - from + 1][];
+        int total = 0;
+        for (int age = from; age <= to; age++) {
+            parts[age - from] = buckets[age - MIN_AGE].toArray();
+            total += parts[age - from].length;
+        }
+        int[] ids = new int[total];
+        int position = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, ids, position, part.length);
+            position += part.length;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * @return number of persons of age within the range, both bounds inclusive
+     */
+    public long count(int minAge, int maxAge) {
+        long count = 0;
+        for (int age = Math.max(minAge, MIN_AGE); age <= Math.min(maxAge, MAX_AGE); age++) {
+            count += buckets[age - MIN_AGE].size();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of persons of every age, the index of the array is the age
+     */
+    public int[] countByAge() {
+        int[] counts = new int[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].size();
+        }
+        return counts;
+    }
+
+    private static boolean isIndexed(int age) {
+        return age >= MIN_AGE && age <= MAX_AGE;
+    }
+
+    /**
+     * IDs of the persons of one age guarded by their own read-write lock.
+     */
+    private static final class Bucket {
+        private final IntSet ids = new IntSet();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(int id) {
+            lock.writeLock().lock();
+            try {
+                ids.add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(int id) {
+            lock.writeLock().lock();
+            try {
+                ids.remove(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return ids.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int[] toArray() {
+            lock.readLock().lock();
+            try {
+                int[] values = new int[ids.size()];
+                int[] position = new int[1];
+                ids.forEach(id -> values[position[0]++] = id);
+                return values;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
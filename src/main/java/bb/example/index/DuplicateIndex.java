@@ -0,0 +1,197 @@
+package bb.example.index;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of persons by a 64-bit hash of their normalized name, surname and phone number, so a duplicate is found in
+ * constant time. Names are compared ignoring surrounding spaces, letter case and diacritics (see
+ * {@link TextNormalizer}), phone numbers by their digits only.
+ * <p>
+ * Only the hash is kept, a few tens of bytes per person, and equal hashes are taken for equal persons. Two different
+ * persons share a hash with a probability of about n²/2⁶⁵, less than one in a million for ten million persons.
+ * <p>
+ * The first ID of every hash is in heads, other IDs of the same hash follow in a chain like in {@link PhoneIndex}.
+ * Hashes are spread over independently locked stripes, so {@link #claim} is atomic for persons with the same hash
+ * even when their IDs are locked by different writers.
+ *
+ * @author pollib
+ */
+public class DuplicateIndex {
+    public static final int MISSING = LongIntHashMap.MISSING;
+
+    private static final int STRIPES = 64;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char FIELD_SEPARATOR = '\u001f';
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public DuplicateIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Computes the key without creating any string unless a name contains a letter outside of ASCII.
+     *
+     * @return the hash of the normalized name, surname and phone number
+     */
+    public static long keyOf(String name, String surname, String phone) {
+        long hash = hashName(FNV_OFFSET, name.strip());
+        hash = (hash ^ FIELD_SEPARATOR) * FNV_PRIME;
+        hash = hashName(hash, surname.strip());
+        hash = (hash ^ FIELD_SEPARATOR) * FNV_PRIME;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        return finish(hash);
+    }
+
+    private static long hashName(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return hashChars(hash, TextNormalizer.normalize(value));
+            }
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long hashChars(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Mixes the bits of FNV-1a, whose high bits depend on the last characters only weakly.
+     */
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Adds the ID unless another person already has the key.
+     *
+     * @return {@link #MISSING} when the ID was added, otherwise the ID of a person having the key
+     */
+    public int claim(long key, int id) {
+        return stripeOf(key).claim(key, id);
+    }
+
+    /**
+     * Adds the ID even if other persons already have the key.
+     *
+     * @return the ID of another person having the key, or {@link #MISSING} when it is the only one
+     */
+    public int add(long key, int id) {
+        return stripeOf(key).add(key, id);
+    }
+
+    public void remove(long key, int id) {
+        stripeOf(key).remove(key, id);
+    }
+
+    /**
+     * @return the ID of a person having the key, or {@link #MISSING}
+     */
+    public int find(long key) {
+        return stripeOf(key).find(key);
+    }
+
+    private Stripe stripeOf(long key) {
+        return stripes[(int) (key >>> 58)];
+    }
+
+    /**
+     * A part of the index guarded by its own read-write lock.
+     */
+    private static final class Stripe {
+        private final LongIntHashMap heads = new LongIntHashMap();
+        private final IntIntHashMap next = new IntIntHashMap();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        int claim(long key, int id) {
+            lock.writeLock().lock();
+            try {
+                int head = heads.get(key);
+                if (head == MISSING) {
+                    heads.put(key, id);
+                }
+                return head;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int add(long key, int id) {
+            lock.writeLock().lock();
+            try {
+                int previousHead = heads.put(key, id);
+                if (previousHead != MISSING) {
+                    next.put(id, previousHead);
+                }
+                return previousHead;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long key, int id) {
+            lock.writeLock().lock();
+            try {
+                int head = heads.get(key);
+                if (head == id) {
+                    int following = next.remove(id);
+                    if (following == IntIntHashMap.MISSING) {
+                        heads.remove(key);
+                    } else {
+                        heads.put(key, following);
+                    }
+                    return;
+                }
+                int previous = head;
+                while (previous != MISSING) {
+                    int current = next.get(previous);
+                    if (current == id) {
+                        int following = next.remove(id);
+                        if (following == IntIntHashMap.MISSING) {
+                            next.remove(previous);
+                        } else {
+                            next.put(previous, following);
+                        }
+                        return;
+                    }
+                    previous = current;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int find(long key) {
+            lock.readLock().lock();
+            try {
+                return heads.get(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
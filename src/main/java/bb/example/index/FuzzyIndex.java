@@ -0,0 +1,414 @@
+package bb.example.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of names for searches tolerating typos, a query finds the names within a small edit distance without being
+ * compared with every stored name. It is a symmetric delete dictionary: every distinct name is entered under all
+ * strings made by deleting up to {@link #MAX_DISTANCE} of its letters and a query looks up the strings made by
+ * deleting letters of the query, two names within the distance always share one of them. Only the names found this
+ * way are compared with the query.
+ * <p>
+ * Names are compared as keys of {@link TextNormalizer}, so letter case and diacritics do not count. The distance is
+ * the number of inserted, deleted and replaced letters and swaps of two neighbouring letters. The deletion strings
+ * are kept only as 64-bit hashes, a collision merely adds a name which the comparison then rejects.
+ * <p>
+ * IDs of the persons having a name are kept in stripes locked by the name. The dictionary of the deletion strings
+ * changes only when a name is stored for the first time or the last person having it is removed. Updates of one ID
+ * are expected to be serialized by the caller.
+ *
+ * @author pollib
+ */
+public class FuzzyIndex {
+    public static final int MAX_DISTANCE = 2;
+
+    private static final int STRIPES = 64;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Dictionary dictionary = new Dictionary();
+
+    public FuzzyIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Indexes the values of a newly recorded person.
+     *
+     * @param id     the ID of the person
+     * @param values values to be searchable (name, surname)
+     */
+    public void add(int id, String... values) {
+        for (String value : values) {
+            String key = keyOf(value);
+            stripeOf(key).add(key, id, dictionary);
+        }
+    }
+
+    /**
+     * Removes the values of a person from the index.
+     *
+     * @param id     the ID of the person
+     * @param values values which were indexed for the person
+     */
+    public void remove(int id, String... values) {
+        for (String value : values) {
+            String key = keyOf(value);
+            stripeOf(key).remove(key, id, dictionary);
+        }
+    }
+
+    public void update(int id, String[] oldValues, String[] newValues) {
+        remove(id, oldValues);
+        add(id, newValues);
+    }
+
+    /**
+     * Finds the persons having a value within the distance from the query.
+     *
+     * @param query       a whole name or surname, possibly mistyped
+     * @param maxDistance the highest distance from 0 to {@link #MAX_DISTANCE}
+     * @return the found names and the IDs of their persons
+     */
+    public Matches find(String query, int maxDistance) {
+        checkDistance(maxDistance);
+        List<NameMatch> names = dictionary.find(keyOf(query), maxDistance);
+        IntIntHashMap closest = new IntIntHashMap();
+        for (NameMatch name : names) {
+            stripeOf(name.key()).collect(name.key(), name.distance(), closest);
+        }
+
+        int[] counts = new int[maxDistance + 1];
+        closest.forEach((id, distance) -> counts[distance - 1]++);
+        int[][] groups = new int[maxDistance + 1][];
+        for (int distance = 0; distance <= maxDistance; distance++) {
+            groups[distance] = new int[counts[distance]];
+        }
+        int[] filled = new int[maxDistance + 1];
+        closest.forEach((id, distance) -> groups[distance - 1][filled[distance - 1]++] = id);
+        for (int[] group : groups) {
+            Arrays.sort(group);
+        }
+        Map<String, Integer> distances = new HashMap<>();
+        for (NameMatch name : names) {
+            distances.put(name.key(), name.distance());
+        }
+        return new Matches(groups, distances, maxDistance);
+    }
+
+    /**
+     * @return the key under which the value is indexed
+     */
+    public static String keyOf(String value) {
+        return TextNormalizer.normalize(value.strip());
+    }
+
+    /**
+     * Computes the optimal string alignment distance, the Levenshtein distance where a swap of two neighbouring
+     * letters counts as one edit.
+     *
+     * @return the distance, or maxDistance + 1 when the distance is greater than maxDistance
+     */
+    public static int distance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+            }
+            int[] reused = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = reused;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+
+    public static void checkDistance(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("The distance must be from 0 to " + MAX_DISTANCE);
+        }
+    }
+
+    /**
+     * @return hashes of the key and of all strings made by deleting up to the given number of its letters
+     */
+    static long[] deletionHashes(String key, int deletions) {
+        Set<String> variants = new HashSet<>();
+        variants.add(key);
+        Set<String> level = variants;
+        for (int d = 0; d < deletions; d++) {
+            Set<String> shorter = new HashSet<>();
+            for (String variant : level) {
+                for (int i = 0; i < variant.length(); i++) {
+                    shorter.add(variant.substring(0, i) + variant.substring(i + 1));
+                }
+            }
+            variants.addAll(shorter);
+            level = shorter;
+        }
+        return variants.stream().mapToLong(FuzzyIndex::hash).distinct().toArray();
+    }
+
+    private static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+
+    private Stripe stripeOf(String key) {
+        return stripes[key.hashCode() & (STRIPES - 1)];
+    }
+
+    private record NameMatch(String key, int distance) {
+    }
+
+    /**
+     * Result of a search, the IDs grouped by distance and the distances of the found names.
+     */
+    public static final class Matches {
+        private final int[][] groups;
+        private final Map<String, Integer> distances;
+        private final int maxDistance;
+
+        private Matches(int[][] groups, Map<String, Integer> distances, int maxDistance) {
+            this.groups = groups;
+            this.distances = distances;
+            this.maxDistance = maxDistance;
+        }
+
+        /**
+         * @return ascending IDs of the persons whose closest value is at the distance
+         */
+        public int[] ids(int distance) {
+            return groups[distance];
+        }
+
+        /**
+         * Tells how close the values are to the query without comparing them with it again, values which were
+         * not found are too far.
+         *
+         * @return the distance of the closest value, or the maximal distance + 1 when no value was found
+         */
+        public int distanceOf(String... values) {
+            int closest = maxDistance + 1;
+            for (String value : values) {
+                Integer distance = distances.get(keyOf(value));
+                if (distance != null) {
+                    closest = Math.min(closest, distance);
+                }
+            }
+            return closest;
+        }
+    }
+
+    /**
+     * IDs of the persons of the names falling into the stripe, guarded by its own read-write lock.
+     */
+    private static final class Stripe {
+        private final Map<String, IntSet> ids = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(String key, int id, Dictionary dictionary) {
+            lock.writeLock().lock();
+            try {
+                IntSet set = ids.get(key);
+                if (set == null) {
+                    set = new IntSet();
+                    ids.put(key, set);
+                    dictionary.add(key);
+                }
+                set.add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String key, int id, Dictionary dictionary) {
+            lock.writeLock().lock();
+            try {
+                IntSet set = ids.get(key);
+                if (set != null && set.remove(id) && set.isEmpty()) {
+                    ids.remove(key);
+                    dictionary.remove(key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Keeps the lowest distance of every ID, the distances are stored increased by one.
+         */
+        void collect(String key, int distance, IntIntHashMap closest) {
+            lock.readLock().lock();
+            try {
+                IntSet set = ids.get(key);
+                if (set != null) {
+                    set.forEach(id -> {
+                        int known = closest.get(id);
+                        if (known == IntIntHashMap.MISSING || known > distance + 1) {
+                            closest.put(id, distance + 1);
+                        }
+                    });
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The distinct names and their deletion hashes. Names sharing a hash are chained through entries held in
+     * arrays, removed entries and name numbers are reused.
+     */
+    private static final class Dictionary {
+        private static final int END = 0;
+
+        private final Map<String, Integer> numbers = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final Deque<Integer> freeNumbers = new ArrayDeque<>();
+        private final LongIntHashMap heads = new LongIntHashMap();
+        private int[] entryNames = new int[16];
+        private int[] entryNext = new int[16];
+        // entry 0 marks the end of a chain
+        private int entryCount = 1;
+        private int freeEntry = END;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(String key) {
+            long[] hashes = deletionHashes(key, MAX_DISTANCE);
+            lock.writeLock().lock();
+            try {
+                int number;
+                if (freeNumbers.isEmpty()) {
+                    number = names.size();
+                    names.add(key);
+                } else {
+                    number = freeNumbers.pop();
+                    names.set(number, key);
+                }
+                numbers.put(key, number);
+                for (long hash : hashes) {
+                    int entry = newEntry();
+                    entryNames[entry] = number;
+                    entryNext[entry] = heads.get(hash);
+                    heads.put(hash, entry);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String key) {
+            long[] hashes = deletionHashes(key, MAX_DISTANCE);
+            lock.writeLock().lock();
+            try {
+                Integer number = numbers.remove(key);
+                if (number == null) {
+                    return;
+                }
+                names.set(number, null);
+                freeNumbers.push(number);
+                for (long hash : hashes) {
+                    unlink(hash, number);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unlink(long hash, int number) {
+            int previous = END;
+            int entry = heads.get(hash);
+            while (entry != END) {
+                int next = entryNext[entry];
+                if (entryNames[entry] == number) {
+                    if (previous != END) {
+                        entryNext[previous] = next;
+                    } else if (next == END) {
+                        heads.remove(hash);
+                    } else {
+                        heads.put(hash, next);
+                    }
+                    entryNext[entry] = freeEntry;
+                    freeEntry = entry;
+                    return;
+                }
+                previous = entry;
+                entry = next;
+            }
+        }
+
+        private int newEntry() {
+            if (freeEntry != END) {
+                int entry = freeEntry;
+                freeEntry = entryNext[entry];
+                return entry;
+            }
+            if (entryCount == entryNames.length) {
+                entryNames = Arrays.copyOf(entryNames, entryCount * 2);
+                entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+            }
+            return entryCount++;
+        }
+
+        /**
+         * @return the names within the distance from the key, each with its distance
+         */
+        List<NameMatch> find(String key, int maxDistance) {
+            long[] hashes = deletionHashes(key, maxDistance);
+            List<NameMatch> matches = new ArrayList<>();
+            IntSet compared = new IntSet();
+            lock.readLock().lock();
+            try {
+                for (long hash : hashes) {
+                    for (int entry = heads.get(hash); entry != END; entry = entryNext[entry]) {
+                        int number = entryNames[entry];
+                        // IntSet holds positive values only
+                        if (compared.add(number + 1)) {
+                            String name = names.get(number);
+                            int distance = distance(key, name, maxDistance);
+                            if (distance <= maxDistance) {
+                                matches.add(new NameMatch(name, distance));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package bb.example.index;
+
+import java.util.Arrays;
+
+/**
+ * A map of non-negative int keys to int values backed by open-addressing arrays, so neither keys nor values are
+ * boxed. A missing key is reported as {@link #MISSING}, so the map is meant for positive values such as IDs.
+ * The class is not thread safe, the owning index takes care of locking.
+ *
+ * @author pollib
+ */
+public class IntIntHashMap {
+    public static final int MISSING = 0;
+
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntHashMap() {
+        keys = emptyKeys(MIN_CAPACITY);
+        values = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * @param key   a non-negative key
+     * @param value the value, other than {@link #MISSING}
+     * @return the previous value of the key or {@link #MISSING}
+     */
+    public int put(int key, int value) {
+        checkKey(key);
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return MISSING;
+    }
+
+    /**
+     * @return the value of the key or {@link #MISSING}
+     */
+    public int get(int key) {
+        if (key < 0) {
+            return MISSING;
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Removes the key. Uses backward shift deletion, so no tombstones are left in the table.
+     *
+     * @return the removed value or {@link #MISSING}
+     */
+    public int remove(int key) {
+        if (key < 0) {
+            return MISSING;
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = emptyKeys(capacity);
+        values = new int[capacity];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private static int[] emptyKeys(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    private static void checkKey(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Only non-negative keys can be stored: " + key);
+        }
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,145 @@
+package bb.example.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of positive integers (IDs) backed by an open-addressing table, so the values are never boxed.
+ * The class is not thread safe, the owning index takes care of locking.
+ *
+ * @author pollib
+ */
+public class IntSet {
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] table;
+    private int size;
+
+    public IntSet() {
+        table = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * Adds the value into the set.
+     *
+     * @param value a positive integer
+     * @return true if the value was not present before
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        if ((size + 1) * 4 > table.length * 3) {
+            resize(table.length * 2);
+        }
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the value from the set. Uses backward shift deletion, so no tombstones are left in the table.
+     *
+     * @param value a positive integer
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        checkValue(value);
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != value) {
+            if (table[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = mix(table[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value <= 0) {
+            return false;
+        }
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int value : table) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * @return the values of the set in ascending order
+     */
+    public int[] toSortedArray() {
+        int[] values = new int[size];
+        int i = 0;
+        for (int value : table) {
+            if (value != EMPTY) {
+                values[i++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void resize(int capacity) {
+        int[] oldTable = table;
+        table = new int[capacity];
+        size = 0;
+        for (int value : oldTable) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    private static void checkValue(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Only positive values can be stored: " + value);
+        }
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,118 @@
+package bb.example.index;
+
+/**
+ * A map of long keys to positive int values backed by open-addressing arrays, so neither keys nor values are boxed.
+ * Every long is a valid key, a slot is free when its value is {@link #MISSING}. The class is not thread safe, the
+ * owning index takes care of locking.
+ *
+ * @author pollib
+ */
+public class LongIntHashMap {
+    public static final int MISSING = 0;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public LongIntHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * @param value the value, other than {@link #MISSING}
+     * @return the previous value of the key or {@link #MISSING}
+     */
+    public int put(long key, int value) {
+        if (value == MISSING) {
+            throw new IllegalArgumentException("The missing value cannot be stored");
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return MISSING;
+    }
+
+    /**
+     * @return the value of the key or {@link #MISSING}
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Removes the key. Uses backward shift deletion, so no tombstones are left in the table.
+     *
+     * @return the removed value or {@link #MISSING}
+     */
+    public int remove(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != key || values[slot] == MISSING) {
+            if (values[slot] == MISSING) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != MISSING) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = MISSING;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != MISSING) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
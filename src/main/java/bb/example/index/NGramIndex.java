@@ -0,0 +1,310 @@
+package bb.example.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted trigram index used for substring searches. Each value is padded with a sentinel character on both sides,
+ * so even one and two character queries can be answered from the gram dictionary instead of the whole database.
+ * The index only narrows the search to candidate IDs, the caller verifies the candidates against the real values.
+ * <p>
+ * Grams are spread over independently locked stripes, so writers touching different grams and concurrent searches
+ * do not serialize on a single monitor. Updates of one ID are expected to be serialized by the caller.
+ *
+ * @author pollib
+ */
+public class NGramIndex {
+    private static final int N = 3;
+    private static final char PADDING = '\0';
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public NGramIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Indexes the values of a newly recorded person.
+     *
+     * @param id     the ID of the person
+     * @param values values to be searchable (name, surname)
+     */
+    public void add(int id, String... values) {
+        for (long gram : gramsOf(values)) {
+            stripeOf(gram).add(gram, id);
+        }
+    }
+
+    /**
+     * Removes the values of a person from the index.
+     *
+     * @param id     the ID of the person
+     * @param values values which were indexed for the person
+     */
+    public void remove(int id, String... values) {
+        for (long gram : gramsOf(values)) {
+            stripeOf(gram).remove(gram, id);
+        }
+    }
+
+    /**
+     * Indexes values of many persons, each stripe is locked only once for the whole batch.
+     *
+     * @param ids    IDs of the persons
+     * @param values values of the persons in the order of the IDs
+     */
+    public void addAll(int[] ids, String[][] values) {
+        applyBatch(ids, values, true);
+    }
+
+    /**
+     * Removes values of many persons, each stripe is locked only once for the whole batch.
+     *
+     * @param ids    IDs of the persons
+     * @param values values which were indexed for the persons in the order of the IDs
+     */
+    public void removeAll(int[] ids, String[][] values) {
+        applyBatch(ids, values, false);
+    }
+
+    private void applyBatch(int[] ids, String[][] values, boolean add) {
+        List<List<long[]>> postingsByStripe = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            postingsByStripe.add(new ArrayList<>());
+        }
+        for (int i = 0; i < ids.length; i++) {
+            for (long gram : gramsOf(values[i])) {
+                postingsByStripe.get(stripeIndexOf(gram)).add(new long[]{gram, ids[i]});
+            }
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            if (!postingsByStripe.get(i).isEmpty()) {
+                stripes[i].applyBatch(postingsByStripe.get(i), add);
+            }
+        }
+    }
+
+    /**
+     * Replaces indexed values of a person. Grams shared by the old and the new values are left untouched.
+     *
+     * @param id        the ID of the person
+     * @param oldValues values which were indexed for the person
+     * @param newValues values to be indexed from now on
+     */
+    public void update(int id, String[] oldValues, String[] newValues) {
+        Set<Long> newGrams = gramsOf(newValues);
+        for (long gram : newGrams) {
+            stripeOf(gram).add(gram, id);
+        }
+        for (long gram : gramsOf(oldValues)) {
+            if (!newGrams.contains(gram)) {
+                stripeOf(gram).remove(gram, id);
+            }
+        }
+    }
+
+    /**
+     * Collects IDs of persons whose indexed values may contain the query.
+     *
+     * @param query searched substring
+     * @return ascending candidate IDs, or null when the index cannot narrow the search (empty query)
+     */
+    public int[] candidates(String query) {
+        if (query.isEmpty() || query.indexOf(PADDING) >= 0) {
+            return null;
+        }
+        if (query.length() < N) {
+            return shortQueryCandidates(query);
+        }
+
+        Set<Long> queryGrams = new HashSet<>();
+        for (int i = 0; i + N <= query.length(); i++) {
+            queryGrams.add(gramAt(query, i));
+        }
+
+        long smallestGram = 0;
+        int smallestSize = Integer.MAX_VALUE;
+        for (long gram : queryGrams) {
+            int size = stripeOf(gram).postingSize(gram);
+            if (size == 0) {
+                return new int[0];
+            }
+            if (size < smallestSize) {
+                smallestSize = size;
+                smallestGram = gram;
+            }
+        }
+
+        int[] result = stripeOf(smallestGram).posting(smallestGram);
+        int count = result.length;
+        for (long gram : queryGrams) {
+            if (gram != smallestGram && count > 0) {
+                count = stripeOf(gram).retainPosted(gram, result, count);
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private int[] shortQueryCandidates(String query) {
+        IntSet union = new IntSet();
+        for (Stripe stripe : stripes) {
+            stripe.collectMatching(query, union);
+        }
+        return union.toSortedArray();
+    }
+
+    private Stripe stripeOf(long gram) {
+        return stripes[stripeIndexOf(gram)];
+    }
+
+    private static int stripeIndexOf(long gram) {
+        return Long.hashCode(gram * 0x9E3779B97F4A7C15L) & (STRIPES - 1);
+    }
+
+    private static Set<Long> gramsOf(String... values) {
+        Set<Long> grams = new HashSet<>();
+        for (String value : values) {
+            String padded = PADDING + value + PADDING;
+            for (int i = 0; i + N <= padded.length(); i++) {
+                grams.add(gramAt(padded, i));
+            }
+        }
+        return grams;
+    }
+
+    private static long gramAt(String value, int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+
+    private static boolean gramContains(long gram, String query) {
+        char first = (char) (gram >>> 32);
+        char second = (char) (gram >>> 16);
+        char third = (char) gram;
+        if (query.length() == 1) {
+            char c = query.charAt(0);
+            return first == c || second == c || third == c;
+        }
+        char c0 = query.charAt(0);
+        char c1 = query.charAt(1);
+        return (first == c0 && second == c1) || (second == c0 && third == c1);
+    }
+
+    /**
+     * A part of the gram dictionary guarded by its own read-write lock.
+     */
+    private static final class Stripe {
+        private final Map<Long, IntSet> postings = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(long gram, int id) {
+            lock.writeLock().lock();
+            try {
+                postings.computeIfAbsent(gram, key -> new IntSet()).add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long gram, int id) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(gram, id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @param gramIdPairs pairs of a gram and an ID
+         * @param add         true to add the IDs, false to remove them
+         */
+        void applyBatch(List<long[]> gramIdPairs, boolean add) {
+            lock.writeLock().lock();
+            try {
+                for (long[] pair : gramIdPairs) {
+                    if (add) {
+                        postings.computeIfAbsent(pair[0], key -> new IntSet()).add((int) pair[1]);
+                    } else {
+                        removeLocked(pair[0], (int) pair[1]);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeLocked(long gram, int id) {
+            IntSet posting = postings.get(gram);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+
+        int postingSize(long gram) {
+            lock.readLock().lock();
+            try {
+                IntSet posting = postings.get(gram);
+                return posting == null ? 0 : posting.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int[] posting(long gram) {
+            lock.readLock().lock();
+            try {
+                IntSet posting = postings.get(gram);
+                return posting == null ? new int[0] : posting.toSortedArray();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Keeps only the IDs posted under the gram at the beginning of the array, preserving their order.
+         *
+         * @return number of retained IDs
+         */
+        int retainPosted(long gram, int[] ids, int count) {
+            lock.readLock().lock();
+            try {
+                IntSet posting = postings.get(gram);
+                if (posting == null) {
+                    return 0;
+                }
+                int retained = 0;
+                for (int i = 0; i < count; i++) {
+                    if (posting.contains(ids[i])) {
+                        ids[retained++] = ids[i];
+                    }
+                }
+                return retained;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void collectMatching(String query, IntSet target) {
+            lock.readLock().lock();
+            try {
+                for (Map.Entry<Long, IntSet> entry : postings.entrySet()) {
+                    if (gramContains(entry.getKey(), query)) {
+                        entry.getValue().forEach(target::add);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
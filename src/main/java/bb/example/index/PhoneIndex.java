@@ -0,0 +1,221 @@
+package bb.example.index;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of 9-digit phone numbers for exact and prefix lookups. A phone number is packed into an int and mapped to the
+ * ID of a person having it, persons sharing the number are chained through a second map from an ID to the next ID,
+ * so no value is ever boxed. Phone numbers of another form are not indexed.
+ * <p>
+ * A prefix of six or more digits covers at most a thousand numbers, those are looked up one by one. Shorter prefixes
+ * scan the primitive tables instead of the persons. Numbers are spread over independently locked stripes, updates of
+ * one ID are expected to be serialized by the caller.
+ *
+ * @author pollib
+ */
+public class PhoneIndex {
+    public static final int PHONE_DIGITS = 9;
+
+    private static final int STRIPES = 64;
+    private static final int MAX_ENUMERATED_NUMBERS = 1000;
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public PhoneIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void add(int id, String phone) {
+        int number = encode(phone);
+        if (number >= 0) {
+            stripeOf(number).add(number, id);
+        }
+    }
+
+    public void remove(int id, String phone) {
+        int number = encode(phone);
+        if (number >= 0) {
+            stripeOf(number).remove(number, id);
+        }
+    }
+
+    public void update(int id, String oldPhone, String newPhone) {
+        if (!oldPhone.equals(newPhone)) {
+            remove(id, oldPhone);
+            add(id, newPhone);
+        }
+    }
+
+    /**
+     * @param phone a phone number of 9 digits
+     * @return ascending IDs of the persons with the phone number
+     */
+    public int[] find(String phone) {
+        int number = encode(phone);
+        if (number < 0) {
+            return new int[0];
+        }
+        IdCollector ids = new IdCollector();
+        stripeOf(number).collect(number, ids);
+        return ids.toSortedArray();
+    }
+
+    /**
+     * @param prefix the first digits of a phone number, up to 9
+     * @return ascending IDs of the persons whose phone number starts with the prefix
+     */
+    public int[] findByPrefix(String prefix) {
+        if (prefix.length() > PHONE_DIGITS || !isDigits(prefix)) {
+            return new int[0];
+        }
+        int freeDigits = PHONE_DIGITS - prefix.length();
+        int width = POWERS_OF_TEN[freeDigits];
+        int from = prefix.isEmpty() ? 0 : Integer.parseInt(prefix) * width;
+        int to = from + width;
+
+        IdCollector ids = new IdCollector();
+        if (width <= MAX_ENUMERATED_NUMBERS) {
+            for (int number = from; number < to; number++) {
+                stripeOf(number).collect(number, ids);
+            }
+        } else {
+            for (Stripe stripe : stripes) {
+                stripe.collectRange(from, to, ids);
+            }
+        }
+        return ids.toSortedArray();
+    }
+
+    /**
+     * @return the phone number packed into an int, or -1 when it is not exactly 9 ASCII digits
+     */
+    static int encode(String phone) {
+        if (phone == null || phone.length() != PHONE_DIGITS || !isDigits(phone)) {
+            return -1;
+        }
+        return Integer.parseInt(phone);
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char digit = value.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Stripe stripeOf(int number) {
+        return stripes[(number * 0x9E3779B9 >>> 16) & (STRIPES - 1)];
+    }
+
+    /**
+     * A growable array of IDs, cheaper than a list of boxed integers.
+     */
+    private static final class IdCollector {
+        private int[] ids = new int[8];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int[] toSortedArray() {
+            int[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * A part of the index guarded by its own read-write lock. The first ID of every number is in heads, the other IDs
+     * of the number follow in a chain kept in next.
+     */
+    private static final class Stripe {
+        private final IntIntHashMap heads = new IntIntHashMap();
+        private final IntIntHashMap next = new IntIntHashMap();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(int number, int id) {
+            lock.writeLock().lock();
+            try {
+                int previousHead = heads.put(number, id);
+                if (previousHead != IntIntHashMap.MISSING) {
+                    next.put(id, previousHead);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(int number, int id) {
+            lock.writeLock().lock();
+            try {
+                int head = heads.get(number);
+                if (head == id) {
+                    int following = next.remove(id);
+                    if (following == IntIntHashMap.MISSING) {
+                        heads.remove(number);
+                    } else {
+                        heads.put(number, following);
+                    }
+                    return;
+                }
+                int previous = head;
+                while (previous != IntIntHashMap.MISSING) {
+                    int current = next.get(previous);
+                    if (current == id) {
+                        int following = next.remove(id);
+                        if (following == IntIntHashMap.MISSING) {
+                            next.remove(previous);
+                        } else {
+                            next.put(previous, following);
+                        }
+                        return;
+                    }
+                    previous = current;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void collect(int number, IdCollector ids) {
+            lock.readLock().lock();
+            try {
+                collectChain(heads.get(number), ids);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void collectRange(int from, int to, IdCollector ids) {
+            lock.readLock().lock();
+            try {
+                heads.forEach((number, head) -> {
+                    if (number >= from && number < to) {
+                        collectChain(head, ids);
+                    }
+                });
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void collectChain(int id, IdCollector ids) {
+            while (id != IntIntHashMap.MISSING) {
+                ids.add(id);
+                id = next.get(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package bb.example.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index of persons in alphabetical order by surname, name and ID, so a listing by surname, a prefix or a range of
+ * surnames is read without sorting or scanning the whole database. Surnames and names are ordered as keys of
+ * {@link TextNormalizer}, "novak", "Novák" and "NOVAK" stand next to each other and are ordered by name and ID.
+ * <p>
+ * The index has two levels: a sorted map of the distinct surnames and for each surname a sorted set of the names and
+ * IDs of its persons, both concurrent skip lists, so lookups never block writers. There are far fewer surnames than
+ * persons, the upper level stays in the CPU cache and an update walks only the short set of one surname. Every entry
+ * carries the first letters of the name packed into a long, most comparisons are decided without reading the string.
+ * <p>
+ * Sets of surnames are added and removed under independently locked stripes, so an empty set is never dropped while
+ * another writer adds into it. Updates of one ID are expected to be serialized by the caller.
+ *
+ * @author pollib
+ */
+public class SurnameIndex {
+    private static final int STRIPES = 64;
+
+    private final NavigableMap<String, NavigableSet<Entry>> surnames = new ConcurrentSkipListMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public SurnameIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public void add(int id, String surname, String name) {
+        String surnameKey = keyOf(surname);
+        Entry entry = new Entry(keyOf(name), id);
+        ReentrantLock lock = lockOf(surnameKey);
+        lock.lock();
+        try {
+            surnames.computeIfAbsent(surnameKey, key -> new ConcurrentSkipListSet<>()).add(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(int id, String surname, String name) {
+        String surnameKey = keyOf(surname);
+        Entry entry = new Entry(keyOf(name), id);
+        ReentrantLock lock = lockOf(surnameKey);
+        lock.lock();
+        try {
+            NavigableSet<Entry> entries = surnames.get(surnameKey);
+            if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+                surnames.remove(surnameKey);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void update(int id, String oldSurname, String oldName, String newSurname, String newName) {
+        if (!keyOf(oldSurname).equals(keyOf(newSurname)) || !keyOf(oldName).equals(keyOf(newName))) {
+            remove(id, oldSurname, oldName);
+            add(id, newSurname, newName);
+        }
+    }
+
+    /**
+     * @param prefix the first letters of the surname
+     * @return IDs of the persons whose surname starts with the prefix in alphabetical order
+     */
+    public int[] findByPrefix(String prefix) {
+        String key = keyOf(prefix);
+        IdCollector ids = new IdCollector();
+        for (Map.Entry<String, NavigableSet<Entry>> surname : surnames.tailMap(key, true).entrySet()) {
+            if (!surname.getKey().startsWith(key)) {
+                break;
+            }
+            ids.addAll(surname.getValue(), Integer.MAX_VALUE);
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * @param from the lowest surname, inclusive
+     * @param to   the highest surname, exclusive
+     * @return IDs of the persons with a surname within the range in alphabetical order
+     */
+    public int[] findRange(String from, String to) {
+        String fromKey = keyOf(from);
+        String toKey = keyOf(to);
+        IdCollector ids = new IdCollector();
+        if (fromKey.compareTo(toKey) < 0) {
+            for (NavigableSet<Entry> entries : surnames.subMap(fromKey, true, toKey, false).values()) {
+                ids.addAll(entries, Integer.MAX_VALUE);
+            }
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * Reads the IDs following a person in alphabetical order. The position is given by the values of the person
+     * as they were listed, so paging continues at the right place even when the person was edited or deleted since.
+     *
+     * @param surname the surname of the last person of the previous page, null for the first page
+     * @param name    the name of the last person of the previous page
+     * @param id      the ID of the last person of the previous page
+     * @param limit   maximal number of IDs
+     * @return IDs of the persons following the given one in alphabetical order
+     */
+    public int[] page(String surname, String name, int id, int limit) {
+        IdCollector ids = new IdCollector();
+        NavigableMap<String, NavigableSet<Entry>> following = surnames;
+        if (surname != null) {
+            String surnameKey = keyOf(surname);
+            NavigableSet<Entry> entries = surnames.get(surnameKey);
+            if (entries != null) {
+                ids.addAll(entries.tailSet(new Entry(keyOf(name), id), false), limit);
+            }
+            following = surnames.tailMap(surnameKey, false);
+        }
+        for (NavigableSet<Entry> entries : following.values()) {
+            if (ids.size == limit) {
+                break;
+            }
+            ids.addAll(entries, limit);
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * @return the key under which the surname or name is ordered
+     */
+    public static String keyOf(String value) {
+        return TextNormalizer.normalize(value.strip());
+    }
+
+    /**
+     * Compares the values of two persons in the order of the index.
+     */
+    public static int compare(String surname, String name, int id, String otherSurname, String otherName, int otherId) {
+        int order = keyOf(surname).compareTo(keyOf(otherSurname));
+        return order != 0 ? order : new Entry(keyOf(name), id).compareTo(new Entry(keyOf(otherName), otherId));
+    }
+
+    private ReentrantLock lockOf(String surnameKey) {
+        return locks[surnameKey.hashCode() & (STRIPES - 1)];
+    }
+
+    /**
+     * Packs the first eight characters of the key into a long ordered like the keys, so a different packed value
+     * decides the order of two keys. A character above 0xFE is stored as 0xFF, keys with equal packed values are
+     * compared as strings unless both are short enough to be packed whole.
+     */
+    static long packedPrefix(String key) {
+        long packed = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            packed = packed << Byte.SIZE | (i < key.length() ? Math.min(key.charAt(i), 0xFF) : 0);
+        }
+        return packed;
+    }
+
+    /**
+     * @return true if the packed prefix holds the whole key
+     */
+    static boolean packedWhole(String key) {
+        if (key.length() > Long.BYTES) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) == 0 || key.charAt(i) >= 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A person in the set of its surname. The name key is kept only when it is longer than its packed prefix, most
+     * entries then hold no string at all.
+     */
+    private record Entry(long namePrefix, String nameKey, int id) implements Comparable<Entry> {
+        Entry(String nameKey, int id) {
+            this(packedPrefix(nameKey), packedWhole(nameKey) ? null : nameKey, id);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int order = Long.compareUnsigned(namePrefix, other.namePrefix);
+            if (order == 0 && (nameKey != null || other.nameKey != null)) {
+                order = nameOf(this).compareTo(nameOf(other));
+            }
+            return order != 0 ? order : Integer.compare(id, other.id);
+        }
+
+        /**
+         * @return the name key, unpacked when it was not kept
+         */
+        private static String nameOf(Entry entry) {
+            if (entry.nameKey != null) {
+                return entry.nameKey;
+            }
+            char[] name = new char[Long.BYTES];
+            int length = 0;
+            for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                char c = (char) (entry.namePrefix >>> shift & 0xFF);
+                if (c == 0) {
+                    break;
+                }
+                name[length++] = c;
+            }
+            return new String(name, 0, length);
+        }
+    }
+
+    /**
+     * A growable array of IDs kept in the order they were read.
+     */
+    private static final class IdCollector {
+        private int[] ids = new int[16];
+        private int size;
+
+        void addAll(Iterable<Entry> entries, int limit) {
+            for (Entry entry : entries) {
+                if (size == limit) {
+                    return;
+                }
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = entry.id();
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
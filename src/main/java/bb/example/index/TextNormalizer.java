@@ -0,0 +1,54 @@
+package bb.example.index;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Folds names into search keys which ignore letter case and diacritics, "Nováková" and "NOVAKOVA" both become
+ * "novakova". Letters which are not composed of a base letter and a mark (ł, đ, ø, ß, æ) are replaced by their
+ * closest ASCII form as well.
+ *
+ * @author pollib
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * @return the search key of the value, the value itself when it is already lower case ASCII
+     */
+    public static String normalize(String value) {
+        boolean lowerCase = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                return fold(value);
+            }
+            if (c >= 'A' && c <= 'Z') {
+                lowerCase = false;
+            }
+        }
+        return lowerCase ? value : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String fold(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            switch (c) {
+                case 'ł', 'Ł' -> key.append('l');
+                case 'đ', 'Đ' -> key.append('d');
+                case 'ø', 'Ø' -> key.append('o');
+                case 'ß', 'ẞ' -> key.append("ss");
+                case 'æ', 'Æ' -> key.append("ae");
+                default -> key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package bb.example.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts calls and processed records of the database operations and measures their latencies.
+ * <p>
+ * An operation takes the time by {@link #start()} and reports it by {@link #record(Operation, long, long)}. The hot
+ * path only reads the clock and increments striped counters, it allocates nothing and takes no locks. Disabled
+ * metrics do not even read the clock.
+ *
+ * @author pollib
+ */
+public class DatabaseMetrics {
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final DatabaseMetrics DISABLED = new DatabaseMetrics(false);
+
+    private final boolean enabled;
+    private final LongAdder[] calls = new LongAdder[OPERATIONS.length];
+    private final LongAdder[] records = new LongAdder[OPERATIONS.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder exportBytes = new LongAdder();
+    private final LongAdder exportNanos = new LongAdder();
+
+    public DatabaseMetrics() {
+        this(true);
+    }
+
+    private DatabaseMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            calls[i] = new LongAdder();
+            records[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return metrics which record nothing, for callers which cannot afford even reading the clock
+     */
+    public static DatabaseMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the start time of an operation to be passed to {@link #record(Operation, long, long)}
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a completed operation.
+     *
+     * @param operation   the operation
+     * @param startNanos  the time returned by {@link #start()} when the operation began
+     * @param recordCount number of persons processed by the operation
+     */
+    public void record(Operation operation, long startNanos, long recordCount) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        int i = operation.ordinal();
+        calls[i].increment();
+        records[i].add(recordCount);
+        latencies[i].record(elapsed);
+    }
+
+    /**
+     * Records a completed export, its duration also counts to the export byte rate.
+     */
+    public void recordExport(long startNanos, long recordCount, long bytes) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        record(Operation.EXPORT, startNanos, recordCount);
+        exportBytes.add(bytes);
+        exportNanos.add(elapsed);
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<Operation, MetricsSnapshot.OperationStats> operations = new EnumMap<>(Operation.class);
+        for (Operation operation : OPERATIONS) {
+            int i = operation.ordinal();
+            operations.put(operation, new MetricsSnapshot.OperationStats(calls[i].sum(), records[i].sum(), latencies[i].snapshot()));
+        }
+        return new MetricsSnapshot(Collections.unmodifiableMap(operations), exportBytes.sum(), exportNanos.sum());
+    }
+}
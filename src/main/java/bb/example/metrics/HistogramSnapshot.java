@@ -0,0 +1,9 @@
+package bb.example.metrics;
+
+/**
+ * Latency distribution at one moment, all values are in nanoseconds.
+ *
+ * @author pollib
+ */
+public record HistogramSnapshot(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+}
@@ -0,0 +1,147 @@
+package bb.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds, in the manner of HdrHistogram. Every power of two is split into
+ * {@value #SUB_BUCKETS} buckets of equal width, so a recorded value is known with a relative error of about 3 %.
+ * <p>
+ * Recording only increments a counter and never locks, so it can be called on every operation from any number of
+ * threads. Like in {@link LongAdder} the counters are striped: threads start on a shared set of counters and a thread
+ * whose increment collides with another one moves to its own stripe, chosen by its ID, allocated on the first
+ * collision and kept since. Uncontended histograms thus hold a single set of counters, while threads recording the
+ * same operation on several cores do not keep stealing each other's cache lines. Values above about 18 minutes are
+ * counted as that limit.
+ *
+ * @author pollib
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates a histogram with as many stripes as there are processors.
+     */
+    public LatencyHistogram() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes the highest number of counter sets, rounded up to a power of two
+     */
+    LatencyHistogram(int stripes) {
+        int bounded = Math.min(Math.max(stripes, 1), MAX_STRIPES);
+        this.stripes = new AtomicReferenceArray<>(Integer.highestOneBit(bounded * 2 - 1));
+        this.stripes.set(0, new AtomicLongArray(BUCKETS));
+    }
+
+    /**
+     * @param nanos a measured latency, negative values are counted as zero
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        increment(bucketOf(value));
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    private void increment(int bucket) {
+        int stripe = stripeOf(Thread.currentThread());
+        AtomicLongArray counts = stripes.get(stripe);
+        if (counts != null) {
+            counts.incrementAndGet(bucket);
+            return;
+        }
+        AtomicLongArray shared = stripes.get(0);
+        long current = shared.get(bucket);
+        if (!shared.compareAndSet(bucket, current, current + 1)) {
+            stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+            stripes.get(stripe).incrementAndGet(bucket);
+        }
+    }
+
+    private int stripeOf(Thread thread) {
+        // Fibonacci hashing spreads the consecutive thread IDs over the stripes
+        return (int) (thread.threadId() * 0x9E3779B97F4A7C15L >>> 32) & (stripes.length() - 1);
+    }
+
+    /**
+     * Copies the counters. Values recorded during the copy may or may not be included, the snapshot is still
+     * consistent enough for reporting.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int stripe = 0; stripe < stripes.length(); stripe++) {
+            AtomicLongArray counts = stripes.get(stripe);
+            if (counts == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long value = counts.get(i);
+                copy[i] += value;
+                count += value;
+            }
+        }
+        long maxValue = max.get();
+        return new HistogramSnapshot(count, count == 0 ? 0 : (double) sum.sum() / count,
+                percentile(copy, count, 0.50, maxValue), percentile(copy, count, 0.90, maxValue),
+                percentile(copy, count, 0.99, maxValue), percentile(copy, count, 0.999, maxValue), maxValue);
+    }
+
+    /**
+     * @return the highest value of the bucket where the percentile falls, never more than the recorded maximum
+     */
+    private static long percentile(long[] counts, long total, double fraction, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        return lowestValueOf(bucket) + (1L << shift) - 1;
+    }
+}
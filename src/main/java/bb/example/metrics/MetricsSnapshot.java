@@ -0,0 +1,33 @@
+package bb.example.metrics;
+
+import java.util.Map;
+
+/**
+ * Counters and latencies of all operations at one moment.
+ *
+ * @param operations  statistics of every operation, in the order of {@link Operation}
+ * @param exportBytes bytes written by all exports
+ * @param exportNanos time spent by all exports
+ * @author pollib
+ */
+public record MetricsSnapshot(Map<Operation, OperationStats> operations, long exportBytes, long exportNanos) {
+
+    public OperationStats get(Operation operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return average export speed in bytes per second, 0 when nothing was exported yet
+     */
+    public double exportBytesPerSecond() {
+        return exportNanos == 0 ? 0 : exportBytes * 1e9 / exportNanos;
+    }
+
+    /**
+     * @param calls   number of completed calls
+     * @param records number of persons added, found, listed, modified, deleted, exported or imported by the calls
+     * @param latency distribution of the call durations
+     */
+    public record OperationStats(long calls, long records, HistogramSnapshot latency) {
+    }
+}
@@ -0,0 +1,35 @@
+package bb.example.metrics;
+
+/**
+ * Operations measured by {@link DatabaseMetrics}.
+ *
+ * @author pollib
+ */
+public enum Operation {
+    ADD("add"),
+    ADD_BATCH("add batch"),
+    FIND_BY_ID("find by ID"),
+    SEARCH("search"),
+    FUZZY_SEARCH("fuzzy search"),
+    PHONE_SEARCH("phone search"),
+    SURNAME_SEARCH("surname search"),
+    AGE_QUERY("age query"),
+    SCAN("scan"),
+    DUPLICATE_REPORT("duplicate report"),
+    LIST_PAGE("list page"),
+    EDIT("edit"),
+    DELETE("delete"),
+    DELETE_BATCH("delete batch"),
+    EXPORT("export"),
+    IMPORT("import");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
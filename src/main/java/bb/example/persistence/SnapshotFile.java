@@ -0,0 +1,231 @@
+package bb.example.persistence;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Full copy of the database written during a checkpoint of the {@link WriteAheadLog}, or on its own to keep a copy
+ * including the IDs. Besides the persons it remembers the first log segment which has to be replayed on top of it.
+ * <p>
+ * The file starts with a header of fixed size followed by the records of the persons. Names and surnames repeat a
+ * lot, a record refers to them by their index in the string table stored after the records. The trailer at the end
+ * of the file locates the string table and holds the CRC32 of everything before it. The loader maps the file into
+ * memory, checks it at once and decodes the records in place. Files of any other version are rejected.
+ *
+ * <pre>
+ * header:  magic int, version int, first segment long, next ID int
+ * record:  id int, name int, surname int, age int, phone length unsigned short, phone UTF-8 bytes
+ * table:   for every string: length unsigned short, UTF-8 bytes
+ * trailer: table offset long, record count int, string count int, checksum long
+ * </pre>
+ *
+ * @author pollib
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x49455350; // "IESP"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 20;
+    private static final int TRAILER_BYTES = 24;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final int RESTORE_BATCH = 65_536;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Content of the snapshot header needed for the recovery.
+     *
+     * @param firstSegment the first log segment which is not included in the snapshot
+     * @param nextId       the next ID at the time of the snapshot
+     */
+    public record Header(long firstSegment, int nextId) {
+    }
+
+    /**
+     * Writes the persons into a temporary file which atomically replaces the previous snapshot once it is synced.
+     *
+     * @param snapshotPath the snapshot file
+     * @param database     the database to be copied, it may change meanwhile
+     * @param firstSegment the first log segment which is not included in the snapshot, 0 without a log
+     */
+    public static void write(Path snapshotPath, PersonDatabase database, long firstSegment) throws IOException {
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 checksum = new CRC32();
+            OutputStream channelStream = Channels.newOutputStream(channel);
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(channelStream, checksum), 1 << 16));
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(firstSegment);
+            output.writeInt(database.nextId());
+
+            Map<String, Integer> stringIndexes = new HashMap<>();
+            List<byte[]> strings = new ArrayList<>();
+            long offset = HEADER_BYTES;
+            int records = 0;
+            for (Person person : database.listOfAllPersons()) {
+                byte[] phone = encode(person.phone());
+                output.writeInt(person.id());
+                output.writeInt(stringIndex(person.name(), stringIndexes, strings));
+                output.writeInt(stringIndex(person.surname(), stringIndexes, strings));
+                output.writeInt(person.age());
+                output.writeShort(phone.length);
+                output.write(phone);
+                offset += 18 + phone.length;
+                records++;
+            }
+            for (byte[] string : strings) {
+                output.writeShort(string.length);
+                output.write(string);
+            }
+            output.writeLong(offset);
+            output.writeInt(records);
+            output.writeInt(strings.size());
+            output.flush();
+            new DataOutputStream(channelStream).writeLong(checksum.getValue());
+            channel.force(true);
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int stringIndex(String value, Map<String, Integer> stringIndexes, List<byte[]> strings) throws IOException {
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(encode(value));
+            stringIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private static byte[] encode(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IOException("Value of " + bytes.length + " bytes cannot be written into the snapshot");
+        }
+        return bytes;
+    }
+
+    /**
+     * Loads the persons of the snapshot into the database.
+     *
+     * @param snapshotPath the snapshot file
+     * @param database     a database which contains none of the persons of the snapshot
+     * @return the header of the snapshot
+     * @throws IOException when the file cannot be read or its checksum does not match
+     */
+    public static Header load(Path snapshotPath, PersonDatabase database) throws IOException {
+        Header header = read(snapshotPath, database::restore);
+        database.advanceNextId(header.nextId());
+        return header;
+    }
+
+    /**
+     * Reads the persons of the snapshot in batches ordered by ID. The whole file is checked before the first batch.
+     *
+     * @param snapshotPath the snapshot file
+     * @param consumer     receives the batches, a batch is reused once the consumer returns
+     * @return the header of the snapshot
+     * @throws IOException when the file cannot be read or its checksum does not match
+     */
+    public static Header read(Path snapshotPath, Consumer<List<Person>> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file " + snapshotPath + " is too large to be mapped");
+            }
+            if (size < HEADER_BYTES) {
+                throw new IOException("Unsupported snapshot file " + snapshotPath);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Unsupported snapshot file " + snapshotPath);
+            }
+            int version = buffer.getInt(4);
+            if (version != FORMAT_VERSION || size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Unsupported snapshot file " + snapshotPath);
+            }
+            return readMapped(snapshotPath, buffer, consumer);
+        }
+    }
+
+    private static Header readMapped(Path snapshotPath, ByteBuffer buffer, Consumer<List<Person>> consumer) throws IOException {
+        int checksumOffset = buffer.limit() - Long.BYTES;
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(0, checksumOffset));
+        if (buffer.getLong(checksumOffset) != checksum.getValue()) {
+            throw new IOException("Snapshot file " + snapshotPath + " is corrupted");
+        }
+        Header header = new Header(buffer.getLong(8), buffer.getInt(16));
+        int trailer = buffer.limit() - TRAILER_BYTES;
+        long tableOffset = buffer.getLong(trailer);
+        int records = buffer.getInt(trailer + 8);
+        int stringCount = buffer.getInt(trailer + 12);
+        if (tableOffset < HEADER_BYTES || tableOffset > trailer) {
+            throw new IOException("Snapshot file " + snapshotPath + " is corrupted");
+        }
+
+        String[] strings = readStrings(buffer, (int) tableOffset, trailer, stringCount);
+        byte[] phone = new byte[MAX_STRING_BYTES];
+        List<Person> batch = new ArrayList<>(Math.min(records, RESTORE_BATCH));
+        int position = HEADER_BYTES;
+        for (int i = 0; i < records; i++) {
+            int id = buffer.getInt(position);
+            String name = strings[buffer.getInt(position + 4)];
+            String surname = strings[buffer.getInt(position + 8)];
+            int age = buffer.getInt(position + 12);
+            int phoneLength = Short.toUnsignedInt(buffer.getShort(position + 16));
+            buffer.get(position + 18, phone, 0, phoneLength);
+            position += 18 + phoneLength;
+            batch.add(new Person(id, name, surname, new String(phone, 0, phoneLength, StandardCharsets.UTF_8), age));
+            if (batch.size() == RESTORE_BATCH) {
+                consumer.accept(batch);
+                batch.clear();
+            }
+        }
+        if (position != tableOffset) {
+            throw new IOException("Snapshot file " + snapshotPath + " is corrupted");
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+        return header;
+    }
+
+    /**
+     * Decodes the whole string table, every name is then shared by all records referring to it.
+     */
+    private static String[] readStrings(ByteBuffer buffer, int from, int to, int count) {
+        byte[] table = new byte[to - from];
+        buffer.get(from, table);
+        String[] strings = new String[count];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int length = ((table[position] & 0xFF) << 8) | (table[position + 1] & 0xFF);
+            strings[i] = new String(table, position + 2, length, StandardCharsets.UTF_8);
+            position += 2 + length;
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,460 @@
+package bb.example.persistence;
+
+import bb.example.Person;
+import bb.example.PersonChange;
+import bb.example.PersonChangeListener;
+import bb.example.PersonDatabase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only log of all changes made in the {@link PersonDatabase}.
+ * <p>
+ * Every change is appended after it was applied in memory and the writer returns only once the record is synced to
+ * the disk. Writers arriving while a sync is running wait for it and their records are then written and synced
+ * together by one of them (group commit), so the cost of a sync is shared by the whole batch.
+ * <p>
+ * A writer replaying many changes at once can defer the syncs, its changes are then written in large batches and
+ * are durable only once {@link #flush()} returns.
+ * <p>
+ * The log is split into numbered segments. A checkpoint starts a new segment, writes a snapshot of the database and
+ * deletes the segments covered by it. On startup the database is rebuilt from the snapshot and the remaining segments.
+ *
+ * @author pollib
+ */
+public class WriteAheadLog implements PersonChangeListener, Closeable, Flushable {
+    public static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofMinutes(5);
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L << 20;
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_DEFERRED_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final PersonDatabase database;
+    private final long maxSegmentBytes;
+    private final ScheduledExecutorService checkpointScheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushFinished = lock.newCondition();
+    private ByteArrayOutputStream pendingRecords = new ByteArrayOutputStream();
+    private long appendedRecords;
+    private long durableRecords;
+    private boolean flushing;
+    private boolean deferredSync;
+    private boolean checkpointRequested;
+    private IOException failure;
+
+    private FileChannel segmentChannel;
+    private long segmentNumber;
+    private long segmentBytes;
+
+    private WriteAheadLog(Path directory, PersonDatabase database, Duration checkpointInterval, long maxSegmentBytes) {
+        this.directory = directory;
+        this.database = database;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = checkpointInterval.toMillis();
+        checkpointScheduler.scheduleWithFixedDelay(this::checkpointQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the log with the default checkpoint settings.
+     *
+     * @see #open(Path, PersonDatabase, Duration, long)
+     */
+    public static WriteAheadLog open(Path directory, PersonDatabase database) throws IOException {
+        return open(directory, database, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * Rebuilds the database from the latest snapshot and the log segments in the directory and starts logging
+     * its changes.
+     *
+     * @param directory          directory of the log, it is created when missing
+     * @param database           an empty database to be recovered and logged
+     * @param checkpointInterval how often a snapshot is taken
+     * @param maxSegmentBytes    size of a log segment which triggers an extra checkpoint
+     * @return the opened log, it has to be closed at the end
+     * @throws IOException when the files cannot be read or the snapshot is corrupted
+     */
+    public static WriteAheadLog open(Path directory, PersonDatabase database, Duration checkpointInterval, long maxSegmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        long firstSegment = 0;
+        Path snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotPath)) {
+            firstSegment = SnapshotFile.load(snapshotPath, database).firstSegment();
+        }
+
+        long lastSegment = firstSegment - 1;
+        for (long segment : listSegments(directory)) {
+            if (segment >= firstSegment) {
+                replaySegment(directory.resolve(segmentFileName(segment)), database);
+                lastSegment = Math.max(lastSegment, segment);
+            }
+        }
+
+        WriteAheadLog log = new WriteAheadLog(directory, database, checkpointInterval, maxSegmentBytes);
+        try {
+            log.openSegment(Math.max(lastSegment + 1, firstSegment));
+        } catch (IOException e) {
+            log.checkpointScheduler.shutdownNow();
+            throw e;
+        }
+        database.addChangeListener(log);
+        return log;
+    }
+
+    /**
+     * Appends the change to the log and waits until it is durable.
+     *
+     * @throws UncheckedIOException when the log cannot be written
+     */
+    @Override
+    public void onChange(PersonChange change) {
+        append(List.of(encode(change)));
+    }
+
+    /**
+     * Appends all changes of a batch and waits only once until they are durable.
+     *
+     * @throws UncheckedIOException when the log cannot be written
+     */
+    @Override
+    public void onChanges(List<PersonChange> changes) {
+        List<byte[]> records = new ArrayList<>(changes.size());
+        for (PersonChange change : changes) {
+            records.add(encode(change));
+        }
+        append(records);
+    }
+
+    private void append(List<byte[]> records) {
+        boolean checkpointNeeded = false;
+        lock.lock();
+        try {
+            checkFailure();
+            for (byte[] record : records) {
+                pendingRecords.write(record, 0, record.length);
+            }
+            appendedRecords += records.size();
+            if (!deferredSync) {
+                awaitDurable(appendedRecords);
+            } else if (pendingRecords.size() >= MAX_DEFERRED_BYTES && !flushing) {
+                flushPending();
+            }
+            if (segmentBytes >= maxSegmentBytes && !checkpointRequested) {
+                checkpointRequested = true;
+                checkpointNeeded = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (checkpointNeeded) {
+            checkpointScheduler.execute(this::checkpointQuietly);
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is durable. Called with the lock held.
+     */
+    private void awaitDurable(long lastRecordNumber) {
+        while (durableRecords < lastRecordNumber) {
+            if (flushing) {
+                flushFinished.awaitUninterruptibly();
+                checkFailure();
+            } else {
+                flushPending();
+            }
+        }
+    }
+
+    /**
+     * Switches between syncing every change before the writer continues (the default) and syncing only when
+     * {@link #flush()} is called or enough changes are pending. Switching the deferring off flushes the log.
+     *
+     * @throws IOException when the pending changes cannot be written
+     */
+    public void setDeferredSync(boolean deferred) throws IOException {
+        lock.lock();
+        try {
+            deferredSync = deferred;
+        } finally {
+            lock.unlock();
+        }
+        if (!deferred) {
+            flush();
+        }
+    }
+
+    /**
+     * Waits until all changes appended so far are synced to the disk.
+     *
+     * @throws IOException when the log cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            checkFailure();
+            awaitDurable(appendedRecords);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the database and deletes the log segments it makes redundant. The new segment is started
+     * before the database is read, so every change missing in the snapshot is in a segment which is kept.
+     *
+     * @throws IOException when the snapshot cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        long firstSegment;
+        lock.lock();
+        try {
+            checkFailure();
+            while (flushing) {
+                flushFinished.awaitUninterruptibly();
+            }
+            if (pendingRecords.size() > 0) {
+                flushPending();
+            }
+            checkFailure();
+            segmentChannel.close();
+            try {
+                openSegment(segmentNumber + 1);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            firstSegment = segmentNumber;
+            checkpointRequested = false;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.unlock();
+        }
+
+        SnapshotFile.write(directory.resolve(SNAPSHOT_FILE), database, firstSegment);
+        for (long segment : listSegments(directory)) {
+            if (segment < firstSegment) {
+                Files.deleteIfExists(directory.resolve(segmentFileName(segment)));
+            }
+        }
+    }
+
+    /**
+     * Stops logging, takes a final checkpoint and closes the log files.
+     */
+    @Override
+    public void close() throws IOException {
+        database.removeChangeListener(this);
+        checkpointScheduler.shutdownNow();
+        try {
+            if (failure == null) {
+                checkpoint();
+            }
+        } finally {
+            lock.lock();
+            try {
+                segmentChannel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops logging and closes the files without a checkpoint, leaving them as after a crash of the process.
+     */
+    void halt() throws IOException {
+        database.removeChangeListener(this);
+        checkpointScheduler.shutdownNow();
+        synchronized (this) {
+            lock.lock();
+            try {
+                segmentChannel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes all pending records and syncs them. Called with the lock held, the lock is released during the I/O
+     * so other writers can queue up their records for the next batch.
+     */
+    private void flushPending() {
+        flushing = true;
+        ByteArrayOutputStream batch = pendingRecords;
+        long batchRecords = appendedRecords;
+        pendingRecords = new ByteArrayOutputStream();
+        lock.unlock();
+        IOException batchFailure = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            while (buffer.hasRemaining()) {
+                segmentChannel.write(buffer);
+            }
+            segmentChannel.force(false);
+        } catch (IOException e) {
+            batchFailure = e;
+        } finally {
+            lock.lock();
+        }
+        flushing = false;
+        if (batchFailure == null) {
+            durableRecords = batchRecords;
+            segmentBytes += batch.size();
+        } else {
+            failure = batchFailure;
+        }
+        flushFinished.signalAll();
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("The write-ahead log failed, changes are no longer persisted", failure);
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segmentChannel = FileChannel.open(directory.resolve(segmentFileName(number)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentNumber = number;
+        segmentBytes = 0;
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException | UncheckedIOException e) {
+            // The log keeps all changes, the next checkpoint will try again.
+        }
+    }
+
+    /**
+     * Record layout: payload length, CRC32 of the payload, payload (type, ID and the after image unless deleted).
+     */
+    static byte[] encode(PersonChange change) {
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeByte(change.type().ordinal());
+            payload.writeInt(change.id());
+            if (change.type() != PersonChange.Type.DELETE) {
+                Person person = change.after();
+                payload.writeUTF(person.name());
+                payload.writeUTF(person.surname());
+                payload.writeUTF(person.phone());
+                payload.writeInt(person.age());
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(payloadBytes.toByteArray());
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(payloadBytes.size() + RECORD_HEADER_BYTES);
+            DataOutputStream record = new DataOutputStream(recordBytes);
+            record.writeInt(payloadBytes.size());
+            record.writeInt((int) checksum.getValue());
+            payloadBytes.writeTo(record);
+            return recordBytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static PersonChange decode(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        PersonChange.Type type = PersonChange.Type.values()[input.readByte()];
+        int id = input.readInt();
+        if (type == PersonChange.Type.DELETE) {
+            return PersonChange.deleted(new Person(id, null, null, null, 0));
+        }
+        Person person = new Person(id, input.readUTF(), input.readUTF(), input.readUTF(), input.readInt());
+        return type == PersonChange.Type.ADD ? PersonChange.added(person) : PersonChange.edited(null, person);
+    }
+
+    /**
+     * Replays the records of a segment. A torn or corrupted record can only be the tail written during a crash,
+     * the segment is cut before it.
+     */
+    private static void replaySegment(Path segmentPath, PersonDatabase database) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // reading the whole segment
+            }
+            content.flip();
+
+            long validBytes = 0;
+            CRC32 checksum = new CRC32();
+            while (content.remaining() >= RECORD_HEADER_BYTES) {
+                int length = content.getInt();
+                int expectedChecksum = content.getInt();
+                if (length <= 0 || length > content.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                content.get(payload);
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    break;
+                }
+                database.replay(decode(payload));
+                validBytes += RECORD_HEADER_BYTES + length;
+            }
+            if (validBytes < channel.size()) {
+                channel.truncate(validBytes);
+            }
+        }
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static String segmentFileName(long segment) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX);
+    }
+}
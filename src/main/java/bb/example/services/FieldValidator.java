@@ -0,0 +1,137 @@
+package bb.example.services;
+
+/**
+ * Validates and parses the fields of a person within a range of characters, without creating any objects. The rules
+ * are those of {@link Validators}, which delegates here: a name consists of letters, spaces and hyphens and is not
+ * blank, a phone number of exactly 9 digits, an age of at most 9 digits in the range of 0-150.
+ *
+ * @author pollib
+ */
+public final class FieldValidator {
+    /**
+     * Returned by the parsing methods for an invalid number, valid numbers are never negative.
+     */
+    public static final int INVALID = -1;
+    public static final int PHONE_DIGITS = 9;
+    public static final int MAX_NUMBER_DIGITS = 9;
+    public static final int MAX_AGE = 150;
+
+    private FieldValidator() {
+    }
+
+    /**
+     * @return true when the range is not empty and contains only digits
+     */
+    public static boolean isNumber(CharSequence input, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (!Character.isDigit(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true when the range contains only letters, spaces and hyphens and at least one of them is not a space
+     */
+    public static boolean isName(CharSequence input, int from, int to) {
+        boolean blank = true;
+        for (int i = from; i < to; i++) {
+            char letter = input.charAt(i);
+            if (letter == ' ') {
+                continue;
+            }
+            if (letter != '-' && !Character.isAlphabetic(letter)) {
+                return false;
+            }
+            blank = false;
+        }
+        return !blank;
+    }
+
+    /**
+     * Parses a number of any length made of digits, the same as {@link Integer#parseInt} accepts from a valid number.
+     *
+     * @return the number, or {@link #INVALID} when the range is not a number or does not fit in an int
+     */
+    public static int parseNumber(CharSequence input, int from, int to) {
+        if (from >= to) {
+            return INVALID;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0) {
+                return INVALID;
+            }
+            if (value > (Integer.MAX_VALUE - digit) / 10) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return the ID, or {@link #INVALID} when the range is not a number of at most 9 digits
+     */
+    public static int parseId(CharSequence input, int from, int to) {
+        return to - from <= MAX_NUMBER_DIGITS ? parseNumber(input, from, to) : INVALID;
+    }
+
+    /**
+     * @param field {@link ValidationError#NAME_INVALID} or {@link ValidationError#SURNAME_INVALID}
+     * @return the given error when the range is not a name, null otherwise
+     */
+    public static ValidationError checkName(CharSequence input, int from, int to, ValidationError field) {
+        return isName(input, from, to) ? null : field;
+    }
+
+    /**
+     * @return the error of the phone number, null when it is valid
+     */
+    public static ValidationError checkPhone(CharSequence input, int from, int to) {
+        if (!isNumber(input, from, to)) {
+            return ValidationError.PHONE_NOT_DIGITS;
+        }
+        return to - from == PHONE_DIGITS ? null : ValidationError.PHONE_WRONG_LENGTH;
+    }
+
+    /**
+     * @return the age, or {@link #INVALID} when the range is not a number of at most 9 digits in the range of 0-150
+     */
+    public static int parseAge(CharSequence input, int from, int to) {
+        int age = parseId(input, from, to);
+        return age <= MAX_AGE ? age : INVALID;
+    }
+
+    /**
+     * @return the error of the age, null when it is valid
+     */
+    public static ValidationError checkAge(CharSequence input, int from, int to) {
+        if (parseId(input, from, to) == INVALID) {
+            return ValidationError.AGE_NOT_NUMBER;
+        }
+        return parseAge(input, from, to) == INVALID ? ValidationError.AGE_OUT_OF_RANGE : null;
+    }
+
+    /**
+     * Checks the fields in the order they are entered and reports the first error.
+     *
+     * @param age the age, or null when it is not checked (e.g. an edit keeps the age)
+     * @return the first error, null when all fields are valid
+     */
+    public static ValidationError checkPerson(CharSequence name, CharSequence surname, CharSequence phone, CharSequence age) {
+        ValidationError error = checkName(name, 0, name.length(), ValidationError.NAME_INVALID);
+        if (error == null) {
+            error = checkName(surname, 0, surname.length(), ValidationError.SURNAME_INVALID);
+        }
+        if (error == null) {
+            error = checkPhone(phone, 0, phone.length());
+        }
+        return error == null && age != null ? checkAge(age, 0, age.length()) : error;
+    }
+}
@@ -1,14 +1,25 @@
 package bb.example.services;
 
 import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.PersonPage;
+import bb.example.cache.CacheStats;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.metrics.HistogramSnapshot;
+import bb.example.metrics.MetricsSnapshot;
+import bb.example.metrics.Operation;
+import bb.example.services.iohandler.OutputHandler;
+import bb.example.services.transfer.BulkImporter;
+import bb.example.services.transfer.ExportResult;
+import bb.example.services.transfer.ImportResult;
+import bb.example.services.transfer.TextExporter;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.Collection;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 /**
@@ -17,7 +28,9 @@ import java.util.stream.Collectors;
  * @author pollib
  */
 public class Utilities {
+    public static final int PAGE_SIZE = 100;
 
+    private static final int MAX_PRINTED_REJECTS = 10;
 
     /**
      * Creates a readable list of people below each other.
@@ -30,26 +43,148 @@ public class Utilities {
     }
 
     /**
-     * Saves the database into the text file.
+     * Prints all persons of the database page by page, so only one page is held in memory at a time.
+     *
+     * @param database      Database of the people
+     * @param outputHandler Output where each page is printed as a list of the people
+     * @return Number of printed persons
+     */
+    public static long printAllPersons(PersonDatabase database, OutputHandler outputHandler) {
+        long printed = 0;
+        int afterId = 0;
+        PersonPage page;
+        do {
+            page = database.listPersons(afterId, PAGE_SIZE);
+            if (!page.persons().isEmpty()) {
+                outputHandler.print(buildPersonsList(page.persons()));
+                printed += page.persons().size();
+                afterId = page.lastId();
+            }
+        } while (page.hasMore());
+        return printed;
+    }
+
+    /**
+     * Prints all persons of the database in alphabetical order by surname page by page, the pages are read from the
+     * sorted index without sorting the database.
+     *
+     * @param database      Database of the people
+     * @param outputHandler Output where each page is printed as a list of the people
+     * @return Number of printed persons
+     */
+    public static long printPersonsBySurname(PersonDatabase database, OutputHandler outputHandler) {
+        long printed = 0;
+        Person after = null;
+        PersonPage page;
+        do {
+            page = database.listPersonsBySurname(after, PAGE_SIZE);
+            if (!page.persons().isEmpty()) {
+                outputHandler.print(buildPersonsList(page.persons()));
+                printed += page.persons().size();
+                after = page.lastPerson();
+            }
+        } while (page.hasMore());
+        return printed;
+    }
+
+    /**
+     * Saves the database into the text file. The file is written in one pass and replaces the previous one atomically.
      *
      * @param fileName      Name of the file to be saved
      * @param userDirectory Directory where the file will be saved, default is home directory, user can adjust it
      * @param persons       Database of the people
-     * @return String whether the creation was successful or not
+     * @return String whether the creation was successful or not, with the number of written records and bytes
      */
     public static String saveFileTxt(String fileName, String userDirectory, Collection<Person> persons) {
-        Path filePath = Paths.get(System.getProperty("user.home") + File.separator + userDirectory, fileName);
+        return saveFileTxt(fileName, userDirectory, persons, DatabaseMetrics.disabled());
+    }
+
+    /**
+     * Saves the database into the text file and records the duration, records and bytes of the export.
+     *
+     * @param fileName      Name of the file to be saved
+     * @param userDirectory Directory where the file will be saved, default is home directory, user can adjust it
+     * @param persons       Database of the people
+     * @param metrics       Metrics where the export is recorded
+     * @return String whether the creation was successful or not, with the number of written records and bytes
+     */
+    public static String saveFileTxt(String fileName, String userDirectory, Collection<Person> persons, DatabaseMetrics metrics) {
+        Path filePath = userFilePath(fileName, userDirectory);
 
         try {
-            Files.createDirectories(filePath.getParent());
-            Files.writeString(filePath, "Database of insured persons:" + System.lineSeparator(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            for (Person person : persons) {
-                Files.writeString(filePath, String.format("%s, %s, %s, %d" + System.lineSeparator(), person.name(), person.surname(), person.phone(), person.age()), StandardOpenOption.APPEND);
-            }
-            return "The file was created";
+            long start = metrics.start();
+            ExportResult result = new TextExporter().export(persons, filePath);
+            metrics.recordExport(start, result.records(), result.bytes());
+            return describeExport(result);
         } catch (
                 IOException e) {
             return "An error occurred while creating the file: " + e.getMessage();
         }
     }
+
+    /**
+     * @param fileName      Name of the file
+     * @param userDirectory Directory of the file relative to the home directory
+     * @return path of the file in the home directory of the user
+     */
+    public static Path userFilePath(String fileName, String userDirectory) {
+        return Paths.get(System.getProperty("user.home") + File.separator + userDirectory, fileName);
+    }
+
+    /**
+     * @param result Summary of a finished export
+     * @return String with the number of written records and bytes
+     */
+    public static String describeExport(ExportResult result) {
+        return "The file was created, records written: " + result.records() + ", bytes written: " + result.bytes();
+    }
+
+    /**
+     * Loads persons from a text file created by {@link #saveFileTxt} or from a CSV file into the database.
+     *
+     * @param fileName      Name of the file to be loaded
+     * @param userDirectory Directory of the file, relative to the home directory
+     * @param database      Database where the persons are added
+     * @return String with the number of loaded persons and the first rejected lines
+     */
+    public static String loadFile(String fileName, String userDirectory, PersonDatabase database) {
+        Path filePath = userFilePath(fileName, userDirectory);
+
+        try {
+            ImportResult result = new BulkImporter(database).importFile(filePath);
+            StringBuilder report = new StringBuilder("Insured persons loaded: " + result.accepted() + ", rejected lines: " + result.rejected());
+            result.rejects().stream()
+                    .limit(MAX_PRINTED_REJECTS)
+                    .forEach(reject -> report.append("\nLine ").append(reject.lineNumber()).append(": ").append(reject.reason()));
+            return report.toString();
+        } catch (IOException e) {
+            return "An error occurred while loading the file: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Creates a readable report of the operation counters and latencies, operations never called are left out.
+     *
+     * @param snapshot    Metrics of the database
+     * @param searchCache Statistics of the cache of search results
+     * @return String with one line per operation, the export byte rate and the hit rate of the search cache
+     */
+    public static String buildMetricsReport(MetricsSnapshot snapshot, CacheStats searchCache) {
+        StringBuilder report = new StringBuilder("Operation statistics (latency in microseconds):");
+        snapshot.operations().forEach((operation, stats) -> {
+            if (stats.calls() > 0) {
+                HistogramSnapshot latency = stats.latency();
+                report.append(String.format(Locale.ROOT, "%n%s: calls %d, records %d, mean %.1f, p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+                        operation.label(), stats.calls(), stats.records(), latency.mean() / 1000, latency.p50() / 1000.0,
+                        latency.p99() / 1000.0, latency.p999() / 1000.0, latency.max() / 1000.0));
+            }
+        });
+        if (snapshot.get(Operation.EXPORT).calls() > 0) {
+            report.append(String.format(Locale.ROOT, "%nExported bytes: %d, export rate: %.1f MB/s",
+                    snapshot.exportBytes(), snapshot.exportBytesPerSecond() / 1_000_000));
+        }
+        report.append(String.format(Locale.ROOT, "%nSearch cache: hits %d, misses %d, hit rate %.1f %%, cached results %d",
+                searchCache.hits(), searchCache.misses(), searchCache.hitRate() * 100, searchCache.size()));
+        return report.toString();
+    }
 }
@@ -0,0 +1,31 @@
+package bb.example.services;
+
+/**
+ * Reasons why an input field is rejected, returned by {@link FieldValidator} instead of a message, so the callers
+ * decide what to tell the user.
+ *
+ * @author pollib
+ */
+public enum ValidationError {
+    NAME_INVALID("The name must contain only letters of the alphabet"),
+    SURNAME_INVALID("The surname must contain only letters of the alphabet"),
+    PHONE_NOT_DIGITS("The phone number must be a 9-digit number"),
+    PHONE_WRONG_LENGTH("The phone number must be a 9-digit number"),
+    AGE_NOT_NUMBER("The age must be in the range of 0-150"),
+    AGE_OUT_OF_RANGE("The age must be in the range of 0-150"),
+    ID_INVALID("Invalid ID"),
+    FIELD_COUNT("Expected 4 fields: name, surname, phone, age");
+
+    private final String message;
+
+    ValidationError(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return the reason shown for a rejected line of a file or a script
+     */
+    public String message() {
+        return message;
+    }
+}
@@ -1,20 +1,22 @@
 package bb.example.services;
 
 /**
- * The class validates the user's input.
+ * The class validates the user's input. The rules are implemented by {@link FieldValidator}, which checks ranges of
+ * characters without allocating.
  *
  * @author pollib
  */
 public class Validators {
+
     public static boolean isValidNumber(String input) {
-        return !input.isBlank() && input.chars().allMatch(Character::isDigit);
+        return FieldValidator.isNumber(input, 0, input.length());
     }
 
     public static boolean doesContainChar(String input) {
-        return (input.chars().allMatch(letter -> Character.isAlphabetic(letter) || letter == ' ' || letter == '-') && !input.isBlank());
+        return FieldValidator.isName(input, 0, input.length());
     }
 
     public static boolean isAgeValid(int age) {
-        return (age >= 0 && age <= 150);
+        return (age >= 0 && age <= FieldValidator.MAX_AGE);
     }
 }
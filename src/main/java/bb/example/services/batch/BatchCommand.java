@@ -0,0 +1,58 @@
+package bb.example.services.batch;
+
+/**
+ * One parsed line of a batch script.
+ *
+ * @param kind       what the command does, {@link Kind#INVALID} for a line which cannot be executed
+ * @param lineNumber number of the line in the script, starting at 1
+ * @param arguments  the fields following the command name, for an invalid line the reason of the rejection
+ * @author pollib
+ */
+record BatchCommand(Kind kind, long lineNumber, String[] arguments) {
+
+    enum Kind {
+        /**
+         * add,name,surname,phone,age
+         */
+        ADD(4),
+        /**
+         * edit,id,name,surname,phone
+         */
+        EDIT(4),
+        /**
+         * delete,id
+         */
+        DELETE(1),
+        /**
+         * search,text
+         */
+        SEARCH(1),
+        /**
+         * export,path
+         */
+        EXPORT(1),
+        INVALID(1);
+
+        private final int arguments;
+
+        Kind(int arguments) {
+            this.arguments = arguments;
+        }
+
+        int arguments() {
+            return arguments;
+        }
+    }
+
+    static BatchCommand invalid(long lineNumber, String reason) {
+        return new BatchCommand(Kind.INVALID, lineNumber, new String[]{reason});
+    }
+
+    String argument(int index) {
+        return arguments[index];
+    }
+
+    int id() {
+        return Integer.parseInt(arguments[0]);
+    }
+}
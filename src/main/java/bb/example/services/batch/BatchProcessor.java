@@ -0,0 +1,335 @@
+package bb.example.services.batch;
+
+import bb.example.DuplicatePersonException;
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.PersonDetails;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.services.FieldValidator;
+import bb.example.services.ValidationError;
+import bb.example.services.transfer.ExportResult;
+import bb.example.services.transfer.ExportProgress;
+import bb.example.services.transfer.PersonExporter;
+import bb.example.storage.PersonSnapshot;
+
+import java.io.BufferedReader;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executes a script of commands without any prompts, one command per line:
+ * <pre>
+ * add,name,surname,phone,age
+ * edit,id,name,surname,phone
+ * delete,id
+ * search,text
+ * export,path
+ * </pre>
+ * Blank lines and lines starting with # are skipped. Every command produces one result line "ok,line[,values]" or
+ * "error,line,reason", where line is the number of the command in the script. An add reports the new ID, edit and
+ * delete the ID, a search the number of found persons followed by their IDs separated by spaces and an export the
+ * number of written records and bytes. An export into a path ending with .gz is compressed by gzip. When the
+ * duplicate detection of the database is enabled, a merged add reports the ID of the stored person and a rejected add
+ * or edit fails.
+ * <p>
+ * The script is processed as a pipeline. Lines are read in chunks which are parsed and validated in parallel while
+ * the previous chunks are executed, commands are executed strictly in the order of the script. Consecutive adds and
+ * deletes are applied as one batch, so a script of a million commands takes a few seconds.
+ * <p>
+ * When the changes are logged, the log is flushed after every chunk and the results of the chunk are written only
+ * then, so a reported change is always durable while the log does not need to sync after every command.
+ *
+ * @author pollib
+ */
+public class BatchProcessor {
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final char SEPARATOR = ',';
+
+    private final PersonDatabase database;
+    private final Flushable log;
+    private final int threads;
+    private final int chunkSize;
+
+    public BatchProcessor(PersonDatabase database) {
+        this(database, () -> {
+        });
+    }
+
+    /**
+     * @param database the database where the commands are executed
+     * @param log      the log of the database changes, flushed before the results of a chunk are written
+     */
+    public BatchProcessor(PersonDatabase database, Flushable log) {
+        this(database, log, Math.max(1, Runtime.getRuntime().availableProcessors() - 1), DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchProcessor(PersonDatabase database, Flushable log, int threads, int chunkSize) {
+        this.database = database;
+        this.log = log;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Executes all commands of the script.
+     *
+     * @param script the commands, one per line
+     * @param output where the results are written, one line per command
+     * @return number of executed and failed commands
+     * @throws IOException when the script cannot be read or the results cannot be written
+     */
+    public BatchSummary run(BufferedReader script, Writer output) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return run(script, output, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BatchSummary run(BufferedReader script, Writer output, ExecutorService executor) throws IOException {
+        CommandRunner runner = new CommandRunner(output);
+        Deque<Future<List<BatchCommand>>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+
+        long lineNumber = 0;
+        List<String> lines = new ArrayList<>(chunkSize);
+        long chunkStart = 1;
+        String line;
+        while ((line = script.readLine()) != null) {
+            lineNumber++;
+            lines.add(line);
+            if (lines.size() == chunkSize) {
+                if (inFlight.size() == maxInFlight) {
+                    runner.execute(await(inFlight.removeFirst()));
+                }
+                List<String> chunk = lines;
+                long firstLineNumber = chunkStart;
+                inFlight.addLast(executor.submit(() -> parseChunk(chunk, firstLineNumber)));
+                lines = new ArrayList<>(chunkSize);
+                chunkStart = lineNumber + 1;
+            }
+        }
+        if (!lines.isEmpty()) {
+            List<String> chunk = lines;
+            long firstLineNumber = chunkStart;
+            inFlight.addLast(executor.submit(() -> parseChunk(chunk, firstLineNumber)));
+        }
+        while (!inFlight.isEmpty()) {
+            runner.execute(await(inFlight.removeFirst()));
+        }
+        output.flush();
+        return runner.summary();
+    }
+
+    private static List<BatchCommand> await(Future<List<BatchCommand>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The batch was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("The batch failed", e.getCause());
+        }
+    }
+
+    static List<BatchCommand> parseChunk(List<String> lines, long firstLineNumber) {
+        List<BatchCommand> commands = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (!line.isEmpty() && line.charAt(0) != '#') {
+                commands.add(parse(line, firstLineNumber + i));
+            }
+        }
+        return commands;
+    }
+
+    static BatchCommand parse(String line, long lineNumber) {
+        int end = line.indexOf(SEPARATOR);
+        String name = end < 0 ? line : line.substring(0, end);
+        BatchCommand.Kind kind;
+        try {
+            kind = BatchCommand.Kind.valueOf(name.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            kind = BatchCommand.Kind.INVALID;
+        }
+        if (kind == BatchCommand.Kind.INVALID) {
+            return BatchCommand.invalid(lineNumber, "Unknown command: " + name);
+        }
+
+        // The last argument of search and export is taken whole, a searched text or a path may contain commas
+        String[] arguments = end < 0 ? new String[0] : line.substring(end + 1).split(String.valueOf(SEPARATOR),
+                kind == BatchCommand.Kind.SEARCH || kind == BatchCommand.Kind.EXPORT ? 1 : -1);
+        if (arguments.length != kind.arguments()) {
+            return BatchCommand.invalid(lineNumber, "Expected " + kind.arguments() + " arguments of " + name);
+        }
+        String error = switch (kind) {
+            case ADD -> personError(arguments[0], arguments[1], arguments[2], arguments[3]);
+            case EDIT -> isId(arguments[0]) ? personError(arguments[1], arguments[2], arguments[3], null) : ValidationError.ID_INVALID.message();
+            case DELETE -> isId(arguments[0]) ? null : ValidationError.ID_INVALID.message();
+            case EXPORT -> arguments[0].isBlank() ? "Missing path of the file" : null;
+            default -> null;
+        };
+        return error == null ? new BatchCommand(kind, lineNumber, arguments) : BatchCommand.invalid(lineNumber, error);
+    }
+
+    private static boolean isId(String argument) {
+        return FieldValidator.parseId(argument, 0, argument.length()) != FieldValidator.INVALID;
+    }
+
+    private static String personError(String name, String surname, String phone, String age) {
+        ValidationError error = FieldValidator.checkPerson(name, surname, phone, age);
+        return error == null ? null : error.message();
+    }
+
+    /**
+     * Executes parsed chunks in the order of the script, used only by the reading thread.
+     */
+    private final class CommandRunner {
+        private final Writer output;
+        private final StringBuilder chunkResults = new StringBuilder();
+        private final StringBuilder result = new StringBuilder(64);
+        private long commands;
+        private long failed;
+
+        CommandRunner(Writer output) {
+            this.output = output;
+        }
+
+        void execute(List<BatchCommand> chunk) throws IOException {
+            chunkResults.setLength(0);
+            int i = 0;
+            while (i < chunk.size()) {
+                BatchCommand.Kind kind = chunk.get(i).kind();
+                int end = i + 1;
+                if (kind == BatchCommand.Kind.ADD || kind == BatchCommand.Kind.DELETE) {
+                    while (end < chunk.size() && chunk.get(end).kind() == kind) {
+                        end++;
+                    }
+                }
+                List<BatchCommand> run = chunk.subList(i, end);
+                switch (kind) {
+                    case ADD -> addAll(run);
+                    case DELETE -> deleteAll(run);
+                    default -> executeSingle(chunk.get(i));
+                }
+                commands += run.size();
+                i = end;
+            }
+            log.flush();
+            output.append(chunkResults);
+        }
+
+        private void addAll(List<BatchCommand> run) {
+            List<PersonDetails> persons = new ArrayList<>(run.size());
+            for (BatchCommand command : run) {
+                persons.add(new PersonDetails(command.argument(0), command.argument(1), command.argument(2), Integer.parseInt(command.argument(3))));
+            }
+            int[] ids = database.addPersons(persons);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == PersonDatabase.REJECTED) {
+                    error(run.get(i), "The same person is already recorded");
+                } else {
+                    ok(run.get(i)).append(SEPARATOR).append(ids[i]);
+                    writeResult();
+                }
+            }
+        }
+
+        private void deleteAll(List<BatchCommand> run) {
+            int[] ids = new int[run.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = run.get(i).id();
+            }
+            boolean[] deleted = database.deletePersons(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (deleted[i]) {
+                    ok(run.get(i)).append(SEPARATOR).append(ids[i]);
+                    writeResult();
+                } else {
+                    error(run.get(i), "Person with the given ID not found");
+                }
+            }
+        }
+
+        private void executeSingle(BatchCommand command) {
+            switch (command.kind()) {
+                case EDIT -> edit(command);
+                case SEARCH -> {
+                    Collection<Person> persons = database.findSpecificPerson(command.argument(0));
+                    ok(command).append(SEPARATOR).append(persons.size()).append(SEPARATOR);
+                    boolean first = true;
+                    for (Person person : persons) {
+                        if (!first) {
+                            result.append(' ');
+                        }
+                        result.append(person.id());
+                        first = false;
+                    }
+                    writeResult();
+                }
+                case EXPORT -> export(command);
+                default -> error(command, command.argument(0));
+            }
+        }
+
+        private void edit(BatchCommand command) {
+            try {
+                if (database.editPerson(command.id(), command.argument(1), command.argument(2), command.argument(3))) {
+                    ok(command).append(SEPARATOR).append(command.id());
+                    writeResult();
+                } else {
+                    error(command, "Person with the given ID not found");
+                }
+            } catch (DuplicatePersonException e) {
+                error(command, e.getMessage());
+            }
+        }
+
+        private void export(BatchCommand command) {
+            DatabaseMetrics metrics = database.metrics();
+            Path target = Path.of(command.argument(0));
+            try (PersonSnapshot snapshot = database.snapshot()) {
+                long start = metrics.start();
+                ExportResult exported = PersonExporter.forTarget(target).export(snapshot.persons(), target, new ExportProgress());
+                metrics.recordExport(start, exported.records(), exported.bytes());
+                ok(command).append(SEPARATOR).append(exported.records()).append(SEPARATOR).append(exported.bytes());
+                writeResult();
+            } catch (IOException e) {
+                error(command, "An error occurred while creating the file: " + e.getMessage());
+            }
+        }
+
+        private StringBuilder ok(BatchCommand command) {
+            result.setLength(0);
+            return result.append("ok").append(SEPARATOR).append(command.lineNumber());
+        }
+
+        private void error(BatchCommand command, String reason) {
+            failed++;
+            result.setLength(0);
+            result.append("error").append(SEPARATOR).append(command.lineNumber()).append(SEPARATOR).append(reason);
+            writeResult();
+        }
+
+        private void writeResult() {
+            chunkResults.append(result).append('\n');
+        }
+
+        BatchSummary summary() {
+            return new BatchSummary(commands, failed);
+        }
+    }
+}
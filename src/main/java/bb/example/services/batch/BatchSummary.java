@@ -0,0 +1,11 @@
+package bb.example.services.batch;
+
+/**
+ * Summary of a finished batch.
+ *
+ * @param commands number of executed commands, including the failed ones
+ * @param failed   number of commands which reported an error
+ * @author pollib
+ */
+public record BatchSummary(long commands, long failed) {
+}
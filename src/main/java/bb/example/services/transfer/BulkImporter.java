@@ -0,0 +1,238 @@
+package bb.example.services.transfer;
+
+import bb.example.PersonDatabase;
+import bb.example.PersonDetails;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.metrics.Operation;
+import bb.example.services.ValidationError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads persons into the database from a file created by {@link TextExporter} or {@link GzipExporter} or from a CSV
+ * file with the columns name, surname, phone and age.
+ * <p>
+ * Lines are read in chunks which are parsed and validated in parallel, the accepted persons of a chunk are added as one
+ * batch in the order of the file. Only a limited number of chunks is in flight at once, so the memory needed does not
+ * depend on the size of the file.
+ *
+ * @author pollib
+ */
+public class BulkImporter {
+    public static final int MAX_REPORTED_REJECTS = 1000;
+
+    private static final int DEFAULT_CHUNK_SIZE = 10_000;
+    private static final String CSV_HEADER = "name,surname,phone,age";
+    private static final String DUPLICATE = "The same person is already recorded";
+
+    private final PersonDatabase database;
+    private final int threads;
+    private final int chunkSize;
+
+    public BulkImporter(PersonDatabase database) {
+        this(database, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkImporter(PersonDatabase database, int threads, int chunkSize) {
+        this.database = database;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Format of the imported lines.
+     */
+    enum Format {
+        /**
+         * Lines "name, surname, phone, age" below the header written by {@link TextExporter}.
+         */
+        TEXT,
+        /**
+         * Comma separated values, optionally quoted and surrounded by spaces, with an optional header line.
+         */
+        CSV
+    }
+
+    /**
+     * Imports the file, the format is recognized by its first line. A gzip compressed file is decompressed while
+     * it is read.
+     *
+     * @param file a text export or a CSV file in UTF-8, optionally compressed by gzip
+     * @return number of imported persons and the rejected lines
+     * @throws IOException when the file cannot be read
+     */
+    public ImportResult importFile(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                openDecompressed(file), StandardCharsets.UTF_8.newDecoder()), 1 << 16)) {
+            return importLines(reader);
+        }
+    }
+
+    private static InputStream openDecompressed(Path file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        in.mark(2);
+        int magic = in.read() | in.read() << 8;
+        in.reset();
+        return magic == GzipMembersInputStream.MAGIC ? new GzipMembersInputStream(in) : in;
+    }
+
+    /**
+     * Imports lines from the reader, the format is recognized by the first line.
+     */
+    public ImportResult importLines(BufferedReader reader) throws IOException {
+        DatabaseMetrics metrics = database.metrics();
+        long start = metrics.start();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            ImportResult result = importLines(reader, executor);
+            metrics.record(Operation.IMPORT, start, result.accepted());
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ImportResult importLines(BufferedReader reader, ExecutorService executor) throws IOException {
+        ResultCollector collector = new ResultCollector();
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+
+        Format format = Format.CSV;
+        long lineNumber = 0;
+        List<String> lines = new ArrayList<>(chunkSize);
+        long chunkStart = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1) {
+                if (line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.equals(TextExporter.HEADER)) {
+                    format = Format.TEXT;
+                    chunkStart = 2;
+                    continue;
+                }
+                if (line.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                    chunkStart = 2;
+                    continue;
+                }
+            }
+
+            lines.add(line);
+            if (lines.size() == chunkSize) {
+                if (inFlight.size() == maxInFlight) {
+                    collector.insert(await(inFlight.removeFirst()));
+                }
+                inFlight.addLast(submit(executor, lines, chunkStart, format));
+                lines = new ArrayList<>(chunkSize);
+                chunkStart = lineNumber + 1;
+            }
+        }
+        if (!lines.isEmpty()) {
+            inFlight.addLast(submit(executor, lines, chunkStart, format));
+        }
+        while (!inFlight.isEmpty()) {
+            collector.insert(await(inFlight.removeFirst()));
+        }
+        return collector.result();
+    }
+
+    private static Future<ParsedChunk> submit(ExecutorService executor, List<String> lines, long firstLineNumber, Format format) {
+        return executor.submit(() -> parseChunk(lines, firstLineNumber, format));
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The import was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("The import failed", e.getCause());
+        }
+    }
+
+    static ParsedChunk parseChunk(List<String> lines, long firstLineNumber, Format format) {
+        List<PersonDetails> accepted = new ArrayList<>(lines.size());
+        int[] acceptedLines = new int[lines.size()];
+        List<ImportResult.Reject> rejects = new ArrayList<>();
+        PersonLineParser parser = new PersonLineParser(format);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            // the same rules as in the user interface
+            ValidationError error = parser.parse(line);
+            if (error == null) {
+                acceptedLines[accepted.size()] = i;
+                accepted.add(parser.person());
+            } else {
+                rejects.add(new ImportResult.Reject(firstLineNumber + i, line, error.message()));
+            }
+        }
+        return new ParsedChunk(lines, firstLineNumber, accepted, acceptedLines, rejects);
+    }
+
+    /**
+     * @param acceptedLines indexes into lines of the accepted persons
+     */
+    record ParsedChunk(List<String> lines, long firstLineNumber, List<PersonDetails> accepted, int[] acceptedLines,
+                       List<ImportResult.Reject> rejects) {
+    }
+
+    /**
+     * Inserts parsed chunks and accumulates the summary, used only by the reading thread.
+     */
+    private final class ResultCollector {
+        private final List<ImportResult.Reject> rejects = new ArrayList<>();
+        private long accepted;
+        private long rejected;
+
+        void insert(ParsedChunk chunk) {
+            int[] ids = database.addPersons(chunk.accepted());
+            List<ImportResult.Reject> chunkRejects = chunk.rejects();
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == PersonDatabase.REJECTED) {
+                    if (chunkRejects == chunk.rejects()) {
+                        chunkRejects = new ArrayList<>(chunk.rejects());
+                    }
+                    int line = chunk.acceptedLines()[i];
+                    chunkRejects.add(new ImportResult.Reject(chunk.firstLineNumber() + line, chunk.lines().get(line), DUPLICATE));
+                } else {
+                    accepted++;
+                }
+            }
+            if (chunkRejects != chunk.rejects()) {
+                chunkRejects.sort(Comparator.comparingLong(ImportResult.Reject::lineNumber));
+            }
+            rejected += chunkRejects.size();
+            for (ImportResult.Reject reject : chunkRejects) {
+                if (rejects.size() < MAX_REPORTED_REJECTS) {
+                    rejects.add(reject);
+                }
+            }
+        }
+
+        ImportResult result() {
+            return new ImportResult(accepted, rejected, List.copyOf(rejects));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package bb.example.services.transfer;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * An export running in the background, started by {@link ExportService}.
+ *
+ * @author pollib
+ */
+public class ExportJob {
+    public enum State {
+        RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final int id;
+    private final Path target;
+    private final ExportProgress progress = new ExportProgress();
+    private final Consumer<ExportJob> onFinish;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile State state = State.RUNNING;
+    private volatile ExportResult result;
+    private volatile String error;
+
+    /**
+     * @param onFinish called once the final state is set and before the waiting threads are released
+     */
+    ExportJob(int id, Path target, Consumer<ExportJob> onFinish) {
+        this.id = id;
+        this.target = target;
+        this.onFinish = onFinish;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public Path target() {
+        return target;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public long records() {
+        return progress.records();
+    }
+
+    public long bytes() {
+        return progress.bytes();
+    }
+
+    /**
+     * @return the summary of the completed export, null until it is completed
+     */
+    public ExportResult result() {
+        return result;
+    }
+
+    /**
+     * @return the reason of the failure, null unless the export failed
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * Asks the export to stop, the target file keeps its previous content. A finished export is not affected.
+     */
+    public void cancel() {
+        progress.cancel();
+    }
+
+    /**
+     * Waits until the export is finished.
+     *
+     * @return true if the export finished within the timeout
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * @return one line with the state and the progress of the export
+     */
+    public String describe() {
+        return "#" + id + " " + target + ": " + state.name().toLowerCase() + ", records written: " + records() + ", bytes written: " + bytes();
+    }
+
+    ExportProgress progress() {
+        return progress;
+    }
+
+    void complete(ExportResult result) {
+        this.result = result;
+        finish(State.COMPLETED);
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finish(State.FAILED);
+    }
+
+    void cancelled() {
+        finish(State.CANCELLED);
+    }
+
+    private void finish(State state) {
+        this.state = state;
+        onFinish.accept(this);
+        finished.countDown();
+    }
+}
@@ -0,0 +1,44 @@
+package bb.example.services.transfer;
+
+/**
+ * Progress of a running export, read by other threads while the export is written. It also carries the request
+ * to cancel the export.
+ *
+ * @author pollib
+ */
+public class ExportProgress {
+    private volatile long records;
+    private volatile long bytes;
+    private volatile boolean cancelled;
+
+    /**
+     * @return number of persons written so far
+     */
+    public long records() {
+        return records;
+    }
+
+    /**
+     * @return number of bytes passed to the file so far
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Asks the export to stop, it ends with a {@link java.util.concurrent.CancellationException} and keeps the
+     * previous content of the target file.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void update(long records, long bytes) {
+        this.records = records;
+        this.bytes = bytes;
+    }
+}
@@ -0,0 +1,13 @@
+package bb.example.services.transfer;
+
+import java.nio.file.Path;
+
+/**
+ * Summary of a finished export.
+ *
+ * @param path    the created file
+ * @param records number of exported persons
+ * @param bytes   size of the created file
+ */
+public record ExportResult(Path path, long records, long bytes) {
+}
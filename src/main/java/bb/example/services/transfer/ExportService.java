@@ -0,0 +1,150 @@
+package bb.example.services.transfer;
+
+import bb.example.PersonDatabase;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.storage.PersonSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs exports in the background, so the user session goes on while a large database is written. Every export
+ * writes a snapshot of the database taken when it was started, several exports into different files run at the same
+ * time.
+ *
+ * @author pollib
+ */
+public class ExportService implements AutoCloseable {
+    public static final int DEFAULT_THREADS = 4;
+
+    private final PersonDatabase database;
+    private final ExecutorService executor;
+    private final List<ExportJob> jobs = new CopyOnWriteArrayList<>();
+    private final Queue<ExportJob> unreported = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
+
+    public ExportService(PersonDatabase database) {
+        this(database, Executors.newFixedThreadPool(DEFAULT_THREADS, exportThreadFactory()));
+    }
+
+    /**
+     * @param database the exported database
+     * @param executor where the exports run, it is shut down when the service is closed
+     */
+    public ExportService(PersonDatabase database, ExecutorService executor) {
+        this.database = database;
+        this.executor = executor;
+    }
+
+    private static ThreadFactory exportThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, "export-" + threadNumber.getAndIncrement());
+            // a running export never keeps the application alive, close() waits for it instead
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Takes a snapshot of the database and starts writing it into the target file.
+     *
+     * @param target the file to be created or replaced
+     * @return the started export
+     * @throws IllegalStateException when another export into the same file is running
+     */
+    public synchronized ExportJob start(Path target) {
+        Path normalizedTarget = target.toAbsolutePath().normalize();
+        for (ExportJob job : jobs) {
+            if (job.state() == ExportJob.State.RUNNING && job.target().equals(normalizedTarget)) {
+                throw new IllegalStateException("Export #" + job.id() + " into " + normalizedTarget + " is running");
+            }
+        }
+        ExportJob job = new ExportJob(nextJobId.getAndIncrement(), normalizedTarget, unreported::add);
+        PersonSnapshot snapshot = database.snapshot();
+        jobs.add(job);
+        try {
+            executor.execute(() -> run(job, snapshot));
+        } catch (RuntimeException e) {
+            jobs.remove(job);
+            snapshot.close();
+            throw e;
+        }
+        return job;
+    }
+
+    private void run(ExportJob job, PersonSnapshot snapshot) {
+        DatabaseMetrics metrics = database.metrics();
+        try (snapshot) {
+            long start = metrics.start();
+            ExportResult result = PersonExporter.forTarget(job.target()).export(snapshot.persons(), job.target(), job.progress());
+            metrics.recordExport(start, result.records(), result.bytes());
+            job.complete(result);
+        } catch (CancellationException e) {
+            job.cancelled();
+        } catch (IOException | RuntimeException e) {
+            job.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * @return all exports started by the service in the order they were started
+     */
+    public List<ExportJob> jobs() {
+        return List.copyOf(jobs);
+    }
+
+    /**
+     * A job is queued only after its final state is set, so a returned job is never seen as running.
+     *
+     * @return exports which finished since the previous call, each of them is returned only once
+     */
+    public List<ExportJob> takeFinished() {
+        List<ExportJob> finished = new ArrayList<>();
+        ExportJob job;
+        while ((job = unreported.poll()) != null) {
+            finished.add(job);
+        }
+        return finished;
+    }
+
+    /**
+     * @return number of exports which are still running
+     */
+    public int running() {
+        return (int) jobs.stream().filter(job -> job.state() == ExportJob.State.RUNNING).count();
+    }
+
+    /**
+     * Waits until all started exports are finished.
+     */
+    public void awaitAll() throws InterruptedException {
+        for (ExportJob job : jobs) {
+            job.await(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Lets the running exports finish and stops the threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package bb.example.services.transfer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decompresses a gzip stream of any number of concatenated members, such as the files of {@link GzipExporter}.
+ * <p>
+ * Unlike {@link java.util.zip.GZIPInputStream}, the end of the stream is recognized only by the end of the input and
+ * never by {@link InputStream#available()}, so a member boundary falling at the end of a read can not end the stream
+ * early. The checksum and the length of every member are verified.
+ *
+ * @author pollib
+ */
+public class GzipMembersInputStream extends InputStream {
+    static final int MAGIC = 0x8b1f;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int DEFLATE = 8;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private int position;
+    private int limit;
+    private boolean inMember;
+    private boolean finished;
+    private boolean closed;
+
+    public GzipMembersInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (!finished) {
+            if (!inMember) {
+                if (!readHeader()) {
+                    finished = true;
+                    break;
+                }
+                continue;
+            }
+            int n = inflate(b, off, len);
+            if (n > 0) {
+                crc.update(b, off, n);
+                return n;
+            }
+            if (inflater.finished()) {
+                position = limit - inflater.getRemaining();
+                readTrailer();
+                inMember = false;
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("Corrupt gzip stream: a dictionary is needed");
+            } else if (inflater.needsInput()) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("Unexpected end of the gzip stream");
+                }
+                inflater.setInput(buffer, position, limit - position);
+                position = limit;
+            }
+        }
+        return -1;
+    }
+
+    private int inflate(byte[] b, int off, int len) throws ZipException {
+        try {
+            return inflater.inflate(b, off, len);
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt gzip stream: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the header of the next member.
+     *
+     * @return false at the end of the input
+     */
+    private boolean readHeader() throws IOException {
+        int first = readByte();
+        if (first == -1) {
+            return false;
+        }
+        if ((first | readRequiredByte() << 8) != MAGIC) {
+            throw new ZipException("Not in gzip format");
+        }
+        if (readRequiredByte() != DEFLATE) {
+            throw new ZipException("Unsupported gzip compression method");
+        }
+        int flags = readRequiredByte();
+        skip(6);
+        if ((flags & FEXTRA) != 0) {
+            skip(readRequiredByte() | readRequiredByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(2);
+        }
+        inflater.reset();
+        crc.reset();
+        inMember = true;
+        return true;
+    }
+
+    private void readTrailer() throws IOException {
+        long checksum = readInt();
+        long size = readInt();
+        if (checksum != crc.getValue() || size != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt gzip trailer");
+        }
+    }
+
+    private long readInt() throws IOException {
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            value |= (long) readRequiredByte() << (8 * i);
+        }
+        return value;
+    }
+
+    private void skip(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readRequiredByte();
+        }
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readRequiredByte() != 0) {
+            // skipped
+        }
+    }
+
+    private int readRequiredByte() throws IOException {
+        int value = readByte();
+        if (value == -1) {
+            throw new EOFException("Unexpected end of the gzip stream");
+        }
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        position = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            inflater.end();
+            in.close();
+        }
+    }
+}
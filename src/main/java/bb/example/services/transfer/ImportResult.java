@@ -0,0 +1,23 @@
+package bb.example.services.transfer;
+
+import java.util.List;
+
+/**
+ * Summary of a finished import.
+ *
+ * @param accepted number of persons added to the database
+ * @param rejected number of lines which were not imported
+ * @param rejects  details of the first rejected lines, at most {@link BulkImporter#MAX_REPORTED_REJECTS}
+ */
+public record ImportResult(long accepted, long rejected, List<Reject> rejects) {
+
+    /**
+     * A line which could not be imported.
+     *
+     * @param lineNumber number of the line in the file, starting at 1
+     * @param line       content of the line
+     * @param reason     why the line was rejected
+     */
+    public record Reject(long lineNumber, String line, String reason) {
+    }
+}
@@ -0,0 +1,31 @@
+package bb.example.services.transfer;
+
+import bb.example.Person;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes persons into a file which replaces the target only when it is complete.
+ *
+ * @author pollib
+ */
+public interface PersonExporter {
+    /**
+     * @param persons  persons to be exported, iterated only once
+     * @param target   the file to be created or replaced
+     * @param progress where the progress is reported and the cancellation is checked
+     * @return number of written persons and bytes
+     * @throws IOException                                 when the file cannot be written, the previous content of
+     *                                                     the target is kept in such case
+     * @throws java.util.concurrent.CancellationException when the export was cancelled, the target is kept as well
+     */
+    ExportResult export(Iterable<Person> persons, Path target, ExportProgress progress) throws IOException;
+
+    /**
+     * @return the compressed export for a target ending with ".gz", the text export otherwise
+     */
+    static PersonExporter forTarget(Path target) {
+        return target.getFileName().toString().endsWith(GzipExporter.EXTENSION) ? new GzipExporter() : new TextExporter();
+    }
+}
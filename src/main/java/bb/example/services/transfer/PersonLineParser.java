@@ -0,0 +1,113 @@
+package bb.example.services.transfer;
+
+import bb.example.PersonDetails;
+import bb.example.services.FieldValidator;
+import bb.example.services.ValidationError;
+
+/**
+ * Finds the four fields of an imported line and validates them in one pass over the line. Only the bounds of the
+ * fields are kept, strings are created just for the persons which are accepted. One parser is reused for all lines
+ * of a chunk, it is not thread-safe.
+ *
+ * @author pollib
+ */
+final class PersonLineParser {
+    private static final int FIELDS = 4;
+
+    private final BulkImporter.Format format;
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private String line;
+    private int age;
+
+    PersonLineParser(BulkImporter.Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Parses the line, the fields are split the same way as {@link String#split} of the separator would split them.
+     *
+     * @return the first error found, null when the line is a valid person
+     */
+    ValidationError parse(String line) {
+        this.line = line;
+        int count = format == BulkImporter.Format.TEXT ? splitText(line) : splitCsv(line);
+        if (count != FIELDS) {
+            return ValidationError.FIELD_COUNT;
+        }
+        ValidationError error = FieldValidator.checkName(line, starts[0], ends[0], ValidationError.NAME_INVALID);
+        if (error == null) {
+            error = FieldValidator.checkName(line, starts[1], ends[1], ValidationError.SURNAME_INVALID);
+        }
+        if (error == null) {
+            error = FieldValidator.checkPhone(line, starts[2], ends[2]);
+        }
+        if (error == null) {
+            error = FieldValidator.checkAge(line, starts[3], ends[3]);
+            age = FieldValidator.parseAge(line, starts[3], ends[3]);
+        }
+        return error;
+    }
+
+    /**
+     * @return the person of the last line which was parsed without an error
+     */
+    PersonDetails person() {
+        return new PersonDetails(field(0), field(1), field(2), age);
+    }
+
+    private String field(int index) {
+        return line.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * @return the number of fields, only the bounds of the first four are kept
+     */
+    private int splitText(String line) {
+        String separator = TextExporter.SEPARATOR;
+        int count = 0;
+        int start = 0;
+        int end;
+        while ((end = line.indexOf(separator, start)) >= 0) {
+            count = addField(count, start, end);
+            start = end + separator.length();
+        }
+        return addField(count, start, line.length());
+    }
+
+    /**
+     * Every field is stripped of white space and of the quotes around it.
+     */
+    private int splitCsv(String line) {
+        int count = 0;
+        int start = 0;
+        int end;
+        while ((end = line.indexOf(',', start)) >= 0) {
+            count = addCsvField(line, count, start, end);
+            start = end + 1;
+        }
+        return addCsvField(line, count, start, line.length());
+    }
+
+    private int addCsvField(String line, int count, int start, int end) {
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && line.charAt(start) == '"' && line.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        return addField(count, start, end);
+    }
+
+    private int addField(int count, int start, int end) {
+        if (count < FIELDS) {
+            starts[count] = start;
+            ends[count] = end;
+        }
+        return count + 1;
+    }
+}
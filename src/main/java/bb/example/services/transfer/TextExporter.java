@@ -0,0 +1,164 @@
+package bb.example.services.transfer;
+
+import bb.example.Person;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Exports persons into the text file format "name, surname, phone, age" with one person per line.
+ * <p>
+ * The persons are written in a single pass through one buffered writer into a temporary file, which replaces
+ * the target file only when it is complete and synced, so readers never see a half-written export.
+ *
+ * @author pollib
+ */
+public class TextExporter implements PersonExporter {
+    public static final String HEADER = "Database of insured persons:";
+    static final String SEPARATOR = ", ";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_INTERVAL = 4096;
+
+    /**
+     * Writes the persons into the target file.
+     *
+     * @param persons persons to be exported, iterated only once
+     * @param target  the file to be created or replaced
+     * @return number of written persons and bytes
+     * @throws IOException when the file cannot be written, the previous content of the target is kept in such case
+     */
+    public ExportResult export(Iterable<Person> persons, Path target) throws IOException {
+        return export(persons, target, new ExportProgress());
+    }
+
+    /**
+     * Writes the persons into the target file and reports the written persons and bytes every few thousand persons.
+     *
+     * @param persons  persons to be exported, iterated only once
+     * @param target   the file to be created or replaced
+     * @param progress where the progress is reported and the cancellation is checked
+     * @return number of written persons and bytes
+     * @throws IOException                                 when the file cannot be written, the previous content of
+     *                                                     the target is kept in such case
+     * @throws java.util.concurrent.CancellationException when the export was cancelled, the target is kept as well
+     */
+    @Override
+    public ExportResult export(Iterable<Person> persons, Path target, ExportProgress progress) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            long records;
+            CountingOutputStream counter;
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                counter = new CountingOutputStream(Channels.newOutputStream(channel));
+                Writer writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), BUFFER_SIZE);
+                records = writeRecords(persons, writer, counter, progress);
+                writer.flush();
+                channel.force(true);
+            }
+            moveAtomically(tempFile, target);
+            progress.update(records, counter.count);
+            return new ExportResult(target, records, counter.count);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private long writeRecords(Iterable<Person> persons, Writer writer, CountingOutputStream counter, ExportProgress progress) throws IOException {
+        String lineSeparator = System.lineSeparator();
+        char[] digits = new char[11];
+        writer.write(HEADER);
+        writer.write(lineSeparator);
+        long records = 0;
+        for (Person person : persons) {
+            writeRecord(writer, person, digits, lineSeparator);
+            if (++records % PROGRESS_INTERVAL == 0) {
+                if (progress.isCancelled()) {
+                    throw new CancellationException("The export was cancelled");
+                }
+                progress.update(records, counter.count);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Writes one line "name, surname, phone, age" of the person.
+     */
+    static void writeRecord(Writer writer, Person person, char[] digits, String lineSeparator) throws IOException {
+        writer.write(person.name());
+        writer.write(SEPARATOR);
+        writer.write(person.surname());
+        writer.write(SEPARATOR);
+        writer.write(person.phone());
+        writer.write(SEPARATOR);
+        writeNumber(writer, person.age(), digits);
+        writer.write(lineSeparator);
+    }
+
+    /**
+     * Writes a number without creating a String for it.
+     */
+    static void writeNumber(Writer writer, int number, char[] digits) throws IOException {
+        if (number == Integer.MIN_VALUE) {
+            writer.write(Integer.toString(number));
+            return;
+        }
+        int position = digits.length;
+        int remaining = Math.abs(number);
+        do {
+            digits[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (number < 0) {
+            digits[--position] = '-';
+        }
+        writer.write(digits, position, digits.length - position);
+    }
+
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Counts bytes passing to the file.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package bb.example.storage;
+
+import bb.example.Person;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact store keeping every attribute of the persons in its own primitive column.
+ * <p>
+ * IDs and ages are plain ints, phone numbers of 9 digits are packed into an int and names and surnames are encoded
+ * by a dictionary, since a few thousand distinct values cover most of the population. A row takes about 20 bytes,
+ * Person objects are created only when a person is read. Rows are ordered by ID, so a person is found by a binary
+ * search. Deleted rows are only marked and the dictionary keeps values no longer used by any row, the columns and the
+ * dictionary are compacted once most of the rows are deleted or the unused values make up half of the dictionary and
+ * are many compared to the rows, so a compaction is paid for by the changes which made it necessary.
+ * <p>
+ * Reads share a read-write lock and writes are exclusive, the store trades write concurrency for memory.
+ *
+ * @author pollib
+ */
+public class ColumnarPersonStore implements PersonStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int DELETED = -1;
+    private static final int PHONE_DIGITS = 9;
+    private static final int ITERATION_BATCH = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private StringDictionary dictionary = new StringDictionary();
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] phones = new int[INITIAL_CAPACITY];
+    private int[] nameCodes = new int[INITIAL_CAPACITY];
+    private int[] surnameCodes = new int[INITIAL_CAPACITY];
+    private int rows;
+    private int size;
+
+    @Override
+    public Person get(int id) {
+        lock.readLock().lock();
+        try {
+            int row = findRow(id);
+            return row >= 0 && nameCodes[row] != DELETED ? materialize(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Person person) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(person.id());
+            boolean replaced = false;
+            if (row < 0) {
+                row = insertRow(-(row + 1), person.id());
+                size++;
+            } else if (nameCodes[row] == DELETED) {
+                size++;
+            } else {
+                replaced = true;
+            }
+            int phone = encodePhone(person.phone());
+            int nameCode = dictionary.encode(person.name());
+            int surnameCode = dictionary.encode(person.surname());
+            if (replaced) {
+                releaseCodes(row);
+            }
+            ages[row] = person.age();
+            phones[row] = phone;
+            nameCodes[row] = nameCode;
+            surnameCodes[row] = surnameCode;
+            compactIfWasteful();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Person remove(int id) {
+        lock.writeLock().lock();
+        try {
+            int row = findRow(id);
+            if (row < 0 || nameCodes[row] == DELETED) {
+                return null;
+            }
+            Person removedPerson = materialize(row);
+            releaseCodes(row);
+            nameCodes[row] = DELETED;
+            size--;
+            compactIfWasteful();
+            return removedPerson;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of values in the dictionary, including the unused ones
+     */
+    int dictionarySize() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The view reads the rows in small batches, each one under the read lock, so an iteration never blocks writers
+     * for long and continues after the last returned ID even if the columns were compacted meanwhile.
+     */
+    @Override
+    public Collection<Person> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Person> iterator() {
+                return new BatchIterator();
+            }
+
+            @Override
+            public int size() {
+                return ColumnarPersonStore.this.size();
+            }
+        };
+    }
+
+    @Override
+    public List<Person> page(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Person> batch = new ArrayList<>(Math.min(limit, size));
+            int row = findRow(afterId);
+            row = row >= 0 ? row + 1 : -(row + 1);
+            for (; row < rows && batch.size() < limit; row++) {
+                if (nameCodes[row] != DELETED) {
+                    batch.add(materialize(row));
+                }
+            }
+            return batch;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Person> range(int fromId, int toId) {
+        lock.readLock().lock();
+        try {
+            List<Person> persons = new ArrayList<>();
+            int row = findRow(fromId);
+            row = row >= 0 ? row : -(row + 1);
+            for (; row < rows && ids[row] < toId; row++) {
+                if (nameCodes[row] != DELETED) {
+                    persons.add(materialize(row));
+                }
+            }
+            return persons;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the row of the ID, or (-(insertion point) - 1) when the ID has no row
+     */
+    private int findRow(int id) {
+        return Arrays.binarySearch(ids, 0, rows, id);
+    }
+
+    private int insertRow(int row, int id) {
+        if (rows == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            phones = Arrays.copyOf(phones, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            surnameCodes = Arrays.copyOf(surnameCodes, capacity);
+        }
+        if (row < rows) {
+            // IDs are assigned in ascending order, but concurrent adds may store them out of order and restored
+            // records may be older than the stored ones, such rows go near or below the end
+            int moved = rows - row;
+            System.arraycopy(ids, row, ids, row + 1, moved);
+            System.arraycopy(ages, row, ages, row + 1, moved);
+            System.arraycopy(phones, row, phones, row + 1, moved);
+            System.arraycopy(nameCodes, row, nameCodes, row + 1, moved);
+            System.arraycopy(surnameCodes, row, surnameCodes, row + 1, moved);
+        }
+        ids[row] = id;
+        rows++;
+        return row;
+    }
+
+    private void releaseCodes(int row) {
+        dictionary.release(nameCodes[row]);
+        dictionary.release(surnameCodes[row]);
+        if (phones[row] < 0) {
+            dictionary.release(-1 - phones[row]);
+        }
+    }
+
+    private void compactIfWasteful() {
+        int unused = dictionary.unused();
+        if (rows > INITIAL_CAPACITY && size < rows / 2
+                || unused > INITIAL_CAPACITY && unused > dictionary.size() / 2 && unused > rows / 16) {
+            compact();
+        }
+    }
+
+    /**
+     * Drops the deleted rows and the dictionary values which are no longer used.
+     */
+    private void compact() {
+        StringDictionary oldDictionary = dictionary;
+        dictionary = new StringDictionary();
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(size, 1)) * 2);
+        int[] newIds = new int[capacity];
+        int[] newAges = new int[capacity];
+        int[] newPhones = new int[capacity];
+        int[] newNameCodes = new int[capacity];
+        int[] newSurnameCodes = new int[capacity];
+        int newRows = 0;
+        for (int row = 0; row < rows; row++) {
+            if (nameCodes[row] == DELETED) {
+                continue;
+            }
+            newIds[newRows] = ids[row];
+            newAges[newRows] = ages[row];
+            newPhones[newRows] = phones[row] >= 0 ? phones[row] : encodePhone(decodePhone(phones[row], oldDictionary));
+            newNameCodes[newRows] = dictionary.encode(oldDictionary.decode(nameCodes[row]));
+            newSurnameCodes[newRows] = dictionary.encode(oldDictionary.decode(surnameCodes[row]));
+            newRows++;
+        }
+        ids = newIds;
+        ages = newAges;
+        phones = newPhones;
+        nameCodes = newNameCodes;
+        surnameCodes = newSurnameCodes;
+        rows = newRows;
+    }
+
+    private Person materialize(int row) {
+        return new Person(ids[row], dictionary.decode(nameCodes[row]), dictionary.decode(surnameCodes[row]),
+                decodePhone(phones[row], dictionary), ages[row]);
+    }
+
+    /**
+     * Packs a phone number of exactly 9 ASCII digits into a non-negative int. Any other value is kept in the
+     * dictionary and stored as a negative code.
+     */
+    private int encodePhone(String phone) {
+        if (phone.length() == PHONE_DIGITS) {
+            int packed = 0;
+            for (int i = 0; i < PHONE_DIGITS; i++) {
+                char digit = phone.charAt(i);
+                if (digit < '0' || digit > '9') {
+                    return -1 - dictionary.encode(phone);
+                }
+                packed = packed * 10 + (digit - '0');
+            }
+            return packed;
+        }
+        return -1 - dictionary.encode(phone);
+    }
+
+    private static String decodePhone(int packed, StringDictionary dictionary) {
+        if (packed < 0) {
+            return dictionary.decode(-1 - packed);
+        }
+        char[] digits = new char[PHONE_DIGITS];
+        for (int i = PHONE_DIGITS - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + packed % 10);
+            packed /= 10;
+        }
+        return new String(digits);
+    }
+
+    private final class BatchIterator implements Iterator<Person> {
+        private List<Person> batch = List.of();
+        private int position;
+        private int lastId;
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            if (position < batch.size()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            batch = page(lastId, ITERATION_BATCH);
+            position = 0;
+            exhausted = batch.size() < ITERATION_BATCH;
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Person next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Person person = batch.get(position++);
+            lastId = person.id();
+            return person;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package bb.example.storage;
+
+import bb.example.Person;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a condition on many persons in parallel. The ID space, or an array of candidate IDs, is split into chunks
+ * which are filtered by the tasks of a fork-join pool, the results of the chunks are joined in the order of the IDs.
+ * Smaller inputs, or any input when the pool has a single worker, are filtered by the calling thread, splitting them
+ * would cost more than it saves.
+ * <p>
+ * Every chunk is read from the store on its own, a scan running during changes sees each person either before or
+ * after a change, like an iteration of {@link PersonStore#values()}.
+ *
+ * @author pollib
+ */
+public class ParallelScanner {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+
+    private static final int CHUNK_SIZE = 16_384;
+
+    private final PersonStore store;
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    public ParallelScanner(PersonStore store) {
+        this(store, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param store             the scanned store
+     * @param pool              the pool where the chunks are filtered
+     * @param parallelThreshold the lowest number of persons or IDs which are filtered in parallel
+     */
+    public ParallelScanner(PersonStore store, ForkJoinPool pool, int parallelThreshold) {
+        this.store = store;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Filters all persons with an ID lower than the given one.
+     *
+     * @param endId     the ID following the highest stored one
+     * @param condition the condition of the persons to be returned
+     * @return unmodifiable list of the matching persons ordered by ID
+     */
+    public List<Person> filter(int endId, Predicate<Person> condition) {
+        if (!parallel(store.size())) {
+            return store.values().stream().filter(condition).toList();
+        }
+        // IDs of deleted persons leave gaps, a chunk covers an ID range which is mostly occupied
+        int chunks = Math.max(1, (endId + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        return run(chunks, chunk -> {
+            int fromId = chunk * CHUNK_SIZE;
+            List<Person> persons = store.range(fromId, (int) Math.min((long) fromId + CHUNK_SIZE, endId));
+            persons.removeIf(condition.negate());
+            return persons;
+        });
+    }
+
+    /**
+     * Reads the persons of the given IDs and keeps those matching the condition.
+     *
+     * @param ids       IDs, e.g. candidates found in an index
+     * @param condition the condition of the persons to be returned
+     * @return unmodifiable list of the matching persons in the order of the IDs
+     */
+    public List<Person> filter(int[] ids, Predicate<Person> condition) {
+        if (!parallel(ids.length)) {
+            return Collections.unmodifiableList(resolve(ids, 0, ids.length, condition));
+        }
+        int chunks = (ids.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return run(chunks, chunk -> resolve(ids, chunk * CHUNK_SIZE, Math.min(ids.length, (chunk + 1) * CHUNK_SIZE), condition));
+    }
+
+    /**
+     * A pool of a single worker would only add the cost of the tasks.
+     */
+    private boolean parallel(int count) {
+        return count >= parallelThreshold && pool.getParallelism() > 1;
+    }
+
+    private List<Person> resolve(int[] ids, int from, int to, Predicate<Person> condition) {
+        List<Person> persons = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Person person = store.get(ids[i]);
+            if (person != null && condition.test(person)) {
+                persons.add(person);
+            }
+        }
+        return persons;
+    }
+
+    private List<Person> run(int chunks, IntFunction<List<Person>> chunkFilter) {
+        // every task sets only the element of its chunk, the list is never resized
+        List<List<Person>> results = new ArrayList<>(Collections.nCopies(chunks, null));
+        pool.invoke(new ChunkTask(0, chunks, chunkFilter, results));
+        int total = 0;
+        for (List<Person> result : results) {
+            total += result.size();
+        }
+        List<Person> merged = new ArrayList<>(total);
+        for (List<Person> result : results) {
+            merged.addAll(result);
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    /**
+     * Splits a range of chunks in halves until a single chunk is left, its result is stored at the index of the chunk.
+     * The task is serializable only because every fork-join task is, it is never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromChunk;
+        private final int toChunk;
+        private final IntFunction<List<Person>> chunkFilter;
+        private final List<List<Person>> results;
+
+        ChunkTask(int fromChunk, int toChunk, IntFunction<List<Person>> chunkFilter, List<List<Person>> results) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.chunkFilter = chunkFilter;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                results.set(fromChunk, chunkFilter.apply(fromChunk));
+                return;
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            invokeAll(new ChunkTask(fromChunk, middle, chunkFilter, results), new ChunkTask(middle, toChunk, chunkFilter, results));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package bb.example.storage;
+
+import bb.example.Person;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the previous versions of persons changed while a {@link PersonSnapshot} is open, so the snapshot can see
+ * the store as it was when it was taken. Nothing is kept while no snapshot is open.
+ * <p>
+ * Writers are never blocked. A write marks the stripes it holds the locks of as in progress, takes a commit version
+ * only when a snapshot is open, records the previous version of every person before it changes the store and clears
+ * the marks at the end. A new snapshot reads the current version and waits until the writes which started before
+ * it are finished, every write either completed before the snapshot or has a newer version with its previous
+ * persons recorded.
+ *
+ * @author pollib
+ */
+public class PersonHistory {
+    /**
+     * Version of the writes made while no snapshot was open, they are visible to every later snapshot.
+     */
+    public static final long NO_VERSION = 0;
+
+    private static final long IN_PROGRESS = -1;
+    private static final int MAX_STRIPES = Long.SIZE;
+    // every stripe gets a cache line of its own, writers of different stripes do not share it
+    private static final int SLOT_STRIDE = 8;
+
+    private final PersonStore store;
+    private final ConcurrentSkipListMap<Integer, Undo> undos = new ConcurrentSkipListMap<>();
+    private final AtomicLongArray activeWrites;
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final Set<PersonSnapshot> openSnapshots = ConcurrentHashMap.newKeySet();
+    private final int stripes;
+
+    /**
+     * @param store   the store whose changes are recorded
+     * @param stripes the number of write lock stripes, at most 64
+     */
+    public PersonHistory(PersonStore store, int stripes) {
+        if (stripes > MAX_STRIPES) {
+            throw new IllegalArgumentException("At most " + MAX_STRIPES + " stripes are supported");
+        }
+        this.store = store;
+        this.stripes = stripes;
+        this.activeWrites = new AtomicLongArray(stripes * SLOT_STRIDE);
+    }
+
+    /**
+     * Previous version of a person, the newest one comes first.
+     */
+    static final class Undo {
+        final long version;
+        final Person before;
+        final Undo older;
+
+        Undo(long version, Person before, Undo older) {
+            this.version = version;
+            this.before = before;
+            this.older = older;
+        }
+
+        /**
+         * @return the chain without the versions no snapshot can see anymore, null when nothing is left
+         */
+        Undo prune(long horizon) {
+            if (version <= horizon) {
+                return null;
+            }
+            Undo prunedOlder = older == null ? null : older.prune(horizon);
+            return prunedOlder == older ? this : new Undo(version, before, prunedOlder);
+        }
+    }
+
+    /**
+     * @return the mask of a single stripe for {@link #beginWrite}
+     */
+    public static long stripeMask(int stripe) {
+        return 1L << stripe;
+    }
+
+    /**
+     * Marks the start of a write, the locks of the stripes have to be held until {@link #endWrite}.
+     *
+     * @param stripeMask bits of the stripes locked by the writer
+     * @return the commit version of the write, or {@link #NO_VERSION} when no snapshot is open
+     */
+    public long beginWrite(long stripeMask) {
+        for (long mask = stripeMask; mask != 0; mask &= mask - 1) {
+            activeWrites.set(slotOf(Long.numberOfTrailingZeros(mask)), IN_PROGRESS);
+        }
+        if (openCount.get() == 0) {
+            return NO_VERSION;
+        }
+        long version = clock.incrementAndGet();
+        for (long mask = stripeMask; mask != 0; mask &= mask - 1) {
+            activeWrites.set(slotOf(Long.numberOfTrailingZeros(mask)), version);
+        }
+        return version;
+    }
+
+    /**
+     * Remembers the person as it was before the write, it has to be called before the store is changed.
+     *
+     * @param id      ID of the changed person
+     * @param before  the person before the write, null when it is being added
+     * @param version the version returned by {@link #beginWrite}
+     */
+    public void recordBefore(int id, Person before, long version) {
+        if (version == NO_VERSION) {
+            return;
+        }
+        while (true) {
+            Undo newest = undos.get(id);
+            Undo undo = new Undo(version, before, newest);
+            if (newest == null ? undos.putIfAbsent(id, undo) == null : undos.replace(id, newest, undo)) {
+                return;
+            }
+        }
+    }
+
+    public void endWrite(long stripeMask) {
+        for (long mask = stripeMask; mask != 0; mask &= mask - 1) {
+            activeWrites.set(slotOf(Long.numberOfTrailingZeros(mask)), 0);
+        }
+    }
+
+    /**
+     * Takes a point-in-time view of the store. It waits only for the writes in progress, which are short.
+     *
+     * @return the snapshot, it has to be closed to stop keeping the previous versions
+     */
+    public PersonSnapshot snapshot() {
+        // the clock never goes back, the version read below is at least this one
+        PersonSnapshot snapshot = new PersonSnapshot(this, clock.get());
+        openSnapshots.add(snapshot);
+        openCount.incrementAndGet();
+        long version = clock.get();
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            long active;
+            while ((active = activeWrites.get(slotOf(stripe))) == IN_PROGRESS || (active != 0 && active <= version)) {
+                Thread.yield();
+            }
+        }
+        snapshot.open(version);
+        return snapshot;
+    }
+
+    void close(PersonSnapshot snapshot) {
+        if (!openSnapshots.remove(snapshot)) {
+            return;
+        }
+        openCount.decrementAndGet();
+        // an open snapshot still waiting for writes holds the clock it read before it was registered, a snapshot
+        // registered after the loop below reads the clock later than here, so only newer versions must be kept
+        long horizon = clock.get();
+        for (PersonSnapshot open : openSnapshots) {
+            horizon = Math.min(horizon, open.version());
+        }
+        for (Integer id : undos.keySet()) {
+            while (true) {
+                Undo newest = undos.get(id);
+                if (newest == null) {
+                    break;
+                }
+                Undo pruned = newest.prune(horizon);
+                if (pruned == newest || (pruned == null ? undos.remove(id, newest) : undos.replace(id, newest, pruned))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the version of the person visible at the given version. The store is read before the previous versions,
+     * a write in between has already recorded the person the store held.
+     */
+    Person resolve(int id, Person current, long version) {
+        Undo visible = null;
+        for (Undo undo = undos.get(id); undo != null && undo.version > version; undo = undo.older) {
+            visible = undo;
+        }
+        return visible == null ? current : visible.before;
+    }
+
+    PersonStore store() {
+        return store;
+    }
+
+    ConcurrentSkipListMap<Integer, Undo> undos() {
+        return undos;
+    }
+
+    private static int slotOf(int stripe) {
+        return stripe * SLOT_STRIDE;
+    }
+}
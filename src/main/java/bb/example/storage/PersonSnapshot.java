@@ -0,0 +1,142 @@
+package bb.example.storage;
+
+import bb.example.Person;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable point-in-time view of the persons, taken by {@link PersonHistory#snapshot()} in constant time. Writers
+ * keep changing the store, the snapshot reads the current persons and replaces those changed since it was taken
+ * with their previous versions. Reading it again always gives the same persons.
+ * <p>
+ * The snapshot has to be closed, the previous versions of the changed persons are kept until then.
+ *
+ * @author pollib
+ */
+public class PersonSnapshot implements AutoCloseable {
+    private final PersonHistory history;
+    private volatile long version;
+
+    /**
+     * @param version a version not newer than the one the snapshot will see, previous versions newer than it are kept
+     *                while the snapshot is being opened
+     */
+    PersonSnapshot(PersonHistory history, long version) {
+        this.history = history;
+        this.version = version;
+    }
+
+    void open(long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the commit version the snapshot sees, writes of newer versions are hidden
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return the person as it was when the snapshot was taken, or null if there was no such person
+     */
+    public Person findById(int id) {
+        Person current = history.store().get(id);
+        return history.resolve(id, current, version);
+    }
+
+    /**
+     * The persons are read while the collection is iterated, the size is counted by iterating it.
+     *
+     * @return unmodifiable collection of the persons ordered by ID
+     */
+    public Collection<Person> persons() {
+        return new AbstractCollection<>() {
+            private int size = -1;
+
+            @Override
+            public Iterator<Person> iterator() {
+                return new SnapshotIterator();
+            }
+
+            @Override
+            public int size() {
+                if (size < 0) {
+                    int count = 0;
+                    for (Iterator<Person> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+                        count++;
+                    }
+                    size = count;
+                }
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        history.close(this);
+    }
+
+    /**
+     * Walks the persons of the store ordered by ID. Before every person it reads the previous versions of the IDs
+     * between it and the person before, a person deleted since the snapshot was taken is only found among them. The
+     * gap is read only after the following person was read from the store, so a person deleted while iterating has
+     * already recorded its previous version.
+     */
+    private final class SnapshotIterator implements Iterator<Person> {
+        private final Iterator<Person> persons = history.store().values().iterator();
+        private Iterator<Integer> changedIds = Collections.emptyIterator();
+        private Person following;
+        private int lastId = Integer.MIN_VALUE;
+        private boolean storeFinished;
+        private Person next = advance();
+
+        private Person advance() {
+            while (true) {
+                while (changedIds.hasNext()) {
+                    Person visible = findById(changedIds.next());
+                    if (visible != null) {
+                        return visible;
+                    }
+                }
+                if (following != null) {
+                    Person person = following;
+                    following = null;
+                    lastId = person.id();
+                    Person visible = history.resolve(person.id(), person, version);
+                    if (visible != null) {
+                        return visible;
+                    }
+                } else if (storeFinished) {
+                    return null;
+                } else if (persons.hasNext()) {
+                    following = persons.next();
+                    changedIds = history.undos().subMap(lastId, false, following.id(), false).keySet().iterator();
+                } else {
+                    storeFinished = true;
+                    changedIds = history.undos().tailMap(lastId, false).keySet().iterator();
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Person next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Person person = next;
+            next = advance();
+            return person;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package bb.example.storage;
+
+import bb.example.Person;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage engine of the {@link bb.example.PersonDatabase} keeping persons ordered by ID.
+ * <p>
+ * Implementations must be safe for concurrent use. The database serializes writes of the same ID, so a store only
+ * has to keep its own structures consistent.
+ *
+ * @author pollib
+ */
+public interface PersonStore {
+
+    /**
+     * @return the person with the given ID or null if it is not stored
+     */
+    Person get(int id);
+
+    /**
+     * Stores the person, a person with the same ID is replaced.
+     */
+    void put(Person person);
+
+    /**
+     * Removes the person with the given ID.
+     *
+     * @return the removed person or null if it was not stored
+     */
+    Person remove(int id);
+
+    /**
+     * @return number of stored persons
+     */
+    int size();
+
+    /**
+     * Live view of all persons ordered by ID. Iterating it never throws ConcurrentModificationException.
+     *
+     * @return unmodifiable collection of persons
+     */
+    Collection<Person> values();
+
+    /**
+     * Reads persons following the given ID in ascending order.
+     *
+     * @param afterId the ID after which the persons are read, 0 to start at the beginning
+     * @param limit   maximal number of read persons
+     * @return persons with an ID greater than afterId
+     */
+    List<Person> page(int afterId, int limit);
+
+    /**
+     * Reads persons with IDs within the range in ascending order.
+     *
+     * @param fromId the lowest ID, inclusive
+     * @param toId   the highest ID, exclusive
+     * @return persons with an ID in the range
+     */
+    List<Person> range(int fromId, int toId);
+}
@@ -0,0 +1,62 @@
+package bb.example.storage;
+
+import bb.example.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The default store keeping Person objects in a concurrent skip list. Reads and writes never block each other
+ * and scale with the number of cores, at the cost of well over a hundred bytes of heap per person.
+ *
+ * @author pollib
+ */
+public class SkipListPersonStore implements PersonStore {
+    private final ConcurrentNavigableMap<Integer, Person> personsMap = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Person get(int id) {
+        return personsMap.get(id);
+    }
+
+    @Override
+    public void put(Person person) {
+        personsMap.put(person.id(), person);
+    }
+
+    @Override
+    public Person remove(int id) {
+        return personsMap.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return personsMap.size();
+    }
+
+    @Override
+    public Collection<Person> values() {
+        return Collections.unmodifiableCollection(personsMap.values());
+    }
+
+    @Override
+    public List<Person> page(int afterId, int limit) {
+        List<Person> persons = new ArrayList<>(Math.min(limit, 1024));
+        for (Person person : personsMap.tailMap(afterId, false).values()) {
+            if (persons.size() == limit) {
+                break;
+            }
+            persons.add(person);
+        }
+        return persons;
+    }
+
+    @Override
+    public List<Person> range(int fromId, int toId) {
+        return fromId < toId ? new ArrayList<>(personsMap.subMap(fromId, true, toId, false).values()) : new ArrayList<>();
+    }
+}
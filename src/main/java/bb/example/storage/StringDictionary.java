@@ -0,0 +1,66 @@
+package bb.example.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns a small integer code to every distinct string, so a column stores each value only once.
+ * Every code counts the references to it, a value which lost all of them stays in the dictionary as unused until the
+ * owning store rebuilds the dictionary. The class is not thread safe, the owning store takes care of locking.
+ *
+ * @author pollib
+ */
+class StringDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private int[] references = new int[16];
+    private int unused;
+
+    /**
+     * Adds a reference to the value.
+     *
+     * @return the code of the value, a new one is assigned to a value seen for the first time
+     */
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            if (code == references.length) {
+                references = Arrays.copyOf(references, code * 2);
+            }
+        } else if (references[code] == 0) {
+            unused--;
+        }
+        references[code]++;
+        return code;
+    }
+
+    /**
+     * Removes a reference added by {@link #encode}.
+     */
+    void release(int code) {
+        if (--references[code] == 0) {
+            unused++;
+        }
+    }
+
+    String decode(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * @return the number of values no longer referenced
+     */
+    int unused() {
+        return unused;
+    }
+}
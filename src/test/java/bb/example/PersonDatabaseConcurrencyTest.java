@@ -0,0 +1,250 @@
+package bb.example;
+
+import bb.example.storage.PersonSnapshot;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonDatabaseConcurrencyTest {
+    private static final String[] NAMES = {"John", "Jane", "Homer", "Marge", "Bart", "Lisa", "Novák", "Dvořák"};
+
+    @Test
+    @DisplayName("Should assign unique IDs to persons added concurrently")
+    void shouldAssignUniqueIdsConcurrentlyTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        int threads = 8;
+        int personsPerThread = 5_000;
+
+        List<List<Integer>> assignedIds = runConcurrently(threads, () -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < personsPerThread; i++) {
+                ids.add(database.addPerson("John", "Doe", "123456789", 25));
+            }
+            return ids;
+        });
+
+        Set<Integer> uniqueIds = new HashSet<>();
+        assignedIds.forEach(uniqueIds::addAll);
+        assertThat(uniqueIds).hasSize(threads * personsPerThread);
+        assertThat(database.listOfAllPersons()).hasSize(threads * personsPerThread);
+        assertThat(database.findSpecificPerson("Doe")).hasSize(threads * personsPerThread);
+    }
+
+    @Test
+    @DisplayName("Should store every person once when the same persons are added and edited concurrently")
+    void shouldRejectConcurrentDuplicatesTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        database.enableDuplicateDetection(DuplicatePolicy.REJECT);
+        int distinctPersons = 500;
+
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5_000; i++) {
+                String phone = String.valueOf(100_000_000 + random.nextInt(distinctPersons));
+                try {
+                    if (random.nextBoolean()) {
+                        database.addPerson("John", "Doe", phone, 25);
+                    } else {
+                        database.editPerson(1 + random.nextInt(distinctPersons), "JOHN", "doe", phone);
+                    }
+                } catch (DuplicatePersonException e) {
+                    // expected for most of the changes
+                }
+            }
+            return null;
+        });
+
+        Set<String> phones = new HashSet<>();
+        for (Person person : database.listOfAllPersons()) {
+            assertThat(phones.add(person.phone())).as("duplicate of %s", person).isTrue();
+            assertThat(database.findDuplicate("john", "DOE", person.phone())).isEqualTo(person);
+        }
+        assertThat(database.duplicateReport().groups()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep searches consistent with the data after concurrent writes")
+    void shouldKeepIndexConsistentUnderConcurrentWritesTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        for (int i = 0; i < 2_000; i++) {
+            database.addPerson(NAMES[i % NAMES.length], NAMES[(i / 3) % NAMES.length], "123456789", 30);
+        }
+
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5_000; i++) {
+                int id = 1 + random.nextInt(2_500);
+                switch (random.nextInt(4)) {
+                    case 0 -> database.addPerson(randomName(random), randomName(random), "123456789", 30);
+                    case 1 -> database.editPerson(id, randomName(random), randomName(random), "987654321");
+                    case 2 -> database.deletePerson(id);
+                    default -> database.findSpecificPerson(randomName(random).substring(1, 3));
+                }
+            }
+            return null;
+        });
+
+        for (String query : List.of("a", "an", "John", "ová", "ř", "rt", "Lisa")) {
+            List<Person> expected = database.listOfAllPersons().stream()
+                    .filter(person -> person.name().contains(query) || person.surname().contains(query))
+                    .toList();
+            assertThat(database.findSpecificPerson(query)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Should never return a cached search result missing a completed change")
+    void shouldNeverReturnStaleCachedResultsTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        int writers = 2;
+        int personsPerWriter = 2_000;
+        AtomicInteger roles = new AtomicInteger();
+
+        runConcurrently(writers + 2, () -> {
+            if (roles.getAndIncrement() >= writers) {
+                // readers keep the cache filled with results of every version
+                for (int i = 0; i < 10_000; i++) {
+                    database.findSpecificPerson("Doe");
+                }
+                return null;
+            }
+            for (int i = 0; i < personsPerWriter; i++) {
+                int id = database.addPerson("John", "Doe", "123456789", 25);
+                assertThat(database.findSpecificPerson("Doe")).extracting(Person::id).contains(id);
+            }
+            return null;
+        });
+
+        assertThat(database.findSpecificPerson("Doe")).hasSize(writers * personsPerWriter);
+    }
+
+    @Test
+    @DisplayName("Should give snapshots which never see half of a batch and repeat their content")
+    void shouldKeepSnapshotsConsistentUnderConcurrentWritesTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        for (int i = 0; i < 2_000; i++) {
+            database.addPerson(NAMES[i % NAMES.length], "Doe", "123456789", 30);
+        }
+        int writers = 3;
+        AtomicInteger roles = new AtomicInteger();
+
+        runConcurrently(writers + 2, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (roles.getAndIncrement() >= writers) {
+                for (int i = 0; i < 200; i++) {
+                    try (PersonSnapshot snapshot = database.snapshot()) {
+                        List<Person> persons = new ArrayList<>(snapshot.persons());
+                        // pairs are added and deleted in one batch, a snapshot sees both persons or none
+                        assertThat(persons.stream().filter(person -> person.name().equals("Pair")).count() % 2).isZero();
+                        assertThat(persons).extracting(Person::id).isSorted();
+                        // compared as lists, containsExactlyElementsOf is quadratic in this AssertJ version
+                        assertThat(new ArrayList<>(snapshot.persons())).isEqualTo(persons);
+                        Person sample = persons.get(random.nextInt(persons.size()));
+                        assertThat(snapshot.findById(sample.id())).isEqualTo(sample);
+                    }
+                }
+                return null;
+            }
+            for (int i = 0; i < 3_000; i++) {
+                int[] pair = database.addPersons(List.of(
+                        new PersonDetails("Pair", "Doe", "123456789", 30),
+                        new PersonDetails("Pair", "Roe", "123456789", 30)));
+                database.editPerson(1 + random.nextInt(2_000), randomName(random), "Doe", "987654321");
+                database.deletePersons(pair);
+            }
+            return null;
+        });
+
+        try (PersonSnapshot snapshot = database.snapshot()) {
+            assertThat(new ArrayList<>(snapshot.persons())).isEqualTo(new ArrayList<>(database.listOfAllPersons()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should scale throughput of a read-mostly workload with the number of threads")
+    void shouldScaleThroughputWithThreadsTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        for (int i = 0; i < 20_000; i++) {
+            database.addPerson(NAMES[i % NAMES.length], NAMES[(i / 7) % NAMES.length], "123456789", 30);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threadCounts = new ArrayList<>(List.of(1, 2, 4));
+        if (cores > 4) {
+            threadCounts.add(cores);
+        }
+        // only the scaling is checked here, PersonDatabaseContendedBenchmark measures the throughput itself
+        List<Double> throughputs = new ArrayList<>();
+        for (int threads : threadCounts) {
+            throughputs.add(measureThroughput(database, threads));
+        }
+
+        Assumptions.assumeTrue(cores >= 4, "Scaling can only be observed on a machine with at least 4 cores");
+        assertThat(throughputs.get(2)).isGreaterThan(throughputs.get(0) * 1.5);
+    }
+
+    private static double measureThroughput(PersonDatabase database, int threads) throws Exception {
+        long durationNanos = TimeUnit.MILLISECONDS.toNanos(300);
+        List<Long> operations = runConcurrently(threads, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long count = 0;
+            long end = System.nanoTime() + durationNanos;
+            while (System.nanoTime() < end) {
+                int id = 1 + random.nextInt(20_000);
+                int operation = random.nextInt(100);
+                if (operation < 90) {
+                    database.findById(id);
+                } else if (operation < 98) {
+                    database.findSpecificPerson(randomName(random));
+                } else {
+                    database.editPerson(id, randomName(random), randomName(random), "123456789");
+                }
+                count++;
+            }
+            return count;
+        });
+        long total = operations.stream().mapToLong(Long::longValue).sum();
+        return total / (durationNanos / 1e9);
+    }
+
+    private static String randomName(ThreadLocalRandom random) {
+        return NAMES[random.nextInt(NAMES.length)];
+    }
+
+    private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package bb.example;
 
+import bb.example.metrics.MetricsSnapshot;
+import bb.example.metrics.Operation;
+import bb.example.storage.PersonSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class PersonDatabaseTest {
     PersonDatabase database;
@@ -95,4 +101,496 @@ class PersonDatabaseTest {
         person = database.findById(1);
         assertThat(person).isNull();
     }
+
+    @Test
+    @DisplayName("Should find persons by one and two character queries")
+    void shouldFindPersonsByShortQueryTest() {
+        database.addPerson("Jo", "D", "123456789", 25);
+        database.addPerson("Homer", "Simpson", "123456789", 25);
+
+        assertThat(database.findSpecificPerson("D")).containsExactly(database.findById(1));
+        assertThat(database.findSpecificPerson("Jo")).containsExactly(database.findById(1));
+        assertThat(database.findSpecificPerson("o")).containsExactly(database.findById(1), database.findById(2));
+        assertThat(database.findSpecificPerson("on")).containsExactly(database.findById(2));
+        assertThat(database.findSpecificPerson("")).hasSize(2);
+        assertThat(database.findSpecificPerson("x")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep the name index up to date after edit and delete")
+    void shouldSearchEditedAndDeletedPersonsTest() {
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Homer", "Simpson", "123456789", 25);
+
+        database.editPerson(1, "Marge", "Simpson", "987654321");
+        assertThat(database.findSpecificPerson("John")).isEmpty();
+        assertThat(database.findSpecificPerson("Marge")).containsExactly(database.findById(1));
+        assertThat(database.findSpecificPerson("Simpson")).containsExactly(database.findById(1), database.findById(2));
+
+        database.deletePerson(2);
+        assertThat(database.findSpecificPerson("Simpson")).containsExactly(database.findById(1));
+        assertThat(database.findSpecificPerson("Homer")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should return the same persons as a full substring scan")
+    void shouldMatchFullScanSearchTest() {
+        String[] names = {"Jan", "Jana", "Anna", "Hana", "Novák", "Nováková", "Ann-Marie", "Li"};
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            database.addPerson(names[random.nextInt(names.length)], names[random.nextInt(names.length)], "123456789", 30);
+        }
+        for (int i = 0; i < 100; i++) {
+            database.deletePerson(1 + random.nextInt(500));
+            int id = 1 + random.nextInt(500);
+            if (database.findById(id) != null) {
+                database.editPerson(id, names[random.nextInt(names.length)], names[random.nextInt(names.length)], "123456789");
+            }
+        }
+
+        for (String query : List.of("a", "an", "Jan", "ana", "vák", "Nováková", "n-M", "i", "Li", "zzz", "J")) {
+            List<Person> expected = database.listOfAllPersons().stream()
+                    .filter(person -> person.name().contains(query) || person.surname().contains(query))
+                    .toList();
+            assertThat(database.findSpecificPerson(query)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Should add a batch of persons with a contiguous block of IDs")
+    void shouldAddPersonsInBatchTest() {
+        database.addPerson("John", "Doe", "123456789", 25);
+
+        int[] ids = database.addPersons(List.of(
+                new PersonDetails("Homer", "Simpson", "987654321", 52),
+                new PersonDetails("Marge", "Simpson", "111222333", 50)));
+
+        assertThat(ids).containsExactly(2, 3);
+        assertThat(database.findById(3)).isEqualTo(new Person(3, "Marge", "Simpson", "111222333", 50));
+        assertThat(database.findSpecificPerson("Simpson")).containsExactly(database.findById(2), database.findById(3));
+        assertThat(database.addPerson("Bart", "Simpson", "123456789", 10)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should delete a batch of persons and report the outcome for each ID")
+    void shouldDeletePersonsInBatchTest() {
+        database.addPersons(List.of(
+                new PersonDetails("John", "Doe", "123456789", 25),
+                new PersonDetails("Homer", "Simpson", "987654321", 52),
+                new PersonDetails("Marge", "Simpson", "111222333", 50)));
+
+        boolean[] deleted = database.deletePersons(new int[]{3, 7, 1});
+
+        assertThat(deleted).containsExactly(true, false, true);
+        assertThat(database.listOfAllPersons()).containsExactly(database.findById(2));
+        assertThat(database.findSpecificPerson("Simpson")).containsExactly(database.findById(2));
+        assertThat(database.findSpecificPerson("Doe")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should list persons page by page after the last ID of the previous page")
+    void shouldListPersonsInPagesTest() {
+        for (int i = 0; i < 5; i++) {
+            database.addPerson("John", "Doe", "123456789", 20 + i);
+        }
+        database.deletePerson(2);
+
+        PersonPage firstPage = database.listPersons(0, 2);
+        assertThat(firstPage.persons()).extracting(Person::id).containsExactly(1, 3);
+        assertThat(firstPage.hasMore()).isTrue();
+
+        database.addPerson("Homer", "Simpson", "987654321", 52);
+        PersonPage secondPage = database.listPersons(firstPage.lastId(), 2);
+        assertThat(secondPage.persons()).extracting(Person::id).containsExactly(4, 5);
+        assertThat(secondPage.hasMore()).isTrue();
+
+        PersonPage lastPage = database.listPersons(secondPage.lastId(), 2);
+        assertThat(lastPage.persons()).extracting(Person::id).containsExactly(6);
+        assertThat(lastPage.hasMore()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should count calls and processed records of the operations")
+    void shouldCountOperationsInMetricsTest() {
+        int id = database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Jane", "Doe", "987654321", 30);
+        database.findSpecificPerson("Doe");
+        database.findById(id);
+        database.editPerson(99, "Nobody", "Nobody", "111111111");
+        database.deletePerson(id);
+
+        MetricsSnapshot snapshot = database.metrics().snapshot();
+        assertThat(snapshot.get(Operation.ADD).calls()).isEqualTo(2);
+        assertThat(snapshot.get(Operation.SEARCH).records()).isEqualTo(2);
+        assertThat(snapshot.get(Operation.FIND_BY_ID).records()).isEqualTo(1);
+        assertThat(snapshot.get(Operation.EDIT).calls()).isEqualTo(1);
+        assertThat(snapshot.get(Operation.EDIT).records()).isZero();
+        assertThat(snapshot.get(Operation.DELETE).latency().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should find persons by the whole phone number and by its first digits")
+    void shouldFindPersonsByPhoneTest() {
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+        int jane = database.addPerson("Jane", "Doe", "123456789", 30);
+        int homer = database.addPerson("Homer", "Simpson", "123999000", 52);
+        database.addPerson("Marge", "Simpson", "987654321", 50);
+
+        assertThat(database.findByPhone("123456789")).extracting(Person::id).containsExactly(john, jane);
+        assertThat(database.findByPhonePrefix("123")).extracting(Person::id).containsExactly(john, jane, homer);
+        assertThat(database.findByPhonePrefix("123999")).extracting(Person::id).containsExactly(homer);
+        assertThat(database.findByPhonePrefix("")).hasSize(4);
+        assertThat(database.findByPhone("12345")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep the phone index in sync with edits and deletions")
+    void shouldUpdatePhoneIndexTest() {
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+        int jane = database.addPerson("Jane", "Doe", "123456789", 30);
+        int bart = database.addPerson("Bart", "Simpson", "123456789", 10);
+
+        database.editPerson(jane, "Jane", "Doe", "555000111");
+        database.deletePersons(new int[]{bart});
+
+        assertThat(database.findByPhone("123456789")).extracting(Person::id).containsExactly(john);
+        assertThat(database.findByPhonePrefix("555")).extracting(Person::id).containsExactly(jane);
+
+        database.deletePerson(john);
+        assertThat(database.findByPhone("123456789")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should find and count persons by an age range")
+    void shouldFindPersonsByAgeRangeTest() {
+        int john = database.addPerson("John", "Doe", "123456789", 60);
+        database.addPerson("Jane", "Doe", "123456789", 59);
+        int homer = database.addPerson("Homer", "Simpson", "123999000", 75);
+        int abe = database.addPerson("Abe", "Simpson", "987654321", 76);
+        database.addPersons(List.of(new PersonDetails("Mona", "Simpson", "987654321", 70)));
+        database.deletePerson(abe);
+
+        assertThat(database.findByAgeRange(60, 75)).extracting(Person::id).containsExactly(john, homer, 5);
+        assertThat(database.countByAgeRange(60, 75)).isEqualTo(3);
+        assertThat(database.countByAgeRange(76, 200)).isZero();
+        assertThat(database.findByAgeRange(75, 60)).isEmpty();
+        int[] counts = database.countByAge();
+        assertThat(counts).hasSize(151);
+        assertThat(counts[59]).isEqualTo(1);
+        assertThat(counts[76]).isZero();
+    }
+
+    @Test
+    @DisplayName("Should ignore letter case and diacritics only when the normalized search is enabled")
+    void shouldSearchIgnoringCaseAndDiacriticsTest() {
+        int novak = database.addPerson("Jan", "Novák", "123456789", 40);
+        assertThat(database.findSpecificPerson("novak")).isEmpty();
+
+        database.enableNormalizedSearch();
+        int lukasz = database.addPerson("Łukasz", "Wróbel", "987654321", 30);
+        database.addPerson("Petr", "Svoboda", "111222333", 50);
+
+        assertThat(database.findSpecificPerson("novak")).extracting(Person::id).containsExactly(novak);
+        assertThat(database.findSpecificPerson("NOVÁK")).extracting(Person::id).containsExactly(novak);
+        assertThat(database.findSpecificPerson("lukasz")).extracting(Person::id).containsExactly(lukasz);
+        assertThat(database.findSpecificPerson("")).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Should keep the normalized keys in sync with edits and deletions")
+    void shouldUpdateNormalizedKeysTest() {
+        database.enableNormalizedSearch();
+        int id = database.addPerson("Jan", "Novák", "123456789", 40);
+        int other = database.addPerson("Eva", "Dvořák", "123456789", 40);
+
+        database.editPerson(id, "Jan", "Černý", "123456789");
+        database.deletePerson(other);
+
+        assertThat(database.findSpecificPerson("novak")).isEmpty();
+        assertThat(database.findSpecificPerson("dvorak")).isEmpty();
+        assertThat(database.findSpecificPerson("cerny")).extracting(Person::id).containsExactly(id);
+    }
+
+    @Test
+    @DisplayName("Should find names with typos ranked by the distance once the fuzzy search is enabled")
+    void shouldFindSimilarNamesRankedByDistanceTest() {
+        int novak = database.addPerson("Jan", "Novák", "123456789", 40);
+        int novakova = database.addPerson("Eva", "Nováková", "123456789", 40);
+        int nowak = database.addPerson("Piotr", "Nowak", "987654321", 30);
+        database.addPerson("Petr", "Svoboda", "111222333", 50);
+        assertThatThrownBy(() -> database.findSimilarPersons("Novak", 1)).isInstanceOf(IllegalStateException.class);
+
+        database.enableFuzzySearch();
+        int novka = database.addPerson("Novka", "Černý", "444555666", 20);
+
+        assertThat(database.findSimilarPersons("novak", 0)).extracting(Person::id).containsExactly(novak);
+        assertThat(database.findSimilarPersons("Nvoak", 1)).extracting(Person::id).containsExactly(novak);
+        assertThat(database.findSimilarPersons("Novak", 1)).extracting(Person::id).containsExactly(novak, nowak, novka);
+        assertThat(database.findSimilarPersons("Nowakova", 2)).extracting(Person::id).containsExactly(novakova);
+        assertThatThrownBy(() -> database.findSimilarPersons("Novak", 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(database.metrics().snapshot().get(Operation.FUZZY_SEARCH).calls()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should keep the fuzzy index in sync with edits, deletions and replayed changes")
+    void shouldUpdateFuzzyIndexTest() {
+        database.enableFuzzySearch();
+        int id = database.addPerson("Jan", "Novák", "123456789", 40);
+        int other = database.addPerson("Eva", "Dvořák", "123456789", 40);
+
+        database.editPerson(id, "Jan", "Černý", "123456789");
+        database.deletePerson(other);
+        database.replay(PersonChange.added(new Person(10, "Karel", "Dvorak", "111222333", 60)));
+
+        assertThat(database.findSimilarPersons("Novak", 2)).isEmpty();
+        assertThat(database.findSimilarPersons("Cerny", 1)).extracting(Person::id).containsExactly(id);
+        assertThat(database.findSimilarPersons("Dvorka", 1)).extracting(Person::id).containsExactly(10);
+    }
+
+    @Test
+    @DisplayName("Should find surnames by prefix and range in alphabetical order ignoring case and diacritics")
+    void shouldFindSurnamesByPrefixAndRangeTest() {
+        int novakova = database.addPerson("Eva", "Nováková", "123456789", 40);
+        int novakJan = database.addPerson("Jan", "Novák", "123456789", 40);
+        int novakAdam = database.addPerson("Adam", "novak", "123456789", 40);
+        int dvorak = database.addPerson("Petr", "Dvořák", "111222333", 50);
+        int cerny = database.addPerson("Karel", "Černý", "444555666", 20);
+
+        // the persons are first scanned, then read from the index filled with the stored persons
+        for (int round = 0; round < 2; round++) {
+            assertThat(database.findBySurnamePrefix("Nov")).extracting(Person::id).containsExactly(novakAdam, novakJan, novakova);
+            assertThat(database.findBySurnamePrefix("NOVAKO")).extracting(Person::id).containsExactly(novakova);
+            assertThat(database.findBySurnamePrefix("Svo")).isEmpty();
+            assertThat(database.findBySurnameRange("C", "E")).extracting(Person::id).containsExactly(cerny, dvorak);
+            assertThat(database.findBySurnameRange("Dvořák", "Novák")).extracting(Person::id).containsExactly(dvorak);
+            assertThat(database.findBySurnameRange("Z", "A")).isEmpty();
+            database.enableSurnameIndex();
+        }
+
+        database.editPerson(novakJan, "Jan", "Svoboda", "123456789");
+        database.deletePerson(novakova);
+        assertThat(database.findBySurnamePrefix("Nov")).extracting(Person::id).containsExactly(novakAdam);
+        assertThat(database.findBySurnamePrefix("Svo")).extracting(Person::id).containsExactly(novakJan);
+        assertThat(database.metrics().snapshot().get(Operation.SURNAME_SEARCH).calls()).isEqualTo(14);
+    }
+
+    @Test
+    @DisplayName("Should page through persons by surname after the last listed person even if it was changed")
+    void shouldListPersonsBySurnamePageByPageTest() {
+        database.enableSurnameIndex();
+        int novak = database.addPerson("Jan", "Novák", "123456789", 40);
+        int cerny = database.addPerson("Karel", "Černý", "444555666", 20);
+        int dvorak = database.addPerson("Petr", "Dvořák", "111222333", 50);
+        int svoboda = database.addPerson("Eva", "Svoboda", "777888999", 30);
+
+        PersonPage first = database.listPersonsBySurname(null, 2);
+        assertThat(first.persons()).extracting(Person::id).containsExactly(cerny, dvorak);
+        assertThat(first.hasMore()).isTrue();
+
+        database.editPerson(dvorak, "Petr", "Adámek", "111222333");
+        PersonPage second = database.listPersonsBySurname(first.lastPerson(), 2);
+        assertThat(second.persons()).extracting(Person::id).containsExactly(novak, svoboda);
+        assertThat(second.hasMore()).isFalse();
+        assertThat(database.listPersonsBySurname(second.lastPerson(), 2).persons()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should list the same pages by surname with and without the surname index")
+    void shouldListSamePagesWithoutSurnameIndexTest() {
+        PersonDatabase indexed = new PersonDatabase();
+        indexed.enableSurnameIndex();
+        String[] surnames = {"Novák", "novak", "Černý", "Dvořák", "Svoboda", "NOVÁKOVÁ"};
+        for (int i = 0; i < 30; i++) {
+            String surname = surnames[i * 7 % surnames.length];
+            String name = i % 4 == 0 ? "Jan" : "Eva";
+            database.addPerson(name, surname, "123456789", 30);
+            indexed.addPerson(name, surname, "123456789", 30);
+        }
+
+        Person after = null;
+        int pages = 0;
+        PersonPage page;
+        do {
+            page = database.listPersonsBySurname(after, 4);
+            PersonPage indexedPage = indexed.listPersonsBySurname(after, 4);
+            assertThat(page.persons()).isEqualTo(indexedPage.persons());
+            assertThat(page.hasMore()).isEqualTo(indexedPage.hasMore());
+            after = page.lastPerson();
+            pages++;
+        } while (page.hasMore());
+        assertThat(pages).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("Should answer a repeated search from the cache until the database changes")
+    void shouldCacheSearchResultsUntilChangeTest() {
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.findSpecificPerson("Doe");
+        database.findSpecificPerson("Doe");
+        assertThat(database.searchCacheStats().hits()).isEqualTo(1);
+
+        int jane = database.addPerson("Jane", "Doe", "987654321", 30);
+        assertThat(database.findSpecificPerson("Doe")).hasSize(2);
+        database.editPerson(jane, "Jane", "Roe", "987654321");
+        assertThat(database.findSpecificPerson("Doe")).hasSize(1);
+        database.deletePersons(new int[]{1});
+        assertThat(database.findSpecificPerson("Doe")).isEmpty();
+
+        assertThat(database.searchCacheStats().hits()).isEqualTo(1);
+        assertThat(database.searchCacheStats().misses()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should keep a cached search result when a person with an unrelated name changes")
+    void shouldKeepCachedResultAfterUnrelatedChangeTest() {
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.findSpecificPerson("Doe");
+
+        int homer = database.addPerson("Homer", "Simpson", "987654321", 52);
+        database.editPerson(homer, "Marge", "Simpson", "987654321");
+        assertThat(database.findSpecificPerson("Doe")).hasSize(1);
+        assertThat(database.searchCacheStats().hits()).isEqualTo(1);
+
+        database.editPerson(homer, "Marge", "Doerr", "987654321");
+        assertThat(database.findSpecificPerson("Doe")).hasSize(2);
+        assertThat(database.searchCacheStats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should find persons matching an arbitrary condition ordered by ID")
+    void shouldFindPersonsByConditionTest() {
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Jane", "Doe", "987654321", 17);
+        int homer = database.addPerson("Homer", "Simpson", "555666777", 52);
+
+        assertThat(database.findPersons(person -> person.age() >= 18)).extracting(Person::id).containsExactly(john, homer);
+        assertThat(database.metrics().snapshot().get(Operation.SCAN).records()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should restore persons with their IDs and refuse IDs already stored")
+    void shouldRestorePersonsTest() {
+        Person john = new Person(5, "John", "Doe", "123456789", 25);
+        Person homer = new Person(9, "Homer", "Simpson", "987654321", 52);
+        database.restore(List.of(john, homer));
+
+        assertThat(database.listOfAllPersons()).containsExactly(john, homer);
+        assertThat(database.findSpecificPerson("Doe")).containsExactly(john);
+        assertThat(database.countByAgeRange(50, 60)).isEqualTo(1);
+        assertThat(database.nextId()).isEqualTo(10);
+        assertThatThrownBy(() -> database.restore(List.of(new Person(20, "Bart", "Simpson", "123123123", 10), john)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(database.findById(20)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep the snapshot unchanged by later adds, edits and deletes")
+    void shouldReadSnapshotAtPointInTimeTest() {
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+        int homer = database.addPerson("Homer", "Simpson", "987654321", 52);
+        List<Person> before = List.copyOf(database.listOfAllPersons());
+
+        try (PersonSnapshot snapshot = database.snapshot()) {
+            database.editPerson(john, "Jane", "Doe", "123456789");
+            database.deletePerson(homer);
+            int lisa = database.addPerson("Lisa", "Simpson", "123123123", 8);
+
+            assertThat(snapshot.persons()).containsExactlyElementsOf(before).hasSize(2);
+            assertThat(snapshot.findById(john).name()).isEqualTo("John");
+            assertThat(snapshot.findById(homer)).isNotNull();
+            assertThat(snapshot.findById(lisa)).isNull();
+        }
+        try (PersonSnapshot snapshot = database.snapshot()) {
+            assertThat(snapshot.persons()).extracting(Person::name).containsExactly("Jane", "Lisa");
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject an added or edited duplicate ignoring letter case, diacritics and phone formatting")
+    void shouldRejectDuplicatesTest() {
+        int john = database.addPerson("Jiří", "Novák", "123456789", 25);
+        int homer = database.addPerson("Homer", "Simpson", "987654321", 52);
+        database.enableDuplicateDetection(DuplicatePolicy.REJECT);
+
+        assertThatThrownBy(() -> database.addPerson(" JIRI ", "novak", "123 456 789", 30))
+                .isInstanceOf(DuplicatePersonException.class)
+                .hasMessage("The same person is already recorded under ID " + john);
+        assertThatThrownBy(() -> database.editPerson(homer, "Jiri", "Novak", "123456789"))
+                .isInstanceOf(DuplicatePersonException.class);
+
+        assertThat(database.findById(homer).name()).isEqualTo("Homer");
+        assertThat(database.listOfAllPersons()).hasSize(2);
+        assertThat(database.findDuplicate("jiri", "NOVAK", "123456789")).isEqualTo(database.findById(john));
+        assertThat(database.editPerson(john, "Jiří", "NOVÁK", "123456789")).isTrue();
+        assertThat(database.editPerson(homer, "Homer", "Simpson", "111222333")).isTrue();
+        assertThat(database.findDuplicate("Homer", "Simpson", "987654321")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should free the key of a deleted person for a new one")
+    void shouldFreeDuplicateKeyOnDeleteTest() {
+        database.enableDuplicateDetection(DuplicatePolicy.REJECT);
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+
+        database.deletePerson(john);
+        int newJohn = database.addPerson("John", "Doe", "123456789", 26);
+
+        assertThat(database.findDuplicate("John", "Doe", "123456789")).isEqualTo(database.findById(newJohn));
+    }
+
+    @Test
+    @DisplayName("Should store a duplicate when only warned and return the stored person when merged")
+    void shouldWarnAndMergeDuplicatesTest() {
+        database.enableDuplicateDetection(DuplicatePolicy.WARN);
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+        int secondJohn = database.addPerson("John", "Doe", "123456789", 30);
+
+        database.enableDuplicateDetection(DuplicatePolicy.MERGE);
+        int merged = database.addPerson("john", "doe", "123456789", 40);
+
+        assertThat(secondJohn).isNotEqualTo(john);
+        assertThat(merged).isIn(john, secondJohn);
+        assertThat(database.listOfAllPersons()).extracting(Person::age).containsExactly(25, 30);
+    }
+
+    @Test
+    @DisplayName("Should leave duplicates of a batch out, also duplicates within the batch")
+    void shouldCheckDuplicatesInBatchTest() {
+        int john = database.addPerson("John", "Doe", "123456789", 25);
+        database.enableDuplicateDetection(DuplicatePolicy.REJECT);
+
+        // the batch reserves the IDs 2 to 4
+
+        int[] ids = database.addPersons(List.of(
+                new PersonDetails("John", "Doe", "123456789", 25),
+                new PersonDetails("Homer", "Simpson", "987654321", 52),
+                new PersonDetails("HOMER", "Simpson", "987654321", 53)));
+
+        assertThat(ids).containsExactly(PersonDatabase.REJECTED, 3, PersonDatabase.REJECTED);
+        assertThat(database.listOfAllPersons()).extracting(Person::id).containsExactly(john, 3);
+        assertThat(database.findSpecificPerson("Homer")).hasSize(1);
+
+        database.enableDuplicateDetection(DuplicatePolicy.MERGE);
+        assertThat(database.addPersons(List.of(new PersonDetails("Homer", "Simpson", "987654321", 1)))).containsExactly(3);
+    }
+
+    @Test
+    @DisplayName("Should group the duplicates in one pass without the duplicate detection")
+    void shouldReportDuplicatesTest() {
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Homer", "Simpson", "987654321", 52);
+        database.addPerson("Marge", "Simpson", "987654321", 50);
+        database.addPerson("JOHN", "Doe", "123456789", 30);
+        database.addPerson("Homer", "Simpson", "987 654 321", 52);
+        database.addPerson("John", "Doe", "123456789", 35);
+
+        DuplicateReport report = database.duplicateReport();
+
+        assertThat(report.scanned()).isEqualTo(6);
+        assertThat(report.duplicates()).isEqualTo(3);
+        assertThat(report.groups()).hasSize(2);
+        assertThat(report.groups().get(0)).extracting(Person::id).containsExactly(1, 4, 6);
+        assertThat(report.groups().get(1)).extracting(Person::id).containsExactly(2, 5);
+        assertThat(database.metrics().snapshot().get(Operation.DUPLICATE_REPORT).records()).isEqualTo(6);
+    }
 }
@@ -1,5 +1,8 @@
 package bb.example;
 
+import bb.example.index.FuzzyIndex;
+import bb.example.metrics.DatabaseMetrics;
+import bb.example.services.Utilities;
 import bb.example.services.iohandler.InputHandler;
 import bb.example.services.iohandler.OutputHandler;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +23,8 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserInterfaceTest {
+    private static final PersonPage EMPTY_PAGE = new PersonPage(List.of(), false);
+
     @Mock
     InputHandler inputHandler;
     @Mock
@@ -36,13 +41,13 @@ class UserInterfaceTest {
     @Nested
     class TestingNumberInput {
         @Test
-        @DisplayName("Should return \"Enter number from 1 to 7\" when user input is not number from 1 to 7 in menu")
+        @DisplayName("Should return \"Enter number from 1 to 13\" when user input is not number from 1 to 13 in menu")
         void shouldReturnMustBeNumberInRangeWhenInputIsOutOfBoundInMenuTest() {
             when(inputHandler.getInput())
-                    .thenReturn("0", "8", "7");
+                    .thenReturn("0", "14", "7");
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(outputHandler, times(2)).print("Enter number from 1 to 7");
+            verify(outputHandler, times(2)).print("Enter number from 1 to 13");
         }
 
         @Test
@@ -67,6 +72,7 @@ class UserInterfaceTest {
                     .thenReturn("7");
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
+            verify(database).findDuplicate("John", "Doe", "123456789");
             verify(database).addPerson("John", "Doe", "123456789", 25);
             verify(outputHandler, times(3)).print("You must enter only letters of the alphabet");
             verifyNoMoreInteractions(database);
@@ -84,6 +90,7 @@ class UserInterfaceTest {
 
             assertThat(database).isNotNull();
 
+            verify(database).findDuplicate("John", "Doe", "123456789");
             verify(database).addPerson("John", "Doe", "123456789", 25);
             verify(outputHandler).print("A new insured person has been successfully added.");
             verifyNoMoreInteractions(database);
@@ -98,6 +105,7 @@ class UserInterfaceTest {
                     .thenReturn("7");
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
+            verify(database).findDuplicate("John", "Doe", "123456789");
             verify(database).addPerson("John", "Doe", "123456789", 25);
             verify(outputHandler, times(3)).print("The phone number cannot contain letters or special characters and must be 9-digit number");
             verifyNoMoreInteractions(database);
@@ -112,6 +120,7 @@ class UserInterfaceTest {
                     .thenReturn("7");
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
+            verify(database).findDuplicate("John", "Doe", "123456789");
             verify(database).addPerson("John", "Doe", "123456789", 150);
             verify(outputHandler).print("The age must be in the range of 0-150");
             verifyNoMoreInteractions(database);
@@ -126,6 +135,7 @@ class UserInterfaceTest {
                     .thenReturn("7");
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
+            verify(database).findDuplicate("John", "Doe", "123456789");
             verify(database).addPerson("John", "Doe", "123456789", 25);
             verify(outputHandler, times(3)).print("Enter a 9-digit number");
             verifyNoMoreInteractions(database);
@@ -138,34 +148,73 @@ class UserInterfaceTest {
         @Test
         @DisplayName("Should return String of persons in database")
         void shouldReturnPersonsStringTest() {
-            when(database.listOfAllPersons())
-                    .thenReturn(Collections.singletonList(new Person(1, "John", "Doe", "123456789", 25)));
+            when(database.listPersons(0, Utilities.PAGE_SIZE))
+                    .thenReturn(new PersonPage(Collections.singletonList(new Person(1, "John", "Doe", "123456789", 25)), false));
             when(inputHandler.getInput())
                     .thenReturn("2")
                     .thenReturn("7");
 
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(database).listOfAllPersons();
+            verify(database).listPersons(0, Utilities.PAGE_SIZE);
             verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-1");
             verifyNoMoreInteractions(database);
             verifyNoMoreInteractions(inputHandler);
         }
 
+        @Test
+        @DisplayName("Should print persons page by page")
+        void shouldPrintPersonsPageByPageTest() {
+            when(database.listPersons(0, Utilities.PAGE_SIZE))
+                    .thenReturn(new PersonPage(List.of(new Person(1, "John", "Doe", "123456789", 25)), true));
+            when(database.listPersons(1, Utilities.PAGE_SIZE))
+                    .thenReturn(new PersonPage(List.of(new Person(5, "Homer", "Simpson", "987654321", 52)), false));
+            when(inputHandler.getInput())
+                    .thenReturn("2")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-1");
+            verify(outputHandler).print("Insured person: Homer Simpson, phone: 987654321, age: 52, ID-5");
+            verify(outputHandler, never()).print("No insured individuals are recorded in the database");
+            verifyNoMoreInteractions(inputHandler);
+        }
+
         @Test
         @DisplayName("Should return String of no person when empty database")
         void shouldReturnNoPersonStringWhenEmptyTest() {
+            when(database.listPersons(0, Utilities.PAGE_SIZE)).thenReturn(EMPTY_PAGE);
             when(inputHandler.getInput())
                     .thenReturn("2")
                     .thenReturn("7");
 
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(database).listOfAllPersons();
+            verify(database).listPersons(0, Utilities.PAGE_SIZE);
             verify(outputHandler).print("No insured individuals are recorded in the database");
             verifyNoMoreInteractions(database);
             verifyNoMoreInteractions(inputHandler);
         }
+
+        @Test
+        @DisplayName("Should print persons by surname page by page starting after the last person of a page")
+        void shouldPrintPersonsBySurnamePageByPageTest() {
+            Person doe = new Person(5, "John", "Doe", "123456789", 25);
+            when(database.listPersonsBySurname(null, Utilities.PAGE_SIZE)).thenReturn(new PersonPage(List.of(doe), true));
+            when(database.listPersonsBySurname(doe, Utilities.PAGE_SIZE))
+                    .thenReturn(new PersonPage(List.of(new Person(1, "Homer", "Simpson", "987654321", 52)), false));
+            when(inputHandler.getInput())
+                    .thenReturn("13")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-5");
+            verify(outputHandler).print("Insured person: Homer Simpson, phone: 987654321, age: 52, ID-1");
+            verify(outputHandler, never()).print("No insured individuals are recorded in the database");
+            verifyNoMoreInteractions(inputHandler);
+        }
     }
 
     @Nested
@@ -203,10 +252,60 @@ class UserInterfaceTest {
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
             verify(outputHandler).print("This name is not recorded in the database");
+            verify(database).isFuzzySearchEnabled();
             verifyNoMoreInteractions(database);
             verifyNoMoreInteractions(inputHandler);
         }
 
+        @Test
+        @DisplayName("Should list similar names when the name is not found and the fuzzy search is enabled")
+        void shouldReturnSimilarPersonsWhenNoNameFoundTest() {
+            when(database.findSpecificPerson("Jonh")).thenReturn(Collections.emptyList());
+            when(database.isFuzzySearchEnabled()).thenReturn(true);
+            when(database.findSimilarPersons("Jonh", FuzzyIndex.MAX_DISTANCE))
+                    .thenReturn(List.of(new Person(1, "John", "Doe", "123456789", 25)));
+            when(inputHandler.getInput())
+                    .thenReturn("3", "Jonh")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("This name is not recorded in the database, similar names:");
+            verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-1");
+            verify(outputHandler, never()).print("This name is not recorded in the database");
+        }
+
+        @Test
+        @DisplayName("Should look up surnames by the prefix when the input ends with a star")
+        void shouldFindPersonsBySurnamePrefixTest() {
+            when(database.findBySurnamePrefix("Do")).thenReturn(List.of(new Person(1, "John", "Doe", "123456789", 25)));
+            when(database.findBySurnamePrefix("Xy")).thenReturn(List.of());
+            when(inputHandler.getInput())
+                    .thenReturn("3", "Do*", "3", "Xy*")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-1");
+            verify(outputHandler).print("No surname starting with Xy is recorded in the database");
+            verify(database, never()).findSpecificPerson(anyString());
+        }
+
+        @Test
+        @DisplayName("Should list all persons page by page for a search of a bare asterisk")
+        void shouldPageAllPersonsForBareAsteriskTest() {
+            when(database.listPersonsBySurname(null, Utilities.PAGE_SIZE))
+                    .thenReturn(new PersonPage(List.of(new Person(1, "John", "Doe", "123456789", 25)), false));
+            when(inputHandler.getInput())
+                    .thenReturn("3", " *")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-1");
+            verify(database, never()).findBySurnamePrefix(anyString());
+        }
+
     }
 
     @Nested
@@ -256,6 +355,7 @@ class UserInterfaceTest {
         @Test
         @DisplayName("Should return String person deleted")
         void shouldReturnPersonDeletedStringTest() {
+            when(database.listPersons(0, Utilities.PAGE_SIZE)).thenReturn(EMPTY_PAGE);
             when(database.deletePerson(1)).thenReturn(true);
             when(inputHandler.getInput())
                     .thenReturn("5", "1")
@@ -263,7 +363,7 @@ class UserInterfaceTest {
 
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(database).listOfAllPersons();
+            verify(database).listPersons(0, Utilities.PAGE_SIZE);
             verify(database).deletePerson(1);
             verify(outputHandler).print("The insured individual has been deleted");
             verifyNoMoreInteractions(database);
@@ -273,6 +373,7 @@ class UserInterfaceTest {
         @Test
         @DisplayName("Should return String no person found to delete")
         void shouldReturnNoFoundPersonDeletedStringWhenNoFoundIdTest() {
+            when(database.listPersons(0, Utilities.PAGE_SIZE)).thenReturn(EMPTY_PAGE);
             when(database.deletePerson(1)).thenReturn(false);
             when(inputHandler.getInput())
                     .thenReturn("5", "1")
@@ -280,7 +381,7 @@ class UserInterfaceTest {
 
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(database).listOfAllPersons();
+            verify(database).listPersons(0, Utilities.PAGE_SIZE);
             verify(database).deletePerson(1);
             verify(outputHandler).print("Person with the given ID not found");
             verifyNoMoreInteractions(database);
@@ -293,19 +394,24 @@ class UserInterfaceTest {
         @Test
         @DisplayName("Should return String file created")
         void shouldReturnFileCreatedStringTest() {
+            when(database.metrics()).thenReturn(new DatabaseMetrics());
+            when(database.snapshot()).thenReturn(new PersonDatabase().snapshot());
             when(inputHandler.getInput())
                     .thenReturn("6", "file", "persons")
                     .thenReturn("7");
 
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(outputHandler).print("The file was created");
+            verify(outputHandler).print(startsWith("Export #1 into"));
+            verify(outputHandler).print(contains("The file was created"));
             verifyNoMoreInteractions(inputHandler);
         }
 
         @Test
         @DisplayName("Should return String file created")
         void shouldReturnIOExceptionTest() {
+            when(database.metrics()).thenReturn(new DatabaseMetrics());
+            when(database.snapshot()).thenReturn(new PersonDatabase().snapshot());
             when(inputHandler.getInput())
                     .thenReturn("1", "John", "Don", "123456789", "25")
                     .thenReturn("6", "file", "persons")
@@ -313,9 +419,164 @@ class UserInterfaceTest {
 
             userInterface.menuSelectionLoop(inputHandler, outputHandler);
 
-            verify(outputHandler).print("The file was created");
+            verify(outputHandler).print(startsWith("Export #1 into"));
+            verify(outputHandler).print(contains("The file was created"));
+            verifyNoMoreInteractions(inputHandler);
+        }
+    }
+
+    @Nested
+    class TestingExportJobs {
+        @Test
+        @DisplayName("Should say no export has been started")
+        void shouldReportNoExportJobsTest() {
+            when(inputHandler.getInput())
+                    .thenReturn("11", "7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("No export has been started");
             verifyNoMoreInteractions(inputHandler);
         }
+
+        @Test
+        @DisplayName("Should list the finished export with its progress")
+        void shouldListFinishedExportTest() {
+            when(database.metrics()).thenReturn(new DatabaseMetrics());
+            when(database.snapshot()).thenReturn(new PersonDatabase().snapshot());
+            when(inputHandler.getInput())
+                    .thenReturn("6", "file", "persons")
+                    .thenReturn("11", "7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print(matches("#1 .*file\\.txt: (running|completed), records written: \\d+, bytes written: \\d+"));
+        }
+    }
+
+    @Nested
+    class TestingLoadFile {
+        @Test
+        @DisplayName("Should return String error when the file to load does not exist")
+        void shouldReturnErrorWhenFileDoesNotExistTest() {
+            when(inputHandler.getInput())
+                    .thenReturn("8", "missing-file.csv", "no-such-folder-of-insured-persons")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print(startsWith("An error occurred while loading the file"));
+            verifyNoMoreInteractions(database);
+            verifyNoMoreInteractions(inputHandler);
+        }
+    }
+
+    @Nested
+    class TestingFindByPhone {
+        @Test
+        @DisplayName("Should look up a whole phone number exactly")
+        void shouldFindPersonByWholePhoneNumberTest() {
+            when(database.findByPhone("123456789"))
+                    .thenReturn(List.of(new Person(1, "John", "Doe", "123456789", 25)));
+            when(inputHandler.getInput())
+                    .thenReturn("10", "123456789")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("Insured person: John Doe, phone: 123456789, age: 25, ID-1");
+            verifyNoMoreInteractions(inputHandler);
+        }
+
+        @Test
+        @DisplayName("Should look up persons by the first digits after an invalid input")
+        void shouldFindPersonsByPhonePrefixTest() {
+            when(database.findByPhonePrefix("123")).thenReturn(List.of());
+            when(inputHandler.getInput())
+                    .thenReturn("10", "12a", "1234567890", "123")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler, times(2)).print("Enter at most 9 digits");
+            verify(outputHandler).print("This phone number is not recorded in the database");
+            verifyNoMoreInteractions(inputHandler);
+        }
+    }
+
+    @Nested
+    class TestingStatistics {
+        @Test
+        @DisplayName("Should print statistics of the operations which were called")
+        void shouldPrintStatisticsOfCalledOperationsTest() {
+            PersonDatabase realDatabase = new PersonDatabase();
+            realDatabase.addPerson("John", "Doe", "123456789", 25);
+            realDatabase.findSpecificPerson("Jo");
+            when(database.metrics()).thenReturn(realDatabase.metrics());
+            when(database.searchCacheStats()).thenReturn(realDatabase.searchCacheStats());
+            when(inputHandler.getInput())
+                    .thenReturn("9")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print(argThat((String report) -> report.startsWith("Operation statistics")
+                    && report.contains("\nadd: calls 1, records 1")
+                    && report.contains("\nsearch: calls 1, records 1")
+                    && report.contains("\nSearch cache: hits 0, misses 1")
+                    && !report.contains("delete")));
+            verifyNoMoreInteractions(inputHandler);
+        }
+    }
+
+    @Nested
+    class TestingDuplicates {
+        @Test
+        @DisplayName("Should tell that a rejected duplicate was not added")
+        void shouldReportRejectedDuplicateTest() {
+            when(database.addPerson("John", "Doe", "123456789", 25)).thenThrow(new DuplicatePersonException(3));
+            when(inputHandler.getInput())
+                    .thenReturn("1", "John", "Doe", "123456789", "25")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("The same person is already recorded under ID 3, the person was not added");
+            verify(outputHandler, never()).print("A new insured person has been successfully added.");
+        }
+
+        @Test
+        @DisplayName("Should tell that the person was merged into the stored one")
+        void shouldReportMergedDuplicateTest() {
+            when(database.findDuplicate("john", "DOE", "123456789")).thenReturn(new Person(3, "John", "Doe", "123456789", 40));
+            when(database.addPerson("john", "DOE", "123456789", 25)).thenReturn(3);
+            when(inputHandler.getInput())
+                    .thenReturn("1", "john", "DOE", "123456789", "25")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("The same person is already recorded under ID 3, the records were merged");
+        }
+
+        @Test
+        @DisplayName("Should print the groups of the duplicate report")
+        void shouldPrintDuplicateReportTest() {
+            PersonDatabase realDatabase = new PersonDatabase();
+            realDatabase.addPerson("John", "Doe", "123456789", 25);
+            realDatabase.addPerson("Homer", "Simpson", "987654321", 52);
+            realDatabase.addPerson("JOHN", "Doe", "123456789", 30);
+            when(database.duplicateReport()).thenReturn(realDatabase.duplicateReport());
+            when(inputHandler.getInput())
+                    .thenReturn("12")
+                    .thenReturn("7");
+
+            userInterface.menuSelectionLoop(inputHandler, outputHandler);
+
+            verify(outputHandler).print("Found 1 duplicate(s) in 1 group(s) among 3 insured individuals:");
+            verify(outputHandler).print(argThat((String group) -> group.contains("ID-1") && group.contains("ID-3")
+                    && !group.contains("Homer")));
+        }
     }
 
     @Test
@@ -0,0 +1,76 @@
+package bb.example.cache;
+
+import bb.example.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchCacheTest {
+    private static final List<Person> ONE_PERSON = List.of(new Person(1, "John", "Doe", "123456789", 25));
+
+    @Test
+    @DisplayName("Should return a result only for the version it was computed for")
+    void shouldReturnResultOnlyForSameVersionTest() {
+        SearchCache cache = new SearchCache(100);
+
+        cache.put("Doe", 1, ONE_PERSON);
+
+        assertThat(cache.get("Doe", 1)).isSameAs(ONE_PERSON);
+        assertThat(cache.get("Doe", 2)).isNull();
+        assertThat(cache.get("Doe", 1)).isNull();
+        assertThat(cache.stats()).isEqualTo(new CacheStats(1, 2, 0, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used results over the weight limit")
+    void shouldEvictLeastRecentlyUsedTest() {
+        SearchCache cache = new SearchCache(8);
+        cache.put("a", 1, ONE_PERSON);
+        cache.put("b", 1, ONE_PERSON);
+        cache.put("c", 1, ONE_PERSON);
+        cache.get("a", 1);
+
+        cache.put("d", 1, ONE_PERSON);
+        cache.put("e", 1, Collections.emptyList());
+
+        assertThat(cache.get("b", 1)).isNull();
+        assertThat(cache.get("a", 1)).isNotNull();
+        assertThat(cache.get("d", 1)).isNotNull();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().weight()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Should not cache a result heavier than a quarter of the limit")
+    void shouldSkipHeavyResultTest() {
+        SearchCache cache = new SearchCache(8);
+
+        cache.put("Doe", 1, ONE_PERSON);
+
+        assertThat(cache.get("Doe", 1)).isNotNull();
+        cache.put("Doe", 2, List.of(ONE_PERSON.get(0), ONE_PERSON.get(0), ONE_PERSON.get(0)));
+        assertThat(cache.get("Doe", 2)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should change the stamp of a query only when a person containing it changes")
+    void shouldChangeStampOnlyForMatchingPersonsTest() {
+        SearchCache cache = new SearchCache(100);
+        long doe = cache.stampOf("Doe");
+        long shortQuery = cache.stampOf("Do");
+
+        cache.invalidate(new Person(2, "Homer", "Simpson", "987654321", 52));
+        assertThat(cache.stampOf("Doe")).isEqualTo(doe);
+        assertThat(cache.stampOf("Do")).isNotEqualTo(shortQuery);
+
+        cache.invalidate(new Person(3, "Jane", "Dóe", "987654321", 30));
+        assertThat(cache.stampOf("Doe")).isNotEqualTo(doe);
+        doe = cache.stampOf("Doe");
+        cache.invalidateAll();
+        assertThat(cache.stampOf("Doe")).isNotEqualTo(doe);
+    }
+}
@@ -0,0 +1,158 @@
+package bb.example.events;
+
+import bb.example.PersonChange;
+import bb.example.PersonDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangeStreamTest {
+
+    @Test
+    @DisplayName("Should publish added, edited and deleted persons with their images in the order of the changes")
+    void shouldPublishChangesInOrderTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        try (ChangeStream stream = ChangeStream.attach(database)) {
+            BlockingQueue<ChangeEvent> received = new LinkedBlockingQueue<>();
+            stream.subscribe(received::add);
+
+            int id = database.addPerson("Jan", "Novák", "123456789", 30);
+            database.editPerson(id, "Jan", "Dvořák", "123456789");
+            database.deletePerson(id);
+
+            ChangeEvent added = poll(received);
+            ChangeEvent edited = poll(received);
+            ChangeEvent deleted = poll(received);
+            assertThat(added.sequence()).isEqualTo(1);
+            assertThat(added.change().type()).isEqualTo(PersonChange.Type.ADD);
+            assertThat(added.change().after().surname()).isEqualTo("Novák");
+            assertThat(edited.sequence()).isEqualTo(2);
+            assertThat(edited.change().before().surname()).isEqualTo("Novák");
+            assertThat(edited.change().after().surname()).isEqualTo("Dvořák");
+            assertThat(deleted.sequence()).isEqualTo(3);
+            assertThat(deleted.change().before()).isEqualTo(edited.change().after());
+            assertThat(deleted.change().after()).isNull();
+            assertThat(stream.nextSequence()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    @DisplayName("Should resume a subscriber from a retained sequence number and reject a lost one")
+    void shouldResumeFromSequenceTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        try (ChangeStream stream = ChangeStream.attach(database, 4, ChangeStream.Backpressure.DROP_OLDEST)) {
+            for (int i = 0; i < 6; i++) {
+                database.addPerson("Jan", "Novák", "12345678" + i, 30);
+            }
+
+            BlockingQueue<ChangeEvent> received = new LinkedBlockingQueue<>();
+            ChangeStream.Subscription subscription = stream.subscribe(4, received::add);
+
+            assertThat(poll(received).sequence()).isEqualTo(4);
+            assertThat(poll(received).sequence()).isEqualTo(5);
+            assertThat(poll(received).sequence()).isEqualTo(6);
+            assertThat(stream.oldestSequence()).isEqualTo(3);
+            assertThatThrownBy(() -> stream.subscribe(2, received::add))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Sequence 2 is not available, the stream holds 3 to 6");
+            assertThatThrownBy(() -> stream.subscribe(8, received::add))
+                    .isInstanceOf(IllegalArgumentException.class);
+            subscription.close();
+            assertThat(subscription.position()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    @DisplayName("Should overwrite the events of a stalled subscriber and report them as lost")
+    void shouldReportLostEventsTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        try (ChangeStream stream = ChangeStream.attach(database, 4, ChangeStream.Backpressure.DROP_OLDEST)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+            List<long[]> lost = new ArrayList<>();
+            stream.subscribe(new ChangeSubscriber() {
+                @Override
+                public void onEvent(ChangeEvent event) {
+                    started.countDown();
+                    awaitQuietly(release);
+                    received.add(event.sequence());
+                }
+
+                @Override
+                public void onLost(long firstSequence, long lastSequence) {
+                    lost.add(new long[]{firstSequence, lastSequence});
+                }
+            });
+
+            database.addPerson("Jan", "Novák", "123456780", 30);
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < 10; i++) {
+                database.addPerson("Jan", "Novák", "12345678" + i, 30);
+            }
+            release.countDown();
+
+            List<Long> sequences = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                sequences.add(received.poll(5, TimeUnit.SECONDS));
+            }
+            assertThat(sequences).containsExactly(1L, 7L, 8L, 9L, 10L);
+            assertThat(lost).hasSize(1);
+            assertThat(lost.get(0)).containsExactly(2L, 6L);
+        }
+    }
+
+    @Test
+    @DisplayName("Should make a writer wait for the slowest subscriber when the ring is full")
+    void shouldBlockWriterWhenFullTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        try (ChangeStream stream = ChangeStream.attach(database, 2, ChangeStream.Backpressure.BLOCK)) {
+            CountDownLatch release = new CountDownLatch(1);
+            BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+            stream.subscribe(event -> {
+                awaitQuietly(release);
+                received.add(event.sequence());
+            });
+
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 4; i++) {
+                    database.addPerson("Jan", "Novák", "12345678" + i, 30);
+                }
+            });
+            writer.start();
+            writer.join(200);
+            assertThat(writer.isAlive()).isTrue();
+            assertThat(database.listOfAllPersons()).hasSize(3);
+
+            release.countDown();
+            writer.join(5000);
+            assertThat(writer.isAlive()).isFalse();
+            for (long sequence = 1; sequence <= 4; sequence++) {
+                assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(sequence);
+            }
+        }
+    }
+
+    private static ChangeEvent poll(BlockingQueue<ChangeEvent> queue) throws InterruptedException {
+        ChangeEvent event = queue.poll(5, TimeUnit.SECONDS);
+        assertThat(event).isNotNull();
+        return event;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
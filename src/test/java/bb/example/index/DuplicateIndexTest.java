@@ -0,0 +1,40 @@
+package bb.example.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateIndexTest {
+
+    @Test
+    @DisplayName("Should compute the same key ignoring surrounding spaces, letter case, diacritics and phone formatting")
+    void shouldNormalizeKeyTest() {
+        long key = DuplicateIndex.keyOf("Jiří", "Nováková", "123456789");
+
+        assertThat(DuplicateIndex.keyOf(" JIRI", "novakova ", "123 456 789")).isEqualTo(key);
+        assertThat(DuplicateIndex.keyOf("jiri", "novakova", "123-456-789")).isEqualTo(key);
+        assertThat(DuplicateIndex.keyOf("Jiri", "Novakova", "123456780")).isNotEqualTo(key);
+        assertThat(DuplicateIndex.keyOf("Jirin", "ovakova", "123456789")).isNotEqualTo(key);
+        assertThat(DuplicateIndex.keyOf("Novakova", "Jiri", "123456789")).isNotEqualTo(key);
+    }
+
+    @Test
+    @DisplayName("Should claim a key only once and keep the other IDs of a key in a chain")
+    void shouldClaimAndChainIdsTest() {
+        DuplicateIndex index = new DuplicateIndex();
+        long key = DuplicateIndex.keyOf("John", "Doe", "123456789");
+
+        assertThat(index.claim(key, 1)).isEqualTo(DuplicateIndex.MISSING);
+        assertThat(index.claim(key, 2)).isEqualTo(1);
+        assertThat(index.add(key, 3)).isEqualTo(1);
+        assertThat(index.add(key, 4)).isEqualTo(3);
+
+        index.remove(key, 3);
+        index.remove(key, 4);
+        assertThat(index.find(key)).isEqualTo(1);
+        index.remove(key, 1);
+        assertThat(index.find(key)).isEqualTo(DuplicateIndex.MISSING);
+        assertThat(index.claim(key, 5)).isEqualTo(DuplicateIndex.MISSING);
+    }
+}
@@ -0,0 +1,101 @@
+package bb.example.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FuzzyIndexTest {
+
+    @Test
+    @DisplayName("Should count inserted, deleted and replaced letters and swaps of neighbouring letters")
+    void shouldComputeDistanceTest() {
+        assertThat(FuzzyIndex.distance("novak", "novak", 2)).isEqualTo(0);
+        assertThat(FuzzyIndex.distance("novak", "nowak", 2)).isEqualTo(1);
+        assertThat(FuzzyIndex.distance("novak", "novakk", 2)).isEqualTo(1);
+        assertThat(FuzzyIndex.distance("novak", "nvak", 2)).isEqualTo(1);
+        assertThat(FuzzyIndex.distance("novak", "nvoak", 2)).isEqualTo(1);
+        assertThat(FuzzyIndex.distance("novak", "nvoka", 2)).isEqualTo(2);
+        assertThat(FuzzyIndex.distance("novak", "", 2)).isEqualTo(3);
+        assertThat(FuzzyIndex.distance("novak", "svoboda", 2)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should group the IDs by the distance of their closest value")
+    void shouldGroupIdsByDistanceTest() {
+        FuzzyIndex index = new FuzzyIndex();
+        index.add(1, "Jan", "Novák");
+        index.add(2, "Nowak", "Novaková");
+        index.add(3, "Novka", "Nowak");
+        index.add(4, "Petr", "Svoboda");
+
+        FuzzyIndex.Matches matches = index.find("NOVAK", 2);
+
+        assertThat(matches.ids(0)).containsExactly(1);
+        assertThat(matches.ids(1)).containsExactly(2, 3);
+        assertThat(matches.ids(2)).isEmpty();
+        assertThat(matches.distanceOf("Nowak", "Novák")).isEqualTo(0);
+        assertThat(matches.distanceOf("Novka", "Svoboda")).isEqualTo(1);
+        assertThat(matches.distanceOf("Svoboda")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should forget a name when its last person is removed and reuse the freed entries")
+    void shouldRemoveNamesTest() {
+        FuzzyIndex index = new FuzzyIndex();
+        index.add(1, "Anna", "Anna");
+        index.add(2, "Anna", "Berg");
+
+        index.remove(1, "Anna", "Anna");
+        assertThat(index.find("Ana", 1).ids(1)).containsExactly(2);
+
+        index.update(2, new String[]{"Anna", "Berg"}, new String[]{"Hanna", "Berg"});
+        index.add(3, "Ann", "Bergová");
+        assertThat(index.find("Anna", 1).ids(1)).containsExactly(2, 3);
+        assertThat(index.find("Berg", 2).ids(0)).containsExactly(2);
+        assertThat(index.find("Berg", 2).ids(2)).isEmpty();
+        assertThat(index.find("Bergova", 0).ids(0)).containsExactly(3);
+    }
+
+    @Test
+    @DisplayName("Should find the same persons as comparing the query with every stored name")
+    void shouldMatchFullComparisonTest() {
+        Random random = new Random(42);
+        FuzzyIndex index = new FuzzyIndex();
+        List<String> names = new ArrayList<>();
+        for (int id = 1; id <= 2000; id++) {
+            String name = randomName(random);
+            names.add(name);
+            index.add(id, name);
+        }
+        for (int id = 1; id <= 2000; id += 3) {
+            index.remove(id, names.get(id - 1));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String query = randomName(random);
+            FuzzyIndex.Matches matches = index.find(query, 2);
+            for (int distance = 0; distance <= 2; distance++) {
+                List<Integer> expected = new ArrayList<>();
+                for (int id = 1; id <= 2000; id++) {
+                    if (id % 3 != 1 && FuzzyIndex.distance(query, names.get(id - 1), 2) == distance) {
+                        expected.add(id);
+                    }
+                }
+                assertThat(matches.ids(distance)).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[3 + random.nextInt(4)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = "abeilnorst".charAt(random.nextInt(10));
+        }
+        return new String(name);
+    }
+}
@@ -0,0 +1,52 @@
+package bb.example.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntIntHashMapTest {
+
+    @Test
+    @DisplayName("Should behave like a HashMap under random puts and removes")
+    void shouldMatchHashMapTest() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, IntIntHashMap.MISSING));
+                expected.remove(key);
+            } else {
+                int value = 1 + random.nextInt(1_000_000);
+                assertThat(map.put(key, value)).isEqualTo(expected.getOrDefault(key, IntIntHashMap.MISSING));
+                expected.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (int key = 0; key < 5_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, IntIntHashMap.MISSING));
+        }
+        Map<Integer, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertThat(visited).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Should store the key zero")
+    void shouldStoreZeroKeyTest() {
+        IntIntHashMap map = new IntIntHashMap();
+
+        map.put(0, 7);
+
+        assertThat(map.get(0)).isEqualTo(7);
+        assertThat(map.remove(0)).isEqualTo(7);
+        assertThat(map.get(0)).isEqualTo(IntIntHashMap.MISSING);
+    }
+}
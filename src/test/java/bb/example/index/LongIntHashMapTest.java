@@ -0,0 +1,41 @@
+package bb.example.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHashMapTest {
+
+    @Test
+    @DisplayName("Should behave like a HashMap under random puts and removes of any long key")
+    void shouldMatchHashMapTest() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        long[] keys = new long[5_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < 3 ? i - 1 : random.nextLong();
+        }
+        for (int i = 0; i < 100_000; i++) {
+            long key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+                expected.remove(key);
+            } else {
+                int value = 1 + random.nextInt(1_000_000);
+                assertThat(map.put(key, value)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+                expected.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key : keys) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package bb.example.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SurnameIndexTest {
+
+    @Test
+    @DisplayName("Should order persons by surname, name and ID ignoring letter case and diacritics")
+    void shouldOrderBySurnameNameAndIdTest() {
+        SurnameIndex index = new SurnameIndex();
+        index.add(1, "Novák", "Jan");
+        index.add(2, "novak", "Adam");
+        index.add(3, "NOVAK", "jan");
+        index.add(4, "Černý", "Karel");
+        index.add(5, "Nováková", "Eva");
+
+        assertThat(index.page(null, null, 0, 10)).containsExactly(4, 2, 1, 3, 5);
+        assertThat(index.page("Novák", "Jan", 1, 2)).containsExactly(3, 5);
+        assertThat(index.findByPrefix("nov")).containsExactly(2, 1, 3, 5);
+        assertThat(index.findByPrefix("")).hasSize(5);
+        assertThat(index.findRange("Cerny", "Novak")).containsExactly(4);
+        assertThat(index.findRange("Novak", "Novak")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should move a person to its new position when it is renamed and drop it when it is removed")
+    void shouldUpdateAndRemoveEntriesTest() {
+        SurnameIndex index = new SurnameIndex();
+        index.add(1, "Novák", "Jan");
+        index.add(2, "Dvořák", "Petr");
+
+        index.update(1, "Novák", "Jan", "Adámek", "Jan");
+        assertThat(index.page(null, null, 0, 10)).containsExactly(1, 2);
+        index.remove(2, "Dvořák", "Petr");
+        assertThat(index.findByPrefix("dvo")).isEmpty();
+        assertThat(index.page("Adamek", "Jan", 1, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,27 @@
+package bb.example.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextNormalizerTest {
+
+    @Test
+    @DisplayName("Should fold letter case and strip diacritics")
+    void shouldFoldCaseAndDiacriticsTest() {
+        assertThat(TextNormalizer.normalize("Nováková")).isEqualTo("novakova");
+        assertThat(TextNormalizer.normalize("ŘEHOŘ")).isEqualTo("rehor");
+        assertThat(TextNormalizer.normalize("Łódź")).isEqualTo("lodz");
+        assertThat(TextNormalizer.normalize("Straße")).isEqualTo("strasse");
+        assertThat(TextNormalizer.normalize("Jean-Pierre Doe")).isEqualTo("jean-pierre doe");
+    }
+
+    @Test
+    @DisplayName("Should return the same instance for a lower case ASCII value")
+    void shouldNotCopyLowerCaseAsciiTest() {
+        String value = "novak";
+
+        assertThat(TextNormalizer.normalize(value)).isSameAs(value);
+    }
+}
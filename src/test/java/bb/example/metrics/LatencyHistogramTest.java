@@ -0,0 +1,80 @@
+package bb.example.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Should place every value into a bucket whose bounds contain it, with a relative error below 4 %")
+    void shouldKeepValuesWithinBucketBoundsTest() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 100, 1_000, 12_345, 999_999, 1L << 30, (1L << 40) - 1};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertThat(LatencyHistogram.lowestValueOf(bucket)).isLessThanOrEqualTo(value);
+            assertThat(LatencyHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+            long width = LatencyHistogram.highestValueOf(bucket) - LatencyHistogram.lowestValueOf(bucket);
+            assertThat((double) width).isLessThanOrEqualTo(value * 0.04);
+        }
+        for (int bucket = 1; bucket < LatencyHistogram.bucketOf((1L << 40) - 1); bucket++) {
+            assertThat(LatencyHistogram.lowestValueOf(bucket)).isEqualTo(LatencyHistogram.highestValueOf(bucket - 1) + 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should report percentiles, mean and maximum of recorded values")
+    void shouldReportPercentilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram(8);
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000L);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count()).isEqualTo(10_000);
+        assertThat(snapshot.mean()).isEqualTo(5_000_500.0);
+        assertThat(snapshot.p50()).isBetween(5_000_000L, 5_160_000L);
+        assertThat(snapshot.p99()).isBetween(9_900_000L, 10_000_000L);
+        assertThat(snapshot.max()).isEqualTo(10_000_000L);
+    }
+
+    @Test
+    @DisplayName("Should count values recorded concurrently from many threads into striped counters")
+    void shouldCountConcurrentRecordsTest() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % 5_000);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count()).isEqualTo(800_000);
+        assertThat(snapshot.mean()).isEqualTo(2_499.5);
+        assertThat(snapshot.max()).isEqualTo(4_999);
+    }
+
+    @Test
+    @DisplayName("Should record nothing when the metrics are disabled")
+    void shouldRecordNothingWhenDisabledTest() {
+        DatabaseMetrics metrics = DatabaseMetrics.disabled();
+
+        metrics.record(Operation.ADD, metrics.start(), 1);
+        metrics.recordExport(metrics.start(), 10, 100);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.get(Operation.ADD).calls()).isZero();
+        assertThat(snapshot.exportBytes()).isZero();
+    }
+}
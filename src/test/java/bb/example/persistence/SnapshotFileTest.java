@@ -0,0 +1,79 @@
+package bb.example.persistence;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should restore the persons, their IDs and the next ID from the snapshot")
+    void shouldRestorePersonsTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        for (int i = 0; i < 100_000; i++) {
+            database.addPerson("Jan" + i % 100, "Novák", String.valueOf(100_000_000 + i), i % 151);
+        }
+        database.addPerson("Homer", "Simpson", "12345", 52);
+        database.deletePerson(7);
+        database.deletePerson(database.addPerson("Deleted", "Last", "123456789", 1));
+        Path snapshot = directory.resolve("snapshot");
+        SnapshotFile.write(snapshot, database, 42);
+
+        PersonDatabase restored = new PersonDatabase();
+        SnapshotFile.Header header = SnapshotFile.load(snapshot, restored);
+
+        assertThat(header).isEqualTo(new SnapshotFile.Header(42, 100_003));
+        // list equality, the element by element assertion of 100 thousand persons takes minutes
+        assertThat(new ArrayList<>(restored.listOfAllPersons())).isEqualTo(new ArrayList<>(database.listOfAllPersons()));
+        assertThat(restored.findSpecificPerson("Simpson")).extracting(Person::id).containsExactly(100_001);
+        assertThat(restored.findByPhone("100000099")).extracting(Person::id).containsExactly(100);
+        assertThat(restored.nextId()).isEqualTo(100_003);
+    }
+
+    @Test
+    @DisplayName("Should reject a snapshot whose content does not match the checksum")
+    void shouldRejectCorruptedSnapshotTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        database.addPerson("John", "Doe", "123456789", 25);
+        Path snapshot = directory.resolve("snapshot");
+        SnapshotFile.write(snapshot, database, 0);
+        byte[] content = Files.readAllBytes(snapshot);
+        content[22] ^= 1;
+        Files.write(snapshot, content);
+
+        assertThatThrownBy(() -> SnapshotFile.load(snapshot, new PersonDatabase()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("corrupted");
+    }
+
+    @Test
+    @DisplayName("Should reject a snapshot of another format version")
+    void shouldRejectOtherFormatVersionTest() throws IOException {
+        Path snapshot = directory.resolve("snapshot");
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(snapshot))) {
+            output.writeInt(0x49455350);
+            output.writeInt(1);
+            output.writeLong(3);
+            output.writeInt(10);
+            output.write(new byte[64]);
+        }
+
+        assertThatThrownBy(() -> SnapshotFile.load(snapshot, new PersonDatabase()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unsupported");
+    }
+}
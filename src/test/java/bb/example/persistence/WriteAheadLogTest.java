@@ -0,0 +1,168 @@
+package bb.example.persistence;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import bb.example.PersonDetails;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the logs opened only to recover the database are not used in the body of the try statements
+@SuppressWarnings("try")
+class WriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should rebuild the database from the log after a restart")
+    void shouldRecoverAddedEditedAndDeletedPersonsTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        WriteAheadLog log = WriteAheadLog.open(directory, database);
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Homer", "Simpson", "987654321", 52);
+        database.addPerson("Marge", "Simpson", "111222333", 50);
+        database.editPerson(1, "Bart", "Simpson", "123123123");
+        database.deletePerson(2);
+        List<Person> expected = new ArrayList<>(database.listOfAllPersons());
+        log.halt(); // the files stay as they would after the process was killed
+
+        PersonDatabase recovered = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recovered)) {
+            assertThat(recovered.listOfAllPersons()).containsExactlyElementsOf(expected);
+            assertThat(recovered.findSpecificPerson("Simpson")).containsExactlyElementsOf(expected);
+            assertThat(recovered.addPerson("Lisa", "Simpson", "123456789", 8)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild the database from the snapshot and the log tail")
+    void shouldRecoverFromSnapshotAndLogTailTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        WriteAheadLog log = WriteAheadLog.open(directory, database);
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Homer", "Simpson", "987654321", 52);
+        log.checkpoint();
+        database.editPerson(2, "Homer", "Simpson", "555666777");
+        database.addPerson("Lisa", "Simpson", "123456789", 8);
+        database.deletePerson(3);
+        List<Person> expected = new ArrayList<>(database.listOfAllPersons());
+        log.halt(); // the files stay as they would after the process was killed
+
+        assertThat(segmentCount()).isEqualTo(1);
+        PersonDatabase recovered = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recovered)) {
+            assertThat(recovered.listOfAllPersons()).containsExactlyElementsOf(expected);
+            assertThat(recovered.nextId()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    @DisplayName("Should persist changes made with deferred syncs once the log is flushed")
+    void shouldRecoverDeferredChangesAfterFlushTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        WriteAheadLog log = WriteAheadLog.open(directory, database);
+        log.setDeferredSync(true);
+        for (int i = 0; i < 100; i++) {
+            database.addPerson("John", "Doe", "123456789", i);
+        }
+        database.deletePerson(50);
+        log.flush();
+        List<Person> expected = new ArrayList<>(database.listOfAllPersons());
+        log.halt(); // the files stay as they would after the process was killed
+
+        PersonDatabase recovered = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recovered)) {
+            assertThat(recovered.listOfAllPersons()).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("Should ignore a torn record at the end of the log")
+    void shouldIgnoreTornTailTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        WriteAheadLog log = WriteAheadLog.open(directory, database);
+        database.addPerson("John", "Doe", "123456789", 25);
+        log.halt(); // the files stay as they would after the process was killed
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        PersonDatabase recovered = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recovered)) {
+            assertThat(recovered.listOfAllPersons()).containsExactly(new Person(1, "John", "Doe", "123456789", 25));
+            recovered.addPerson("Homer", "Simpson", "987654321", 52);
+        }
+
+        PersonDatabase recoveredAgain = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recoveredAgain)) {
+            assertThat(recoveredAgain.listOfAllPersons()).hasSize(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Should persist batch operations")
+    void shouldRecoverBatchOperationsTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        WriteAheadLog log = WriteAheadLog.open(directory, database);
+        database.addPersons(List.of(
+                new PersonDetails("John", "Doe", "123456789", 25),
+                new PersonDetails("Homer", "Simpson", "987654321", 52),
+                new PersonDetails("Marge", "Simpson", "111222333", 50)));
+        database.deletePersons(new int[]{1, 3});
+        log.halt(); // the files stay as they would after the process was killed
+
+        PersonDatabase recovered = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recovered)) {
+            assertThat(recovered.listOfAllPersons()).containsExactly(new Person(2, "Homer", "Simpson", "987654321", 52));
+            assertThat(recovered.nextId()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    @DisplayName("Should persist changes written concurrently with group commit")
+    void shouldPersistConcurrentChangesTest() throws Exception {
+        PersonDatabase database = new PersonDatabase();
+        WriteAheadLog log = WriteAheadLog.open(directory, database, Duration.ofMillis(50), 4096);
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread writer = new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    int id = database.addPerson("John", "Doe", "123456789", 25);
+                    if (j % 3 == 0) {
+                        database.deletePerson(id);
+                    }
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        List<Person> expected = new ArrayList<>(database.listOfAllPersons());
+        log.halt(); // the files stay as they would after the process was killed
+
+        PersonDatabase recovered = new PersonDatabase();
+        try (WriteAheadLog ignored = WriteAheadLog.open(directory, recovered)) {
+            assertThat(recovered.listOfAllPersons()).containsExactlyElementsOf(expected);
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        }
+    }
+}
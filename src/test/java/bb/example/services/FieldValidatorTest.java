@@ -0,0 +1,71 @@
+package bb.example.services;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FieldValidatorTest {
+    static final List<String> INPUTS = List.of("", " ", "  ", "\t", "-", " - ", "John", "Jean-Pierre", "Van Dyke", "Jiří",
+            "John1", "John_", "Jo hn", "𝐀", "0", "7", "42", "150", "151", "000000150", "0000000150",
+            "123456789", "12345678", "1234567890", "2147483647", "2147483648", "99999999999", "-1", "+1", "1 ", " 1",
+            "٣٤", "12345678x", "١٢٣٤٥٦٧٨٩");
+
+    /**
+     * The rules as they were implemented with streams before the validation kernel.
+     */
+    static boolean previousIsValidNumber(String input) {
+        return !input.isBlank() && input.chars().allMatch(Character::isDigit);
+    }
+
+    static boolean previousDoesContainChar(String input) {
+        return input.chars().allMatch(letter -> Character.isAlphabetic(letter) || letter == ' ' || letter == '-') && !input.isBlank();
+    }
+
+    static boolean previousIsValidAge(String input) {
+        return previousIsValidNumber(input) && input.length() <= 9 && Integer.parseInt(input) <= 150;
+    }
+
+    @Test
+    @DisplayName("Should accept the same numbers and names as the previous rules")
+    void shouldMatchPreviousRulesTest() {
+        for (String input : INPUTS) {
+            assertThat(Validators.isValidNumber(input)).as(input).isEqualTo(previousIsValidNumber(input));
+            assertThat(Validators.doesContainChar(input)).as(input).isEqualTo(previousDoesContainChar(input));
+            assertThat(FieldValidator.checkPhone(input, 0, input.length()) == null).as(input).isEqualTo(previousIsValidNumber(input) && input.length() == 9);
+            assertThat(FieldValidator.checkAge(input, 0, input.length()) == null).as(input).isEqualTo(previousIsValidAge(input));
+            assertThat(FieldValidator.parseId(input, 0, input.length()) != FieldValidator.INVALID).as(input).isEqualTo(previousIsValidNumber(input) && input.length() <= 9);
+        }
+    }
+
+    @Test
+    @DisplayName("Should parse numbers like Integer.parseInt and reject those not fitting in an int")
+    void shouldParseNumbersTest() {
+        for (String input : INPUTS) {
+            int expected;
+            try {
+                expected = previousIsValidNumber(input) ? Integer.parseInt(input) : FieldValidator.INVALID;
+            } catch (NumberFormatException e) {
+                expected = FieldValidator.INVALID;
+            }
+            assertThat(FieldValidator.parseNumber(input, 0, input.length())).as(input).isEqualTo(expected);
+        }
+        assertThat(FieldValidator.parseAge("age=42;", 4, 6)).isEqualTo(42);
+        assertThat(FieldValidator.parseAge("151", 0, 3)).isEqualTo(FieldValidator.INVALID);
+    }
+
+    @Test
+    @DisplayName("Should return the first error of a person as a code")
+    void shouldReturnErrorCodesTest() {
+        assertThat(FieldValidator.checkPerson("John", "Doe", "123456789", "25")).isNull();
+        assertThat(FieldValidator.checkPerson("John", "Doe", "123456789", null)).isNull();
+        assertThat(FieldValidator.checkPerson("John1", "Doe1", "1", "x")).isEqualTo(ValidationError.NAME_INVALID);
+        assertThat(FieldValidator.checkPerson("John", "Doe1", "1", "x")).isEqualTo(ValidationError.SURNAME_INVALID);
+        assertThat(FieldValidator.checkPerson("John", "Doe", "12345678a", "x")).isEqualTo(ValidationError.PHONE_NOT_DIGITS);
+        assertThat(FieldValidator.checkPerson("John", "Doe", "12345678", "x")).isEqualTo(ValidationError.PHONE_WRONG_LENGTH);
+        assertThat(FieldValidator.checkPerson("John", "Doe", "123456789", "x")).isEqualTo(ValidationError.AGE_NOT_NUMBER);
+        assertThat(FieldValidator.checkPerson("John", "Doe", "123456789", "151")).isEqualTo(ValidationError.AGE_OUT_OF_RANGE);
+    }
+}
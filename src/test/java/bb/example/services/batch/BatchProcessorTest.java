@@ -0,0 +1,115 @@
+package bb.example.services.batch;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchProcessorTest {
+
+    private static String run(BatchProcessor processor, String script) throws IOException {
+        StringWriter output = new StringWriter();
+        processor.run(new BufferedReader(new StringReader(script)), output);
+        return output.toString();
+    }
+
+    @Test
+    @DisplayName("Should execute the commands in the order of the script and report one result per command")
+    void shouldExecuteCommandsInOrderTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        String script = """
+                add,John,Doe,123456789,25
+                add,Jane,Doe,987654321,30
+                # a comment
+
+                search,Doe
+                edit,1,Johnny,Doe,111111111
+                delete,2
+                delete,2
+                search,Doe
+                """;
+
+        String output = run(new BatchProcessor(database), script);
+
+        assertThat(output).isEqualTo("""
+                ok,1,1
+                ok,2,2
+                ok,5,2,1 2
+                ok,6,1
+                ok,7,2
+                error,8,Person with the given ID not found
+                ok,9,1,1
+                """);
+        assertThat(database.findById(1)).isEqualTo(new Person(1, "Johnny", "Doe", "111111111", 25));
+    }
+
+    @Test
+    @DisplayName("Should report invalid commands with their line numbers and continue")
+    void shouldReportInvalidCommandsTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        String script = """
+                add,John,Doe,12345,25
+                remove,1
+                add,John,Doe,123456789
+                edit,x,John,Doe,123456789
+                add,Jane,Doe,987654321,151
+                add,Jane,Doe,987654321,30
+                """;
+
+        StringWriter output = new StringWriter();
+        BatchSummary summary = new BatchProcessor(database).run(new BufferedReader(new StringReader(script)), output);
+
+        assertThat(output.toString()).isEqualTo("""
+                error,1,The phone number must be a 9-digit number
+                error,2,Unknown command: remove
+                error,3,Expected 4 arguments of add
+                error,4,Invalid ID
+                error,5,The age must be in the range of 0-150
+                ok,6,1
+                """);
+        assertThat(summary).isEqualTo(new BatchSummary(6, 5));
+    }
+
+    @Test
+    @DisplayName("Should export the database as it is after the preceding commands")
+    void shouldExportAfterPrecedingCommandsTest(@TempDir Path directory) throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        Path file = directory.resolve("export.txt");
+        String script = "add,John,Doe,123456789,25\nadd,Jane,Doe,987654321,30\ndelete,1\nexport," + file + "\n";
+
+        String output = run(new BatchProcessor(database), script);
+
+        assertThat(output).startsWith("ok,1,1\nok,2,2\nok,3,1\nok,4,1,");
+        assertThat(Files.readAllLines(file)).containsExactly("Database of insured persons:", "Jane, Doe, 987654321, 30");
+    }
+
+    @Test
+    @DisplayName("Should keep the order of commands spread over many chunks parsed in parallel")
+    void shouldKeepOrderAcrossChunksTest() throws IOException {
+        PersonDatabase database = new PersonDatabase();
+        StringBuilder script = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 1_000; i++) {
+            script.append("add,John,Doe,123456789,").append(i % 151).append('\n');
+            expected.append("ok,").append(2 * i - 1).append(',').append(i).append('\n');
+            script.append("edit,").append(i).append(",Jane,Doe,987654321\n");
+            expected.append("ok,").append(2 * i).append(',').append(i).append('\n');
+        }
+
+        String output = run(new BatchProcessor(database, () -> {
+        }, 4, 7), script.toString());
+
+        assertThat(output).isEqualTo(expected.toString());
+        assertThat(database.findSpecificPerson("Jane")).hasSize(1_000);
+    }
+}
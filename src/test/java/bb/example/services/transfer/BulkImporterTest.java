@@ -0,0 +1,134 @@
+package bb.example.services.transfer;
+
+import bb.example.DuplicatePolicy;
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkImporterTest {
+    @TempDir
+    Path directory;
+
+    PersonDatabase database;
+
+    @BeforeEach
+    void beforeEach() {
+        database = new PersonDatabase();
+    }
+
+    @Test
+    @DisplayName("Should load persons from a file created by the text export")
+    void shouldImportTextExportTest() throws IOException {
+        List<Person> persons = List.of(
+                new Person(1, "John", "Doe", "123456789", 25),
+                new Person(2, "Jiří", "Nováček", "987654321", 0),
+                new Person(3, "Ann-Marie", "Van Dyke", "111222333", 150));
+        Path file = directory.resolve("persons.txt");
+        new TextExporter().export(persons, file);
+
+        ImportResult result = new BulkImporter(database).importFile(file);
+
+        assertThat(result.accepted()).isEqualTo(3);
+        assertThat(result.rejected()).isZero();
+        assertThat(database.listOfAllPersons()).containsExactlyElementsOf(persons);
+    }
+
+    @Test
+    @DisplayName("Should load persons from a file created by the compressed export")
+    void shouldImportCompressedExportTest() throws IOException {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 1; i <= 2_500; i++) {
+            persons.add(new Person(i, "Person", "Number", "123456789", i % 151));
+        }
+        Path file = directory.resolve("persons.txt.gz");
+        new GzipExporter(2, 1_000).export(persons, file, new ExportProgress());
+
+        ImportResult result = new BulkImporter(database).importFile(file);
+
+        assertThat(result.accepted()).isEqualTo(2_500);
+        assertThat(database.listOfAllPersons()).containsExactlyElementsOf(persons);
+    }
+
+    @Test
+    @DisplayName("Should report the lines of rejected duplicates in the order of the file")
+    void shouldRejectDuplicateLinesTest() throws IOException {
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.enableDuplicateDetection(DuplicatePolicy.REJECT);
+        String csv = """
+                name,surname,phone,age
+                JOHN,Doe,123456789,25
+                Homer,Simpson,987654321,52
+                Marge,Simpson,12345,50
+                Homer,Simpson,987654321,52
+                """;
+
+        ImportResult result = new BulkImporter(database).importLines(new BufferedReader(new StringReader(csv)));
+
+        assertThat(result.accepted()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(3);
+        assertThat(result.rejects()).extracting(ImportResult.Reject::lineNumber).containsExactly(2L, 4L, 5L);
+        assertThat(result.rejects().get(0).line()).isEqualTo("JOHN,Doe,123456789,25");
+        assertThat(result.rejects().get(2).reason()).isEqualTo("The same person is already recorded");
+    }
+
+    @Test
+    @DisplayName("Should load CSV lines and report rejected lines with their numbers")
+    void shouldImportCsvAndReportRejectsTest() throws IOException {
+        String csv = """
+                name,surname,phone,age
+                John,Doe,123456789,25
+                "Homer", "Simpson" , 987654321 ,52
+                John2,Doe,123456789,25
+                Marge,Simpson,12345,50
+
+                Bart,Simpson,123456789,151
+                Lisa,Simpson,123456789
+                Maggie,Simpson,123456789,1
+                """;
+
+        ImportResult result = new BulkImporter(database).importLines(new BufferedReader(new StringReader(csv)));
+
+        assertThat(result.accepted()).isEqualTo(3);
+        assertThat(result.rejected()).isEqualTo(4);
+        assertThat(result.rejects()).extracting(ImportResult.Reject::lineNumber).containsExactly(4L, 5L, 7L, 8L);
+        assertThat(database.listOfAllPersons()).containsExactly(
+                new Person(1, "John", "Doe", "123456789", 25),
+                new Person(2, "Homer", "Simpson", "987654321", 52),
+                new Person(3, "Maggie", "Simpson", "123456789", 1));
+    }
+
+    @Test
+    @DisplayName("Should keep the order of the file when chunks are parsed in parallel")
+    void shouldKeepFileOrderAcrossChunksTest() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            lines.add(i % 100 == 0 ? "invalid line" : "Person,Number,123456789," + (i % 151));
+        }
+        Path file = directory.resolve("persons.csv");
+        Files.write(file, lines);
+
+        ImportResult result = new BulkImporter(database, 4, 37).importFile(file);
+
+        assertThat(result.accepted()).isEqualTo(990);
+        assertThat(result.rejects()).extracting(ImportResult.Reject::lineNumber)
+                .containsExactly(1L, 101L, 201L, 301L, 401L, 501L, 601L, 701L, 801L, 901L);
+        assertThat(database.listOfAllPersons()).extracting(Person::age)
+                .containsExactlyElementsOf(lines.stream()
+                        .filter(line -> !line.startsWith("invalid"))
+                        .map(line -> Integer.parseInt(line.substring(line.lastIndexOf(',') + 1)))
+                        .toList());
+    }
+}
@@ -0,0 +1,162 @@
+package bb.example.services.transfer;
+
+import bb.example.PersonDatabase;
+import bb.example.PersonDetails;
+import bb.example.metrics.Operation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExportServiceTest {
+    static final int SIZE = 20_000;
+
+    @TempDir
+    Path directory;
+
+    PersonDatabase database = new PersonDatabase();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    ExportService service = new ExportService(database, executor);
+    CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void beforeEach() {
+        List<PersonDetails> persons = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            persons.add(new PersonDetails("John", "Doe", "123456789", i % 151));
+        }
+        database.addPersons(persons);
+    }
+
+    @AfterEach
+    void afterEach() {
+        release.countDown();
+        service.close();
+    }
+
+    /**
+     * Occupies both threads of the executor until the latch is released, started exports wait in the queue.
+     */
+    void blockExecutor() {
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    @Test
+    @DisplayName("Should run exports into different files at the same time and report them once")
+    void shouldRunConcurrentExportsTest() throws Exception {
+        ExportJob first = service.start(directory.resolve("first.txt"));
+        ExportJob second = service.start(directory.resolve("second.txt"));
+        service.awaitAll();
+
+        for (ExportJob job : List.of(first, second)) {
+            assertThat(job.state()).isEqualTo(ExportJob.State.COMPLETED);
+            assertThat(job.result().records()).isEqualTo(SIZE);
+            assertThat(job.records()).isEqualTo(SIZE);
+            assertThat(job.bytes()).isEqualTo(Files.size(job.target()));
+        }
+        assertThat(service.takeFinished()).containsOnly(first, second);
+        assertThat(service.takeFinished()).isEmpty();
+        assertThat(service.running()).isZero();
+        assertThat(database.metrics().snapshot().get(Operation.EXPORT).calls()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should return a finished export only with its final state while polling during the export")
+    void shouldReportFinalStateWhilePollingTest() throws Exception {
+        List<ExportJob> started = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            started.add(service.start(directory.resolve("persons" + i + ".txt")));
+        }
+        List<ExportJob> taken = new ArrayList<>();
+        while (taken.size() < started.size()) {
+            for (ExportJob job : service.takeFinished()) {
+                assertThat(job.state()).isEqualTo(ExportJob.State.COMPLETED);
+                assertThat(job.result()).isNotNull();
+                taken.add(job);
+            }
+            Thread.onSpinWait();
+        }
+
+        assertThat(taken).containsOnlyElementsOf(started).doesNotHaveDuplicates();
+        service.awaitAll();
+        assertThat(service.takeFinished()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should hand a job over for reporting only after its final state is set")
+    void shouldSetFinalStateBeforeReportingTest() {
+        List<ExportJob.State> reportedStates = new ArrayList<>();
+        ExportJob completed = new ExportJob(1, directory.resolve("first.txt"), job -> reportedStates.add(job.state()));
+        ExportJob failed = new ExportJob(2, directory.resolve("second.txt"), job -> reportedStates.add(job.state()));
+
+        completed.complete(new ExportResult(directory.resolve("first.txt"), 1, 10));
+        failed.fail("disk full");
+
+        assertThat(reportedStates).containsExactly(ExportJob.State.COMPLETED, ExportJob.State.FAILED);
+    }
+
+    @Test
+    @DisplayName("Should export the database as it was when the export was started")
+    void shouldExportSnapshotTest() throws Exception {
+        blockExecutor();
+        ExportJob job = service.start(directory.resolve("persons.txt"));
+        database.addPerson("Homer", "Simpson", "987654321", 52);
+        database.deletePerson(1);
+        release.countDown();
+
+        assertThat(job.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(job.result().records()).isEqualTo(SIZE);
+        assertThat(Files.readString(job.target())).doesNotContain("Simpson");
+    }
+
+    @Test
+    @DisplayName("Should keep the previous file when the export is cancelled")
+    void shouldCancelExportTest() throws Exception {
+        Path target = directory.resolve("persons.txt");
+        Files.writeString(target, "previous");
+        blockExecutor();
+        ExportJob job = service.start(target);
+        job.cancel();
+        release.countDown();
+
+        assertThat(job.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(job.state()).isEqualTo(ExportJob.State.CANCELLED);
+        assertThat(Files.readString(target)).isEqualTo("previous");
+        assertThat(directory.toFile().list()).containsExactly("persons.txt");
+    }
+
+    @Test
+    @DisplayName("Should refuse a second export into a file which is being written")
+    void shouldRefuseExportIntoSameFileTest() throws IOException {
+        blockExecutor();
+        Path target = directory.resolve("persons.txt");
+        service.start(target);
+
+        assertThatThrownBy(() -> service.start(directory.resolve("./persons.txt")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("#1");
+        assertThat(service.running()).isEqualTo(1);
+    }
+}
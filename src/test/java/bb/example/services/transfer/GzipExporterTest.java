@@ -0,0 +1,148 @@
+package bb.example.services.transfer;
+
+import bb.example.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GzipExporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should compress into members which decompress into exactly the text export")
+    void shouldDecompressIntoTextExportTest() throws IOException {
+        List<Person> persons = persons(10_500);
+        Path text = directory.resolve("persons.txt");
+        Path compressed = directory.resolve("persons.txt.gz");
+        new TextExporter().export(persons, text);
+
+        ExportProgress progress = new ExportProgress();
+        ExportResult result = new GzipExporter(3, 1_000).export(persons, compressed, progress);
+
+        assertThat(decompress(compressed)).isEqualTo(Files.readAllBytes(text));
+        assertThat(memberCount(Files.readAllBytes(compressed))).isEqualTo(11);
+        assertThat(result.records()).isEqualTo(10_500);
+        assertThat(result.bytes()).isEqualTo(Files.size(compressed)).isLessThan(Files.size(text));
+        assertThat(progress.records()).isEqualTo(10_500);
+        assertThat(progress.bytes()).isEqualTo(result.bytes());
+    }
+
+    @Test
+    @DisplayName("Should write a multi-member stream which the JDK gzip reader accepts")
+    void shouldBeReadableByJdkReaderTest() throws IOException {
+        List<Person> persons = persons(5_000);
+        Path compressed = directory.resolve("persons.gz");
+        new GzipExporter(2, 700).export(persons, compressed, new ExportProgress());
+
+        String content;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        assertThat(content.lines()).hasSize(5_001).startsWith(TextExporter.HEADER, "Person1, Number, 123456789, 1");
+    }
+
+    @Test
+    @DisplayName("Should write only the header when there are no persons")
+    void shouldExportHeaderOnlyTest() throws IOException {
+        Path compressed = directory.resolve("empty.gz");
+
+        ExportResult result = new GzipExporter(2, 100).export(List.of(), compressed, new ExportProgress());
+
+        assertThat(new String(decompress(compressed), StandardCharsets.UTF_8))
+                .isEqualTo(TextExporter.HEADER + System.lineSeparator());
+        assertThat(result.records()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should stop a cancelled export and keep the previous file")
+    void shouldKeepPreviousFileWhenCancelledTest() throws IOException {
+        Path compressed = directory.resolve("persons.gz");
+        Files.writeString(compressed, "previous");
+        ExportProgress progress = new ExportProgress();
+        progress.cancel();
+
+        assertThatThrownBy(() -> new GzipExporter(2, 100).export(persons(1_000), compressed, progress))
+                .isInstanceOf(CancellationException.class);
+
+        assertThat(Files.readString(compressed)).isEqualTo("previous");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.toList()).containsExactly(compressed);
+        }
+    }
+
+    @Test
+    @DisplayName("Should compress on shared threads instead of starting threads for every export")
+    void shouldShareCompressionThreadsTest() throws IOException {
+        List<Person> persons = persons(2_000);
+        for (int i = 0; i < 5; i++) {
+            new GzipExporter(4, 100).export(persons, directory.resolve("persons" + i + ".gz"), new ExportProgress());
+        }
+        long compressionThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("gzip-"))
+                .count();
+        assertThat(compressionThreads).isBetween(1L, (long) Runtime.getRuntime().availableProcessors());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Path compressed = directory.resolve("injected.gz");
+            new GzipExporter(executor, 2, 100, Deflater.BEST_SPEED).export(persons, compressed, new ExportProgress());
+            assertThat(executor.isShutdown()).isFalse();
+            assertThat(decompress(compressed)).isEqualTo(decompress(directory.resolve("persons0.gz")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should choose the exporter by the extension of the target")
+    void shouldChooseExporterByExtensionTest() {
+        assertThat(PersonExporter.forTarget(Path.of("dir", "persons.txt.gz"))).isInstanceOf(GzipExporter.class);
+        assertThat(PersonExporter.forTarget(Path.of("dir", "persons.txt"))).isInstanceOf(TextExporter.class);
+    }
+
+    private static List<Person> persons(int count) {
+        List<Person> persons = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            persons.add(new Person(i, "Person" + i, "Number", "123456789", i % 151));
+        }
+        return persons;
+    }
+
+    private static byte[] decompress(Path file) throws IOException {
+        try (InputStream in = new GzipMembersInputStream(Files.newInputStream(file))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Counts the member headers, the compressed data of the test persons never contains the whole header.
+     */
+    private static int memberCount(byte[] bytes) {
+        int count = 0;
+        for (int i = 0; i + 3 < bytes.length; i++) {
+            if ((bytes[i] & 0xff) == 0x1f && (bytes[i + 1] & 0xff) == 0x8b && bytes[i + 2] == 8 && bytes[i + 3] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
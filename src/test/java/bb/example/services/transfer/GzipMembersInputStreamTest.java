@@ -0,0 +1,104 @@
+package bb.example.services.transfer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GzipMembersInputStreamTest {
+    @Test
+    @DisplayName("Should read all members even when the input never reports available bytes")
+    void shouldReadAllMembersTest() throws IOException {
+        byte[] bytes = concat(gzip("first member\n"), gzip(""), gzip("second member\n".repeat(1000)));
+
+        try (InputStream in = new GzipMembersInputStream(new SlowInputStream(bytes))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("first member\n" + "second member\n".repeat(1000));
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip the optional file name, comment and extra field of the header")
+    void shouldSkipOptionalHeaderFieldsTest() throws IOException {
+        byte[] member = gzip("content");
+        byte[] header = {0x1f, (byte) 0x8b, 8, 4 | 8 | 16, 0, 0, 0, 0, 0, 3, 2, 0, 'x', 'y', 'a', '.', 't', 'x', 't', 0, 'c', 0};
+        byte[] bytes = concat(header, Arrays.copyOfRange(member, 10, member.length));
+
+        try (InputStream in = new GzipMembersInputStream(new ByteArrayInputStream(bytes))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("content");
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a member with a wrong checksum")
+    void shouldRejectCorruptTrailerTest() {
+        byte[] bytes = gzip("content");
+        bytes[bytes.length - 8] ^= 1;
+
+        assertThatThrownBy(() -> readAll(bytes)).isInstanceOf(ZipException.class).hasMessageContaining("trailer");
+    }
+
+    @Test
+    @DisplayName("Should reject a truncated stream and data which is not gzip")
+    void shouldRejectTruncatedAndForeignDataTest() {
+        byte[] bytes = gzip("content");
+
+        assertThatThrownBy(() -> readAll(Arrays.copyOf(bytes, bytes.length - 3))).isInstanceOf(EOFException.class);
+        assertThatThrownBy(() -> readAll(concat(bytes, "text".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(ZipException.class).hasMessageContaining("Not in gzip format");
+    }
+
+    private static byte[] readAll(byte[] bytes) throws IOException {
+        try (InputStream in = new GzipMembersInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] gzip(String content) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            buffer.writeBytes(part);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Returns at most 7 bytes per read and never reports available bytes, like a slow network stream.
+     */
+    private static final class SlowInputStream extends ByteArrayInputStream {
+        SlowInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 7));
+        }
+
+        @Override
+        public synchronized int available() {
+            return 0;
+        }
+    }
+}
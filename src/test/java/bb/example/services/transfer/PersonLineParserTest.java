@@ -0,0 +1,32 @@
+package bb.example.services.transfer;
+
+import bb.example.PersonDetails;
+import bb.example.services.ValidationError;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonLineParserTest {
+    @Test
+    @DisplayName("Should split the lines of both formats like String.split")
+    void shouldSplitLikeStringSplitTest() {
+        PersonLineParser text = new PersonLineParser(BulkImporter.Format.TEXT);
+        PersonLineParser csv = new PersonLineParser(BulkImporter.Format.CSV);
+
+        assertThat(text.parse("John, Doe, 123456789, 25")).isNull();
+        assertThat(text.person()).isEqualTo(new PersonDetails("John", "Doe", "123456789", 25));
+        assertThat(csv.parse(" \"Ann-Marie\" ,Van Dyke,\t123456789 , \"150\"")).isNull();
+        assertThat(csv.person()).isEqualTo(new PersonDetails("Ann-Marie", "Van Dyke", "123456789", 150));
+
+        for (String line : List.of("John, Doe, 123456789", "John, Doe, 123456789, 25, ", "John,Doe,123456789,25", ", , , ")) {
+            String[] fields = line.split(TextExporter.SEPARATOR, -1);
+            assertThat(text.parse(line) == ValidationError.FIELD_COUNT).as(line).isEqualTo(fields.length != 4);
+        }
+        assertThat(csv.parse("John,Doe,123456789,25,")).isEqualTo(ValidationError.FIELD_COUNT);
+        assertThat(csv.parse("John,Doe,123456789,\"\"")).isEqualTo(ValidationError.AGE_NOT_NUMBER);
+        assertThat(csv.parse("\",Doe,123456789,25")).isEqualTo(ValidationError.NAME_INVALID);
+    }
+}
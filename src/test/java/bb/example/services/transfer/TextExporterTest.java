@@ -0,0 +1,55 @@
+package bb.example.services.transfer;
+
+import bb.example.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextExporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should write persons in the text format and report records and bytes")
+    void shouldExportPersonsTest() throws IOException {
+        Path target = directory.resolve("persons").resolve("file.txt");
+        List<Person> persons = List.of(
+                new Person(1, "John", "Doe", "123456789", 25),
+                new Person(2, "Jiří", "Nováček", "987654321", 0),
+                new Person(3, "Homer", "Simpson", "111222333", 150));
+
+        ExportResult result = new TextExporter().export(persons, target);
+
+        String lineSeparator = System.lineSeparator();
+        String expected = "Database of insured persons:" + lineSeparator
+                + "John, Doe, 123456789, 25" + lineSeparator
+                + "Jiří, Nováček, 987654321, 0" + lineSeparator
+                + "Homer, Simpson, 111222333, 150" + lineSeparator;
+        assertThat(Files.readString(target)).isEqualTo(expected);
+        assertThat(result.records()).isEqualTo(3);
+        assertThat(result.bytes()).isEqualTo(Files.size(target));
+        assertThat(result.path()).isEqualTo(target);
+    }
+
+    @Test
+    @DisplayName("Should replace the previous export and leave no temporary file behind")
+    void shouldReplacePreviousExportTest() throws IOException {
+        Path target = directory.resolve("file.txt");
+        Files.writeString(target, "previous content which is longer than the new export");
+
+        new TextExporter().export(List.of(new Person(1, "John", "Doe", "123456789", 25)), target);
+
+        assertThat(Files.readAllLines(target)).containsExactly("Database of insured persons:", "John, Doe, 123456789, 25");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.toList()).containsExactly(target);
+        }
+    }
+}
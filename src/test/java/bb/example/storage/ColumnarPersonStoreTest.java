@@ -0,0 +1,163 @@
+package bb.example.storage;
+
+import bb.example.Person;
+import bb.example.PersonDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarPersonStoreTest {
+    ColumnarPersonStore store = new ColumnarPersonStore();
+
+    @Test
+    @DisplayName("Should store, replace and remove persons")
+    void shouldStoreReplaceAndRemovePersonsTest() {
+        Person john = new Person(1, "John", "Doe", "012345678", 25);
+        Person homer = new Person(2, "Homer", "Simpson", "987654321", 52);
+        store.put(john);
+        store.put(homer);
+
+        assertThat(store.get(1)).isEqualTo(john);
+        assertThat(store.get(3)).isNull();
+
+        Person marge = new Person(2, "Marge", "Simpson", "111222333", 50);
+        store.put(marge);
+        assertThat(store.get(2)).isEqualTo(marge);
+        assertThat(store.size()).isEqualTo(2);
+
+        assertThat(store.remove(1)).isEqualTo(john);
+        assertThat(store.remove(1)).isNull();
+        assertThat(store.get(1)).isNull();
+        assertThat(store.values()).containsExactly(marge);
+    }
+
+    @Test
+    @DisplayName("Should keep phone numbers which cannot be packed into an int")
+    void shouldKeepUnusualPhoneNumbersTest() {
+        Person shortPhone = new Person(1, "John", "Doe", "12345", 25);
+        Person letters = new Person(2, "Homer", "Simpson", "98765432a", 52);
+        store.put(shortPhone);
+        store.put(letters);
+
+        assertThat(store.values()).containsExactly(shortPhone, letters);
+    }
+
+    @Test
+    @DisplayName("Should keep persons ordered by ID when they are restored out of order and compacted")
+    void shouldKeepOrderAfterOutOfOrderInsertsAndCompactionTest() {
+        List<Person> expected = new ArrayList<>();
+        for (int id = 5_000; id >= 1; id--) {
+            store.put(new Person(id, "Name" + id % 10, "Surname" + id % 7, "123456789", id % 151));
+        }
+        for (int id = 1; id <= 5_000; id++) {
+            if (id % 4 != 0) {
+                store.remove(id);
+            } else {
+                expected.add(new Person(id, "Name" + id % 10, "Surname" + id % 7, "123456789", id % 151));
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(1_250);
+        assertThat(store.values()).containsExactlyElementsOf(expected);
+        assertThat(store.get(4_000)).isEqualTo(new Person(4_000, "Name0", "Surname3", "123456789", 4_000 % 151));
+    }
+
+    @Test
+    @DisplayName("Should keep persons ordered by ID when concurrent adds store them out of order")
+    void shouldKeepOrderWhenAddsFinishOutOfOrderTest() {
+        List<Person> expected = new ArrayList<>();
+        for (int id = 1; id <= 3_000; id += 3) {
+            // the adds of IDs id and id + 1 were overtaken by the add of id + 2
+            store.put(new Person(id + 2, "John", "Doe", "123456789", 25));
+            store.put(new Person(id + 1, "John", "Doe", "123456789", 25));
+            store.put(new Person(id, "John", "Doe", "123456789", 25));
+        }
+        for (int id = 1; id <= 3_000; id++) {
+            expected.add(new Person(id, "John", "Doe", "123456789", 25));
+        }
+
+        assertThat(new ArrayList<>(store.values())).isEqualTo(expected);
+        assertThat(store.page(1_500, 2)).isEqualTo(expected.subList(1_500, 1_502));
+    }
+
+    @Test
+    @DisplayName("Should keep all persons in ID order when added to the database from many threads")
+    void shouldKeepOrderOfConcurrentDatabaseAddsTest() throws InterruptedException {
+        PersonDatabase database = new PersonDatabase(store);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    database.addPerson("John", "Doe", "123456789", 25);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        List<Integer> ids = new ArrayList<>();
+        store.values().forEach(person -> ids.add(person.id()));
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= 16_000; id++) {
+            expected.add(id);
+        }
+        assertThat(ids).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("Should drop dictionary values left unused by edits")
+    void shouldCompactDictionaryAfterEditsTest() {
+        for (int id = 1; id <= 100; id++) {
+            store.put(new Person(id, "John", "Doe", "123456789", 25));
+        }
+        for (int round = 0; round < 100; round++) {
+            for (int id = 1; id <= 100; id++) {
+                store.put(new Person(id, "John", "Doe" + round + "-" + id, "12345" + round, 25));
+            }
+        }
+
+        assertThat(store.dictionarySize()).isLessThan(3 * 1_024);
+        assertThat(store.size()).isEqualTo(100);
+        assertThat(store.get(7)).isEqualTo(new Person(7, "John", "Doe99-7", "1234599", 25));
+    }
+
+    @Test
+    @DisplayName("Should continue an iteration after the persons were modified")
+    void shouldIterateWhileModifiedTest() {
+        for (int id = 1; id <= 1_000; id++) {
+            store.put(new Person(id, "John", "Doe", "123456789", 25));
+        }
+        Iterator<Person> iterator = store.values().iterator();
+        for (int i = 0; i < 300; i++) {
+            iterator.next();
+        }
+        for (int id = 1; id <= 900; id++) {
+            store.remove(id);
+        }
+
+        List<Integer> remainingIds = new ArrayList<>();
+        iterator.forEachRemaining(person -> remainingIds.add(person.id()));
+        assertThat(remainingIds.get(remainingIds.size() - 1)).isEqualTo(1_000);
+        assertThat(remainingIds).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Should serve the database like the default store")
+    void shouldWorkAsDatabaseStoreTest() {
+        PersonDatabase database = new PersonDatabase(store);
+        database.addPerson("John", "Doe", "123456789", 25);
+        database.addPerson("Homer", "Simpson", "987654321", 52);
+        database.editPerson(1, "Marge", "Simpson", "111222333");
+        database.deletePerson(2);
+
+        assertThat(database.findSpecificPerson("Simpson")).containsExactly(new Person(1, "Marge", "Simpson", "111222333", 25));
+    }
+}
@@ -0,0 +1,68 @@
+package bb.example.storage;
+
+import bb.example.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelScannerTest {
+    static final int SIZE = 100_000;
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    static PersonStore fill(PersonStore store) {
+        for (int id = 1; id <= SIZE; id++) {
+            // every seventh ID is left out, the chunks contain gaps
+            if (id % 7 != 0) {
+                store.put(new Person(id, "Name" + id % 13, "Surname" + id % 11, "123456789", id % 151));
+            }
+        }
+        return store;
+    }
+
+    @Test
+    @DisplayName("Should find the same persons in ID order as a sequential scan of both stores")
+    void shouldMatchSequentialScanTest() {
+        Predicate<Person> condition = person -> person.name().equals("Name3") && person.age() > 20;
+        for (PersonStore store : List.of(fill(new SkipListPersonStore()), fill(new ColumnarPersonStore()))) {
+            ParallelScanner scanner = new ParallelScanner(store, pool, 1);
+
+            List<Person> expected = store.values().stream().filter(condition).toList();
+            assertThat(scanner.filter(SIZE + 1, condition)).isEqualTo(expected).isNotEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve candidate IDs in parallel and keep their order")
+    void shouldResolveCandidateIdsTest() {
+        PersonStore store = fill(new SkipListPersonStore());
+        ParallelScanner scanner = new ParallelScanner(store, pool, 1);
+        int[] ids = IntStream.rangeClosed(1, SIZE).filter(id -> id % 3 == 0).toArray();
+
+        List<Person> persons = scanner.filter(ids, person -> person.age() < 100);
+
+        assertThat(persons).extracting(Person::id)
+                .isSorted()
+                .allMatch(id -> id % 3 == 0 && id % 7 != 0);
+        assertThat(persons).hasSize((int) IntStream.of(ids).filter(id -> id % 7 != 0 && id % 151 < 100).count());
+    }
+
+    @Test
+    @DisplayName("Should scan a small store without the pool")
+    void shouldScanSmallStoreSequentiallyTest() {
+        PersonStore store = new SkipListPersonStore();
+        Person john = new Person(1, "John", "Doe", "012345678", 25);
+        store.put(john);
+        ForkJoinPool unusedPool = new ForkJoinPool(1);
+
+        assertThat(new ParallelScanner(store, unusedPool, 10).filter(2, person -> true)).containsExactly(john);
+        assertThat(unusedPool.getStealCount()).isZero();
+        unusedPool.shutdown();
+    }
+}
@@ -0,0 +1,86 @@
+package bb.example.storage;
+
+import bb.example.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonHistoryTest {
+    PersonStore store = new ColumnarPersonStore();
+    PersonHistory history = new PersonHistory(store, 64);
+
+    void write(Person before, Person after) {
+        int id = before != null ? before.id() : after.id();
+        long stripe = PersonHistory.stripeMask(id & 63);
+        long version = history.beginWrite(stripe);
+        history.recordBefore(id, before, version);
+        if (after == null) {
+            store.remove(id);
+        } else {
+            store.put(after);
+        }
+        history.endWrite(stripe);
+    }
+
+    @Test
+    @DisplayName("Should keep no previous versions while no snapshot is open")
+    void shouldKeepNothingWithoutSnapshotTest() {
+        write(null, new Person(1, "John", "Doe", "123456789", 25));
+
+        assertThat(history.undos()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep previous versions only until the last snapshot needing them is closed")
+    void shouldDropPreviousVersionsAfterCloseTest() {
+        Person john = new Person(1, "John", "Doe", "123456789", 25);
+        Person jane = new Person(1, "Jane", "Doe", "123456789", 25);
+        Person homer = new Person(2, "Homer", "Simpson", "987654321", 52);
+        write(null, john);
+        write(null, homer);
+
+        PersonSnapshot first = history.snapshot();
+        write(john, jane);
+        PersonSnapshot second = history.snapshot();
+        write(homer, null);
+
+        assertThat(first.persons()).containsExactly(john, homer);
+        assertThat(second.persons()).containsExactly(jane, homer);
+        first.close();
+        assertThat(history.undos()).containsOnlyKeys(2);
+        assertThat(second.persons()).containsExactly(jane, homer);
+        second.close();
+        second.close();
+        assertThat(history.undos()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should include a person deleted while the snapshot is iterated")
+    void shouldKeepPersonDeletedDuringIterationTest() {
+        // the skip list store is read lazily, the columnar store would read the first persons as one batch
+        store = new SkipListPersonStore();
+        history = new PersonHistory(store, 64);
+        List<Person> persons = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            Person person = new Person(id, "John", "Doe", "123456789", 20 + id);
+            persons.add(person);
+            write(null, person);
+        }
+
+        try (PersonSnapshot snapshot = history.snapshot()) {
+            Iterator<Person> iterator = snapshot.persons().iterator();
+            List<Person> read = new ArrayList<>();
+            read.add(iterator.next());
+            write(persons.get(9), null);
+            write(persons.get(4), null);
+            iterator.forEachRemaining(read::add);
+
+            assertThat(read).isEqualTo(persons);
+        }
+    }
+}
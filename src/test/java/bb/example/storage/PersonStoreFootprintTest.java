@@ -0,0 +1,46 @@
+package bb.example.storage;
+
+import bb.example.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the heap taken by a person in the stores. The names come from a few thousand distinct values, but every
+ * person gets its own String instances, as when the persons are typed in or loaded from a file.
+ */
+class PersonStoreFootprintTest {
+    private static final int PERSONS = 300_000;
+
+    @Test
+    @DisplayName("Should take much less heap per person in the columnar store")
+    void shouldMeasureHeapPerPersonTest() {
+        double skipListBytes = bytesPerPerson(SkipListPersonStore::new);
+        double columnarBytes = bytesPerPerson(ColumnarPersonStore::new);
+
+        assertThat(columnarBytes).isLessThan(skipListBytes / 3);
+    }
+
+    private static double bytesPerPerson(Supplier<PersonStore> storeFactory) {
+        long before = usedHeap();
+        PersonStore store = storeFactory.get();
+        for (int id = 1; id <= PERSONS; id++) {
+            store.put(new Person(id, new String("Name" + id % 2_000), new String("Surname" + id % 3_000),
+                    String.valueOf(600_000_000 + id), id % 151));
+        }
+        long after = usedHeap();
+        assertThat(store.size()).isEqualTo(PERSONS);
+        return (double) (after - before) / PERSONS;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}